@@ -0,0 +1,88 @@
+package benchmarks;
+
+import domain.Property;
+import domain.RealEstateAgency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// RealEstateAgency queries (index-backed) next to the linear stream scan they replaced.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgencySearchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int listings;
+
+    private RealEstateAgency agency;
+    private List<Property> list;
+    private final Property[] top10 = new Property[10];
+
+    @Setup
+    public void setUp() {
+        agency = new RealEstateAgency("Benchmark Realty");
+        list = new ArrayList<>(listings);
+        for (int i = 0; i < listings; i++) {
+            Property p = new Property(i + 1, Fixtures.city(i), Fixtures.price(i));
+            agency.add(p);
+            list.add(p);
+        }
+    }
+
+    @Benchmark
+    public List<Property> filterByCity() {
+        return agency.filterByCity("Dubai");
+    }
+
+    @Benchmark
+    public List<Property> searchByPrice() {
+        return agency.searchByPrice(250_000, 260_000);
+    }
+
+    @Benchmark
+    public List<Property> sortByPriceAsc() {
+        return agency.sortByPriceAsc();
+    }
+
+    @Benchmark
+    public List<Property> top10Cheapest() {
+        return agency.topKByPrice(10, true, null);
+    }
+
+    @Benchmark
+    public int top10CheapestIntoArray() {
+        return agency.topKByPrice(true, null, top10);
+    }
+
+    @Benchmark
+    public List<Property> sortThenTop10() {
+        return new ArrayList<>(agency.sortByPriceAsc().subList(0, 10));
+    }
+
+    @Benchmark
+    public List<Property> scanFilterByCity() {
+        return list.stream().filter(p -> p.getCity().equalsIgnoreCase("Dubai")).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Property> scanSearchByPrice() {
+        return list.stream().filter(p -> p.getPrice() >= 250_000 && p.getPrice() <= 260_000).collect(Collectors.toList());
+    }
+}
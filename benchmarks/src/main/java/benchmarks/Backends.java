@@ -0,0 +1,21 @@
+package benchmarks;
+
+import repository.PropertyRepository;
+import repository.jdbc.PropertyDAO;
+import repository.memory.InMemoryPropertyRepository;
+
+final class Backends {
+    private Backends() {}
+
+    // "memory" needs nothing; "jdbc" uses the same -Ddb.url/-Ddb.user/-Ddb.password settings as the server.
+    static PropertyRepository propertyRepository(String backend) {
+        switch (backend) {
+            case "memory":
+                return new InMemoryPropertyRepository();
+            case "jdbc":
+                return new PropertyDAO();
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+}
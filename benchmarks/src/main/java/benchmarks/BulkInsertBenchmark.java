@@ -0,0 +1,60 @@
+package benchmarks;
+
+import dto.BulkInsertResult;
+import dto.PropertyRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DefaultPropertyService;
+import service.PropertyService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Bulk insert through the service (validation + insertProperties batching). Rows/sec = ops/sec * batchSize.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    @Param({"memory"})
+    public String backend;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private PropertyService service;
+    private List<PropertyRecord> batch;
+
+    @Setup
+    public void prepareBatch() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new PropertyRecord(Fixtures.city(i), Fixtures.price(i)));
+        }
+    }
+
+    // A fresh repository per iteration keeps the in-memory backend from growing without bound.
+    @Setup(Level.Iteration)
+    public void resetRepository() {
+        service = new DefaultPropertyService(Backends.propertyRepository(backend));
+    }
+
+    @Benchmark
+    public BulkInsertResult bulkInsert() {
+        return service.createProperties(batch);
+    }
+}
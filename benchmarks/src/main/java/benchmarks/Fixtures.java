@@ -0,0 +1,18 @@
+package benchmarks;
+
+final class Fixtures {
+    private static final String[] CITIES = {
+            "Dubai", "Abu Dhabi", "Sharjah", "Ajman", "Al Ain", "Fujairah", "Ras Al Khaimah", "Umm Al Quwain"
+    };
+
+    private Fixtures() {}
+
+    static String city(int i) {
+        return CITIES[i % CITIES.length];
+    }
+
+    // deterministic spread between 100k and ~1.1M
+    static double price(int i) {
+        return 100_000 + (i * 7_919L % 1_000_000);
+    }
+}
@@ -0,0 +1,118 @@
+package benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dto.AgencyRecord;
+import dto.PropertyRecord;
+import dto.RealtorRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// (De)serialization cost of the DTOs with each JSON engine used by RestApiServer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final Type PROPERTY_LIST = new TypeToken<List<PropertyRecord>>() {}.getType();
+
+    @Param({"gson", "jackson"})
+    public String engine;
+
+    private final Gson gson = new Gson();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private PropertyRecord property;
+    private AgencyRecord agency;
+    private RealtorRecord realtor;
+    private List<PropertyRecord> properties;
+    private String propertyJson;
+    private String agencyJson;
+    private String realtorJson;
+    private String propertiesJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        property = new PropertyRecord(42, "Dubai", 450_000);
+        agency = new AgencyRecord(7, "Skyline Realty", "Sheikh Zayed Road 1");
+        realtor = new RealtorRecord(3, "Sara");
+        properties = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            properties.add(new PropertyRecord(i, Fixtures.city(i), Fixtures.price(i)));
+        }
+        propertyJson = mapper.writeValueAsString(property);
+        agencyJson = mapper.writeValueAsString(agency);
+        realtorJson = mapper.writeValueAsString(realtor);
+        propertiesJson = mapper.writeValueAsString(properties);
+    }
+
+    private String write(Object value) throws JsonProcessingException {
+        return engine.equals("gson") ? gson.toJson(value) : mapper.writeValueAsString(value);
+    }
+
+    private <T> T read(String json, Class<T> type) throws JsonProcessingException {
+        return engine.equals("gson") ? gson.fromJson(json, type) : mapper.readValue(json, type);
+    }
+
+    @Benchmark
+    public String writeProperty() throws JsonProcessingException {
+        return write(property);
+    }
+
+    @Benchmark
+    public String writeAgency() throws JsonProcessingException {
+        return write(agency);
+    }
+
+    @Benchmark
+    public String writeRealtor() throws JsonProcessingException {
+        return write(realtor);
+    }
+
+    @Benchmark
+    public String writePropertyList() throws JsonProcessingException {
+        return write(properties);
+    }
+
+    @Benchmark
+    public PropertyRecord readProperty() throws JsonProcessingException {
+        return read(propertyJson, PropertyRecord.class);
+    }
+
+    @Benchmark
+    public AgencyRecord readAgency() throws JsonProcessingException {
+        return read(agencyJson, AgencyRecord.class);
+    }
+
+    @Benchmark
+    public RealtorRecord readRealtor() throws JsonProcessingException {
+        return read(realtorJson, RealtorRecord.class);
+    }
+
+    @Benchmark
+    public List<PropertyRecord> readPropertyList() throws JsonProcessingException {
+        if (engine.equals("gson")) {
+            return gson.fromJson(propertiesJson, PROPERTY_LIST);
+        }
+        return mapper.readValue(propertiesJson, mapper.getTypeFactory().constructCollectionType(List.class, PropertyRecord.class));
+    }
+}
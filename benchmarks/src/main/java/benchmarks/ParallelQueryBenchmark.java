@@ -0,0 +1,76 @@
+package benchmarks;
+
+import domain.PropertyQueryExecutor;
+import domain.PropertyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// PropertyQueryExecutor (fork/join) against the single-threaded PropertyStore methods on the same data.
+// parallelism=1 shows the split/merge overhead on its own.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelQueryBenchmark {
+
+    @Param({"1000000"})
+    public int listings;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private PropertyStore store;
+    private PropertyQueryExecutor executor;
+
+    @Setup
+    public void setUp() {
+        store = new PropertyStore();
+        for (int i = 0; i < listings; i++) {
+            store.add(i + 1, Fixtures.city(i), Fixtures.price(i));
+        }
+        executor = new PropertyQueryExecutor(parallelism, PropertyQueryExecutor.DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    @Benchmark
+    public int[] sequentialSearchByPrice() {
+        return store.searchByPrice(250_000, 350_000);
+    }
+
+    @Benchmark
+    public int[] parallelSearchByPrice() {
+        return executor.searchByPrice(store, 250_000, 350_000);
+    }
+
+    @Benchmark
+    public int[] sequentialFilterByCity() {
+        return store.filterByCity("Dubai");
+    }
+
+    @Benchmark
+    public int[] parallelFilterByCity() {
+        return executor.filterByCity(store, "Dubai");
+    }
+
+    @Benchmark
+    public int[] parallelSortByPriceAsc() {
+        return executor.sortByPriceAsc(store);
+    }
+
+    @Benchmark
+    public int[] parallelTop100Cheapest() {
+        return executor.topKByPrice(store, 100, true, null);
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import dto.PropertyRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import service.DefaultPropertyService;
+import service.PropertyService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Read paths through DefaultPropertyService: single-row lookup, full listing and cursor streaming.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyServiceBenchmark {
+
+    @Param({"memory"})
+    public String backend;
+
+    @Param({"10000"})
+    public int rows;
+
+    private PropertyService service;
+    private int[] ids;
+
+    @Setup
+    public void setUp() {
+        service = new DefaultPropertyService(Backends.propertyRepository(backend));
+        List<PropertyRecord> seed = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            seed.add(new PropertyRecord(Fixtures.city(i), Fixtures.price(i)));
+        }
+        List<Integer> generated = service.createProperties(seed).getIds();
+        ids = generated.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public PropertyRecord lookupById() {
+        return service.getProperty(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<PropertyRecord> listAll() {
+        return service.listProperties();
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        service.forEachProperty(blackhole::consume);
+    }
+
+    @Benchmark
+    public List<PropertyRecord> firstPage() {
+        return service.listProperties(0, 100);
+    }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import domain.Property;
+import domain.PropertyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Full scans over the columnar PropertyStore next to the same loops over a List<Property>.
+// Footprint is measured separately by PropertyStoreFootprint.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyStoreBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int listings;
+
+    private PropertyStore store;
+    private List<Property> list;
+
+    @Setup
+    public void setUp() {
+        store = new PropertyStore();
+        list = new ArrayList<>(listings);
+        for (int i = 0; i < listings; i++) {
+            // a fresh String per row, as rows loaded from JDBC would have
+            Property p = new Property(i + 1, new String(Fixtures.city(i)), Fixtures.price(i));
+            store.add(p);
+            list.add(p);
+        }
+    }
+
+    @Benchmark
+    public int[] storeFilterByCity() {
+        return store.filterByCity("Dubai");
+    }
+
+    @Benchmark
+    public List<Property> listFilterByCity() {
+        List<Property> result = new ArrayList<>();
+        for (Property p : list) {
+            if (p.getCity().equalsIgnoreCase("Dubai")) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] storeSearchByPrice() {
+        return store.searchByPrice(250_000, 350_000);
+    }
+
+    @Benchmark
+    public List<Property> listSearchByPrice() {
+        List<Property> result = new ArrayList<>();
+        for (Property p : list) {
+            if (p.getPrice() >= 250_000 && p.getPrice() <= 350_000) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    // Includes the sort itself: a fresh store has no cached order.
+    @Benchmark
+    public int[] storeSortByPriceAsc() {
+        PropertyStore fresh = new PropertyStore();
+        for (int i = 0; i < listings; i++) {
+            fresh.add(i + 1, Fixtures.city(i), Fixtures.price(i));
+        }
+        return fresh.sortByPriceAsc();
+    }
+
+    @Benchmark
+    public List<Property> listSortByPriceAsc() {
+        List<Property> sorted = new ArrayList<>(list);
+        sorted.sort(Comparator.comparingDouble(Property::getPrice).thenComparingLong(Property::getId));
+        return sorted;
+    }
+
+    @Benchmark
+    public int[] storeSortByPriceAscCached() {
+        return store.sortByPriceAsc();
+    }
+}
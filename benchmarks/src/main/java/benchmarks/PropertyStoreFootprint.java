@@ -0,0 +1,50 @@
+package benchmarks;
+
+import domain.Property;
+import domain.PropertyStore;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+// Heap retained by N listings as List<Property> versus PropertyStore, measured as the used-heap delta
+// around building each structure. Run with a fixed heap for stable numbers:
+//   java -Xms2g -Xmx2g -cp target/benchmarks.jar benchmarks.PropertyStoreFootprint 1000000
+public final class PropertyStoreFootprint {
+
+    private PropertyStoreFootprint() {}
+
+    public static void main(String[] args) {
+        int listings = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long before = usedHeap();
+        List<Property> list = new ArrayList<>();
+        for (int i = 0; i < listings; i++) {
+            list.add(new Property(i + 1, new String(Fixtures.city(i)), Fixtures.price(i)));
+        }
+        long listBytes = usedHeap() - before;
+
+        before = usedHeap();
+        PropertyStore store = new PropertyStore();
+        for (int i = 0; i < listings; i++) {
+            store.add(i + 1, new String(Fixtures.city(i)), Fixtures.price(i));
+        }
+        long storeBytes = usedHeap() - before;
+
+        System.out.printf("listings: %,d%n", listings);
+        System.out.printf("List<Property>: %,d bytes (%.1f per listing)%n", listBytes, listBytes / (double) listings);
+        System.out.printf("PropertyStore:  %,d bytes (%.1f per listing, estimate %,d)%n",
+                storeBytes, storeBytes / (double) listings, store.footprintBytes());
+        // keep both reachable until after the measurements
+        Reference.reachabilityFence(list);
+        Reference.reachabilityFence(store);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -22,3 +22,131 @@ CREATE TABLE IF NOT EXISTS property_listing (
     city VARCHAR(120) NOT NULL,
     price NUMERIC(12, 2) NOT NULL
 );
+
+-- Change log for delta sync (GET /api/{entity}/changes), one entry per written row, filled by triggers in
+-- the writing transaction so batches, COPY and direct SQL are captured too. txid orders entries by
+-- transaction, which is what lets readers skip only settled ones (see repository.jdbc.ChangeLogSql).
+-- Each row keeps only its latest entry, so the log holds one entry per live row plus the deletions, which
+-- repository.jdbc.ChangeLogCompactor trims. xid8 and pg_current_xact_id() need PostgreSQL 13 or later.
+CREATE TABLE IF NOT EXISTS change_log (
+    version BIGSERIAL PRIMARY KEY,
+    txid XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    entity VARCHAR(16) NOT NULL,
+    entity_id INTEGER NOT NULL,
+    op CHAR(1) NOT NULL,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS change_log_position ON change_log (entity, txid, version);
+CREATE INDEX IF NOT EXISTS change_log_row ON change_log (entity, entity_id);
+CREATE INDEX IF NOT EXISTS change_log_deletes ON change_log (entity, txid, version) WHERE op = 'D';
+
+-- Per entity, the newest position whose deletion has been trimmed from change_log. Cursors before it may have
+-- missed that deletion and are answered with 410 Gone; a cursor at it has read the deletion and stays valid.
+-- Created together with the one-time compaction of logs written before entries were replaced per row.
+DO $$
+BEGIN
+    IF to_regclass('public.change_log_floor') IS NULL THEN
+        CREATE TABLE change_log_floor (
+            entity VARCHAR(16) PRIMARY KEY,
+            txid XID8 NOT NULL,
+            version BIGINT NOT NULL
+        );
+        DELETE FROM change_log l USING change_log newer
+        WHERE newer.entity = l.entity AND newer.entity_id = l.entity_id AND newer.version > l.version;
+    END IF;
+END
+$$;
+
+-- Statement-level: one INSERT ... SELECT per written statement from its transition table, so a COPY or a
+-- batch of thousands of rows costs one extra statement, not one per row. Updates and deletes first remove
+-- the rows' earlier entries; the row lock the statement holds keeps other writers of the same rows out.
+-- Inserts skip that, their ids are new.
+CREATE OR REPLACE FUNCTION change_log_capture_rows() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM change_log l USING old_rows o WHERE l.entity = TG_ARGV[0] AND l.entity_id = o.id;
+        INSERT INTO change_log (entity, entity_id, op) SELECT TG_ARGV[0], id, 'D' FROM old_rows;
+    ELSIF TG_OP = 'UPDATE' THEN
+        DELETE FROM change_log l USING new_rows n WHERE l.entity = TG_ARGV[0] AND l.entity_id = n.id;
+        INSERT INTO change_log (entity, entity_id, op) SELECT TG_ARGV[0], id, 'U' FROM new_rows;
+    ELSE
+        INSERT INTO change_log (entity, entity_id, op) SELECT TG_ARGV[0], id, 'I' FROM new_rows;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Installs the triggers once per table. Rows written before that get an entry of their own in the same
+-- transaction (CREATE TRIGGER holds off writers until it commits), so since=0 always returns every row.
+-- Replaces the per-row change_log_capture trigger of earlier versions.
+DO $$
+DECLARE
+    t record;
+BEGIN
+    FOR t IN SELECT * FROM (VALUES ('real_estate_agency', 'agency'), ('realtor', 'realtor'),
+                                   ('property', 'property'), ('property_listing', 'property')) AS v(tbl, entity)
+             WHERE to_regclass('public.' || v.tbl) IS NOT NULL LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'change_log_insert' AND tgrelid = t.tbl::regclass) THEN
+            EXECUTE format('DROP TRIGGER IF EXISTS change_log_capture ON %I', t.tbl);
+            EXECUTE format('CREATE TRIGGER change_log_insert AFTER INSERT ON %I REFERENCING NEW TABLE AS new_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION change_log_capture_rows(%L)', t.tbl, t.entity);
+            EXECUTE format('CREATE TRIGGER change_log_update AFTER UPDATE ON %I REFERENCING NEW TABLE AS new_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION change_log_capture_rows(%L)', t.tbl, t.entity);
+            EXECUTE format('CREATE TRIGGER change_log_delete AFTER DELETE ON %I REFERENCING OLD TABLE AS old_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION change_log_capture_rows(%L)', t.tbl, t.entity);
+            EXECUTE format('INSERT INTO change_log (entity, entity_id, op) SELECT %L, r.id, %L FROM %I r'
+                           ' WHERE NOT EXISTS (SELECT 1 FROM change_log l WHERE l.entity = %L AND l.entity_id = r.id)',
+                           t.entity, 'I', t.tbl, t.entity);
+        END IF;
+    END LOOP;
+END
+$$;
+
+DROP FUNCTION IF EXISTS change_log_capture();
+
+-- Change notifications for GET /api/{entity}/changes/stream with -Dchanges.source=postgres (see repository.jdbc.PgChangeListener).
+-- Statement-level like the change_log triggers: a statement that writes more than 500 rows sends one
+-- "entity:reload:0", any other sends "entity:operation:id" per row. NOTIFY is delivered on commit and costs
+-- little when nobody listens, so the triggers stay installed rather than following listeners in and out.
+CREATE OR REPLACE FUNCTION realestate_notify_change() RETURNS trigger AS $$
+DECLARE
+    changed bigint;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        SELECT count(*) INTO changed FROM old_rows;
+    ELSE
+        SELECT count(*) INTO changed FROM new_rows;
+    END IF;
+    IF changed > 500 THEN
+        PERFORM pg_notify('realestate_changes', TG_ARGV[0] || ':reload:0');
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('realestate_changes', TG_ARGV[0] || ':delete:' || id) FROM old_rows;
+    ELSE
+        PERFORM pg_notify('realestate_changes', TG_ARGV[0] || ':' || lower(TG_OP) || ':' || id) FROM new_rows;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Installs the triggers once per table. Replaces the per-row realestate_notify trigger of earlier versions,
+-- which listeners installed on start and dropped on stop.
+DO $$
+DECLARE
+    t record;
+BEGIN
+    FOR t IN SELECT * FROM (VALUES ('real_estate_agency', 'agency'), ('realtor', 'realtor'),
+                                   ('property', 'property'), ('property_listing', 'property')) AS v(tbl, entity)
+             WHERE to_regclass('public.' || v.tbl) IS NOT NULL LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'realestate_notify_insert' AND tgrelid = t.tbl::regclass) THEN
+            EXECUTE format('DROP TRIGGER IF EXISTS realestate_notify ON %I', t.tbl);
+            EXECUTE format('CREATE TRIGGER realestate_notify_insert AFTER INSERT ON %I REFERENCING NEW TABLE AS new_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION realestate_notify_change(%L)', t.tbl, t.entity);
+            EXECUTE format('CREATE TRIGGER realestate_notify_update AFTER UPDATE ON %I REFERENCING NEW TABLE AS new_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION realestate_notify_change(%L)', t.tbl, t.entity);
+            EXECUTE format('CREATE TRIGGER realestate_notify_delete AFTER DELETE ON %I REFERENCING OLD TABLE AS old_rows'
+                           ' FOR EACH STATEMENT EXECUTE FUNCTION realestate_notify_change(%L)', t.tbl, t.entity);
+        END IF;
+    END LOOP;
+END
+$$;
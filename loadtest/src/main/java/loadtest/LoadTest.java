@@ -0,0 +1,100 @@
+package loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+// Entry point: seed, then one open-model stage per --rates entry, then the report. Stages run back to back
+// against the same data, lowest rate first, so the summary reads as a ramp.
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -jar loadtest.jar [--url http://localhost:7070] [--rates 100,200,400] "
+                    + "[--warmup 5s] [--duration 30s] [--mix property.get=40,...] [--report file] [--csv file]");
+            System.exit(2);
+            return;
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout)
+                .build();
+        Workload workload = new Workload(options.mix, 42L);
+        System.out.printf("Seeding %s ...%n", options.url);
+        workload.seed(client, options.url, options);
+        System.out.printf("%d properties, %d agencies, %d realtors; mix %s%n",
+                workload.propertyIds.length, workload.agencyIds.length, workload.realtorIds.length, describe(options.mix));
+
+        // everything printed goes to stdout and, with --report, to the file as well
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = options.report == null ? System.out : new PrintStream(new Tee(buffer), true, StandardCharsets.UTF_8);
+
+        OpenLoopRunner runner = new OpenLoopRunner(client, options.url, workload, options);
+        List<StageResult> stages = new ArrayList<>();
+        for (int rate : options.rates) {
+            System.out.printf("%nRunning %d req/s (%ss warmup, %ss measured) ...%n",
+                    rate, options.warmup.getSeconds(), options.duration.getSeconds());
+            StageResult stage = runner.run(rate);
+            stages.add(stage);
+            Report.printStage(out, stage);
+        }
+        Report.printSummary(out, stages, options);
+        out.flush();
+
+        if (options.report != null) {
+            Files.write(Path.of(options.report), buffer.toByteArray());
+            System.out.println("Report written to " + options.report);
+        }
+        if (options.csv != null) {
+            Report.writeCsv(Path.of(options.csv), stages);
+            System.out.println("CSV written to " + options.csv);
+        }
+    }
+
+    private static String describe(Map<Operation, Integer> mix) {
+        StringJoiner joiner = new StringJoiner(",");
+        mix.forEach((op, weight) -> joiner.add(op.key + "=" + weight));
+        return joiner.toString();
+    }
+
+    private static final class Tee extends OutputStream {
+        private final ByteArrayOutputStream copy;
+
+        private Tee(ByteArrayOutputStream copy) {
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) {
+            System.out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            System.out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+    }
+}
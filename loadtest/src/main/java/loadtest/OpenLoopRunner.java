@@ -0,0 +1,113 @@
+package loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model driver: request i of a stage is due at start + i / rate whether or not earlier requests have
+// answered, the way independent users arrive. Latency is measured from that due time rather than from the
+// moment the request was actually sent, so a stalled server (or a late scheduler) shows up in the
+// percentiles instead of silently lowering the offered load; that is the coordinated-omission correction.
+// Service time, from the actual send, is kept alongside for comparison.
+final class OpenLoopRunner {
+
+    // one hour in microseconds, three significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final HttpClient client;
+    private final URI base;
+    private final Workload workload;
+    private final Options options;
+
+    OpenLoopRunner(HttpClient client, URI base, Workload workload, Options options) {
+        this.client = client;
+        this.base = base;
+        this.workload = workload;
+        this.options = options;
+    }
+
+    StageResult run(int rate) throws InterruptedException {
+        Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation op : options.mix.keySet()) {
+            recorders.put(op, new Recorder());
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        LongAdder dropped = new LongAdder();
+        double intervalNanos = 1e9 / rate;
+        long warmupNanos = options.warmup.toNanos();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + options.duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation op = workload.next();
+            boolean measured = due >= measureFrom;
+            // The client has no back-pressure of its own; past this bound the generator, not the server, would
+            // be what breaks, so the request is counted as dropped instead.
+            if (inFlight.get() >= options.maxInFlight) {
+                if (measured) {
+                    dropped.increment();
+                }
+                continue;
+            }
+            HttpRequest request = op.request(base, workload).timeout(options.timeout).build();
+            Recorder recorder = recorders.get(op);
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long now = System.nanoTime();
+                inFlight.decrementAndGet();
+                if (measured) {
+                    recorder.record(now - due, now - sent, error != null || response.statusCode() >= 400);
+                }
+            });
+        }
+        drain(inFlight);
+
+        Map<Operation, StageResult.OperationResult> results = new EnumMap<>(Operation.class);
+        recorders.forEach((op, r) -> results.put(op, new StageResult.OperationResult(op, r.latency, r.service, r.errors.sum())));
+        return new StageResult(rate, options.duration, results, dropped.sum());
+    }
+
+    // Requests still out when the schedule ends belong to this stage; give them until the client timeout.
+    private void drain(AtomicInteger inFlight) {
+        long deadline = System.nanoTime() + options.timeout.plus(Duration.ofSeconds(1)).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static final class Recorder {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram service = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long latencyNanos, long serviceNanos, boolean error) {
+            latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+            service.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(serviceNanos)));
+            if (error) {
+                errors.increment();
+            }
+        }
+    }
+}
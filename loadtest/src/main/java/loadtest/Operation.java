@@ -0,0 +1,144 @@
+package loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+// The API calls a mix can be made of; the key is the name used in --mix.
+enum Operation {
+    PROPERTY_GET("property.get") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/properties/" + w.propertyId());
+        }
+    },
+    PROPERTY_PAGE("property.page") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/properties?limit=100&after=" + w.pageCursor(w.propertyIds));
+        }
+    },
+    PROPERTY_SEARCH("property.search") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            double min = w.price();
+            return get(base, "/api/properties/search?city=" + w.city() + "&minPrice=" + (long) min + "&maxPrice=" + (long) (min * 1.2));
+        }
+    },
+    PROPERTY_TOP("property.top") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/properties/top?k=10&order=" + (w.coin() ? "price_asc" : "price_desc") + "&city=" + w.city());
+        }
+    },
+    PROPERTY_IDS("property.ids") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            StringJoiner ids = new StringJoiner(",");
+            for (int i = 0; i < 20; i++) {
+                ids.add(Integer.toString(w.propertyId()));
+            }
+            return get(base, "/api/properties?ids=" + ids);
+        }
+    },
+    PROPERTY_CREATE("property.create") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return send(base, "/api/properties", "POST", w.propertyJson());
+        }
+    },
+    PROPERTY_UPDATE("property.update") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return send(base, "/api/properties/" + w.propertyId(), "PUT", w.propertyJson());
+        }
+    },
+    AGENCY_GET("agency.get") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/agencies/" + w.agencyId());
+        }
+    },
+    AGENCY_PAGE("agency.page") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/agencies?limit=100&after=" + w.pageCursor(w.agencyIds));
+        }
+    },
+    AGENCY_CREATE("agency.create") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return send(base, "/api/agencies", "POST", w.agencyJson());
+        }
+    },
+    REALTOR_GET("realtor.get") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/realtors/" + w.realtorId());
+        }
+    },
+    REALTOR_PAGE("realtor.page") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return get(base, "/api/realtors?limit=100&after=" + w.pageCursor(w.realtorIds));
+        }
+    },
+    REALTOR_CREATE("realtor.create") {
+        @Override
+        HttpRequest.Builder request(URI base, Workload w) {
+            return send(base, "/api/realtors", "POST", w.realtorJson());
+        }
+    };
+
+    final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    abstract HttpRequest.Builder request(URI base, Workload w);
+
+    private static HttpRequest.Builder get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).GET();
+    }
+
+    private static HttpRequest.Builder send(URI base, String path, String method, String json) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    // "property.get=40,agency.get=10"; weights are relative.
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like property.get=40, got: " + part);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(byKey(kv[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight.");
+        }
+        return weights;
+    }
+
+    private static Operation byKey(String key) {
+        for (Operation op : values()) {
+            if (op.key.equals(key)) {
+                return op;
+            }
+        }
+        StringJoiner known = new StringJoiner(", ");
+        for (Operation op : values()) {
+            known.add(op.key);
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'; known: " + known);
+    }
+}
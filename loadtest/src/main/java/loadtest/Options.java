@@ -0,0 +1,95 @@
+package loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Command line: --name value pairs, all optional. See loadtest/README.md.
+final class Options {
+
+    static final String DEFAULT_MIX = "property.get=35,property.page=10,property.search=15,property.top=5,property.ids=5,"
+            + "property.create=5,property.update=5,agency.get=8,agency.page=2,realtor.get=8,realtor.page=2";
+
+    final URI url;
+    final List<Integer> rates;
+    final Duration warmup;
+    final Duration duration;
+    final Map<Operation, Integer> mix;
+    final int seedProperties;
+    final int seedAgencies;
+    final int seedRealtors;
+    final int maxInFlight;
+    final Duration timeout;
+    final Duration p99Target;
+    final String report;
+    final String csv;
+
+    private Options(Map<String, String> values) {
+        this.url = URI.create(stripSlash(take(values, "url", "http://localhost:7070")));
+        this.rates = parseRates(take(values, "rates", "100,200,400,800"));
+        this.warmup = parseDuration(take(values, "warmup", "5s"));
+        this.duration = parseDuration(take(values, "duration", "30s"));
+        this.mix = Operation.parseMix(take(values, "mix", DEFAULT_MIX));
+        this.seedProperties = Integer.parseInt(take(values, "seed-properties", "1000"));
+        this.seedAgencies = Integer.parseInt(take(values, "seed-agencies", "50"));
+        this.seedRealtors = Integer.parseInt(take(values, "seed-realtors", "50"));
+        this.maxInFlight = Integer.parseInt(take(values, "max-in-flight", "2000"));
+        this.timeout = parseDuration(take(values, "timeout", "10s"));
+        this.p99Target = parseDuration(take(values, "p99-target", "500ms"));
+        this.report = take(values, "report", null);
+        this.csv = take(values, "csv", null);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s): " + values.keySet());
+        }
+    }
+
+    static Options parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got: " + args[i]);
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+        return new Options(values);
+    }
+
+    private static String take(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static List<Integer> parseRates(String value) {
+        List<Integer> rates = new ArrayList<>();
+        for (String part : value.split(",")) {
+            int rate = Integer.parseInt(part.trim());
+            if (rate <= 0) {
+                throw new IllegalArgumentException("Rates must be positive: " + value);
+            }
+            rates.add(rate);
+        }
+        return rates;
+    }
+
+    // 30s, 2m, 500ms or plain seconds
+    static Duration parseDuration(String value) {
+        String v = value.trim();
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+}
@@ -0,0 +1,103 @@
+package loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// Renders stage results: a text table per stage plus a saturation summary, and optionally one CSV row per
+// stage and operation for spreadsheets or plotting across releases. Latencies are printed in milliseconds.
+final class Report {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private Report() {
+    }
+
+    static void printStage(PrintStream out, StageResult stage) {
+        out.printf(Locale.ROOT, "%n== %d req/s for %ds: achieved %.1f req/s, %d completed, %d errors, %d dropped%n",
+                stage.targetRate, stage.duration.getSeconds(), stage.achievedRate(), stage.completed, stage.errors, stage.dropped);
+        out.printf(Locale.ROOT, "%-16s %8s %7s %9s %9s %9s %9s %9s | %9s %9s%n",
+                "operation", "count", "errors", "p50", "p90", "p99", "p99.9", "max", "svc p50", "svc p99");
+        for (StageResult.OperationResult op : stage.operations.values()) {
+            printRow(out, op.operation.key, op.latency, op.service, op.errors);
+        }
+        if (stage.latency != null) {
+            printRow(out, "all", stage.latency, stage.service, stage.errors);
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram latency, Histogram service, long errors) {
+        out.printf(Locale.ROOT, "%-16s %8d %7d", name, latency.getTotalCount(), errors);
+        for (double p : PERCENTILES) {
+            out.printf(Locale.ROOT, " %9.2f", millis(latency.getValueAtPercentile(p)));
+        }
+        out.printf(Locale.ROOT, " %9.2f | %9.2f %9.2f%n", millis(latency.getMaxValue()),
+                millis(service.getValueAtPercentile(50.0)), millis(service.getValueAtPercentile(99.0)));
+    }
+
+    // The saturation point is the highest offered rate the server still kept up with, counting only the
+    // stages below the first one it failed; a lucky stage after a failure is noise, not headroom.
+    static void printSummary(PrintStream out, List<StageResult> stages, Options options) {
+        out.printf(Locale.ROOT, "%n== Summary (kept up = >=95%% of target served, <=1%% errors+drops, p99 <= %dms)%n",
+                options.p99Target.toMillis());
+        out.printf(Locale.ROOT, "%8s %10s %9s %9s %8s%n", "target", "achieved", "p99", "p99.9", "kept up");
+        Integer saturation = null;
+        boolean failed = false;
+        for (StageResult stage : stages) {
+            boolean keptUp = stage.keptUp(options.p99Target);
+            out.printf(Locale.ROOT, "%8d %10.1f %9.2f %9.2f %8s%n", stage.targetRate, stage.achievedRate(),
+                    stage.latency == null ? 0.0 : millis(stage.latency.getValueAtPercentile(99.0)),
+                    stage.latency == null ? 0.0 : millis(stage.latency.getValueAtPercentile(99.9)),
+                    keptUp ? "yes" : "no");
+            failed |= !keptUp;
+            if (keptUp && !failed) {
+                saturation = stage.targetRate;
+            }
+        }
+        if (saturation == null) {
+            out.println("Saturated at every tested rate; try lower --rates.");
+        } else if (!failed) {
+            out.printf(Locale.ROOT, "Kept up at every tested rate (highest %d req/s); saturation is above that.%n", saturation);
+        } else {
+            out.printf(Locale.ROOT, "Saturation point: about %d req/s.%n", saturation);
+        }
+    }
+
+    static void writeCsv(Path file, List<StageResult> stages) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             PrintWriter out = new PrintWriter(w)) {
+            out.println("target_rate,achieved_rate,operation,count,errors,dropped,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,service_p50_ms,service_p99_ms");
+            for (StageResult stage : stages) {
+                for (StageResult.OperationResult op : stage.operations.values()) {
+                    csvRow(out, stage, op.operation.key, op.latency, op.service, op.errors, 0);
+                }
+                if (stage.latency != null) {
+                    csvRow(out, stage, "all", stage.latency, stage.service, stage.errors, stage.dropped);
+                }
+            }
+        }
+    }
+
+    private static void csvRow(PrintWriter out, StageResult stage, String name, Histogram latency, Histogram service,
+                               long errors, long dropped) {
+        out.printf(Locale.ROOT, "%d,%.1f,%s,%d,%d,%d", stage.targetRate, stage.achievedRate(), name,
+                latency.getTotalCount(), errors, dropped);
+        for (double p : PERCENTILES) {
+            out.printf(Locale.ROOT, ",%.3f", millis(latency.getValueAtPercentile(p)));
+        }
+        out.printf(Locale.ROOT, ",%.3f,%.3f,%.3f%n", millis(latency.getMaxValue()),
+                millis(service.getValueAtPercentile(50.0)), millis(service.getValueAtPercentile(99.0)));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,70 @@
+package loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+
+// What one fixed-rate stage measured, per operation and overall. Histograms are in microseconds.
+final class StageResult {
+
+    final int targetRate;
+    final Duration duration;
+    final Map<Operation, OperationResult> operations;
+    final long dropped;
+    final Histogram latency;
+    final Histogram service;
+    final long completed;
+    final long errors;
+
+    StageResult(int targetRate, Duration duration, Map<Operation, OperationResult> operations, long dropped) {
+        this.targetRate = targetRate;
+        this.duration = duration;
+        this.operations = operations;
+        this.dropped = dropped;
+        Histogram latency = null;
+        Histogram service = null;
+        long errors = 0;
+        for (OperationResult op : operations.values()) {
+            if (latency == null) {
+                latency = new Histogram(op.latency.getHighestTrackableValue(), op.latency.getNumberOfSignificantValueDigits());
+                service = new Histogram(op.service.getHighestTrackableValue(), op.service.getNumberOfSignificantValueDigits());
+            }
+            latency.add(op.latency);
+            service.add(op.service);
+            errors += op.errors;
+        }
+        this.latency = latency;
+        this.service = service;
+        this.completed = latency == null ? 0 : latency.getTotalCount();
+        this.errors = errors;
+    }
+
+    // successful responses per second over the measured window
+    double achievedRate() {
+        return (completed - errors) / (duration.toNanos() / 1e9);
+    }
+
+    // The server kept up when it served (nearly) the offered rate, without errors or drops, inside the p99 target.
+    boolean keptUp(Duration p99Target) {
+        long offered = completed + dropped;
+        return offered > 0
+                && achievedRate() >= targetRate * 0.95
+                && (errors + dropped) <= offered / 100
+                && latency.getValueAtPercentile(99.0) <= p99Target.toNanos() / 1000;
+    }
+
+    static final class OperationResult {
+        final Operation operation;
+        final Histogram latency;
+        final Histogram service;
+        final long errors;
+
+        OperationResult(Operation operation, Histogram latency, Histogram service, long errors) {
+            this.operation = operation;
+            this.latency = latency;
+            this.service = service;
+            this.errors = errors;
+        }
+    }
+}
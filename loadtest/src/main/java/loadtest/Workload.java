@@ -0,0 +1,167 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Seeds the server with a known data set, then hands out operations and request parameters for it. Only
+// the scheduler thread calls next() and the parameter methods, so none of this is synchronized.
+final class Workload {
+
+    private static final String[] CITIES = {"Paris", "Rome", "Berlin", "Madrid", "Lisbon", "Vienna", "Prague", "Oslo"};
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final int SEED_BATCH = 500;
+
+    private final SplittableRandom random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+    int[] propertyIds = new int[0];
+    int[] agencyIds = new int[0];
+    int[] realtorIds = new int[0];
+
+    Workload(Map<Operation, Integer> mix, long seed) {
+        this.random = new SplittableRandom(seed);
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += mix.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    Operation next() {
+        int r = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    // Creates what is missing up to the requested counts and loads the ids that exist, so a rerun against
+    // the same server reuses its data instead of growing it.
+    void seed(HttpClient client, URI base, Options options) throws IOException, InterruptedException {
+        agencyIds = ids(client, base, "/api/agencies", options.timeout);
+        for (int i = agencyIds.length; i < options.seedAgencies; i++) {
+            post(client, base, "/api/agencies", agencyJson(), options.timeout);
+        }
+        realtorIds = ids(client, base, "/api/realtors", options.timeout);
+        for (int i = realtorIds.length; i < options.seedRealtors; i++) {
+            post(client, base, "/api/realtors", realtorJson(), options.timeout);
+        }
+        propertyIds = ids(client, base, "/api/properties", options.timeout);
+        for (int remaining = options.seedProperties - propertyIds.length; remaining > 0; remaining -= SEED_BATCH) {
+            StringJoiner batch = new StringJoiner(",", "[", "]");
+            for (int i = Math.min(remaining, SEED_BATCH); i > 0; i--) {
+                batch.add(propertyJson());
+            }
+            post(client, base, "/api/properties/bulk", batch.toString(), options.timeout);
+        }
+        agencyIds = ids(client, base, "/api/agencies", options.timeout);
+        realtorIds = ids(client, base, "/api/realtors", options.timeout);
+        propertyIds = ids(client, base, "/api/properties", options.timeout);
+        if (propertyIds.length == 0 || agencyIds.length == 0 || realtorIds.length == 0) {
+            throw new IllegalStateException("Seeding left an empty table; check the server log.");
+        }
+    }
+
+    // Walks the keyset pages of a list endpoint.
+    private static int[] ids(HttpClient client, URI base, String path, Duration timeout) throws IOException, InterruptedException {
+        int[] ids = new int[1024];
+        int n = 0;
+        int after = 0;
+        while (true) {
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(path + "?limit=1000&after=" + after))
+                    .timeout(timeout).GET().build();
+            String body = check(client.send(request, HttpResponse.BodyHandlers.ofString()), request);
+            int before = n;
+            Matcher m = ID.matcher(body);
+            while (m.find()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n] = Integer.parseInt(m.group(1));
+                after = Math.max(after, ids[n++]);
+            }
+            if (n - before < 1000) {
+                return Arrays.copyOf(ids, n);
+            }
+        }
+    }
+
+    private static void post(HttpClient client, URI base, String path, String json, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        check(client.send(request, HttpResponse.BodyHandlers.ofString()), request);
+    }
+
+    private static String check(HttpResponse<String> response, HttpRequest request) {
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    int propertyId() {
+        return pick(propertyIds);
+    }
+
+    int agencyId() {
+        return pick(agencyIds);
+    }
+
+    int realtorId() {
+        return pick(realtorIds);
+    }
+
+    // A keyset cursor somewhere in the table; 0 starts at the beginning.
+    int pageCursor(int[] ids) {
+        return random.nextInt(4) == 0 ? 0 : pick(ids);
+    }
+
+    String city() {
+        return CITIES[random.nextInt(CITIES.length)];
+    }
+
+    double price() {
+        return 50_000 + random.nextInt(950_000);
+    }
+
+    boolean coin() {
+        return random.nextBoolean();
+    }
+
+    String propertyJson() {
+        return "{\"city\":\"" + city() + "\",\"price\":" + (long) price() + "}";
+    }
+
+    String agencyJson() {
+        int n = random.nextInt(1_000_000);
+        return "{\"name\":\"Agency " + n + "\",\"address\":\"" + n + " Main Street\"}";
+    }
+
+    String realtorJson() {
+        return "{\"name\":\"Realtor " + random.nextInt(1_000_000) + "\"}";
+    }
+
+    private int pick(int[] ids) {
+        return ids[random.nextInt(ids.length)];
+    }
+}
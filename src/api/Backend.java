@@ -0,0 +1,103 @@
+package api;
+
+import config.ConnectionProvider;
+import config.DatabaseConnection;
+import config.PooledConnectionProvider;
+import metrics.MetricsRegistry;
+import repository.AgencyRepository;
+import repository.PropertyRepository;
+import repository.RealtorRepository;
+import repository.jdbc.PropertyDAO;
+import repository.journal.JournalAgencyRepository;
+import repository.journal.JournalPropertyRepository;
+import repository.journal.JournalRealtorRepository;
+import repository.jdbc.RealEstateAgencyDAO;
+import repository.jdbc.RealtorDAO;
+import repository.memory.InMemoryAgencyRepository;
+import repository.memory.InMemoryPropertyRepository;
+import repository.memory.InMemoryRealtorRepository;
+import repository.shard.ShardedPropertyRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Where the repositories keep their rows. MEMORY needs no database and starts empty, e.g. for load tests
+// of the HTTP and service layers in isolation. JOURNAL also needs no database: rows live in memory and are
+// persisted to an append-only journal under -Djournal.dir, for deployments without PostgreSQL.
+public enum Backend {
+    JDBC,
+    MEMORY,
+    JOURNAL;
+
+    public static Backend fromSystemProperties() {
+        String value = System.getProperty("api.backend", JDBC.name());
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("api.backend must be JDBC, MEMORY or JOURNAL, got: " + value, e);
+        }
+    }
+
+    public boolean usesDatabase() {
+        return this == JDBC;
+    }
+
+    // connectionProvider is only used (and may only be null) when the backend does not use the database.
+    public AgencyRepository agencies(ConnectionProvider connectionProvider) {
+        switch (this) {
+            case JDBC:
+                return new RealEstateAgencyDAO(connectionProvider);
+            case JOURNAL:
+                return new JournalAgencyRepository(journalDir("agency"), journalSnapshotBytes(), MetricsRegistry.getDefault());
+            default:
+                return new InMemoryAgencyRepository();
+        }
+    }
+
+    public RealtorRepository realtors(ConnectionProvider connectionProvider) {
+        switch (this) {
+            case JDBC:
+                return new RealtorDAO(connectionProvider);
+            case JOURNAL:
+                return new JournalRealtorRepository(journalDir("realtor"), journalSnapshotBytes(), MetricsRegistry.getDefault());
+            default:
+                return new InMemoryRealtorRepository();
+        }
+    }
+
+    public PropertyRepository properties(ConnectionProvider connectionProvider) {
+        if (this == JOURNAL) {
+            return new JournalPropertyRepository(journalDir("property"), journalSnapshotBytes(), MetricsRegistry.getDefault());
+        }
+        if (this == MEMORY) {
+            return new InMemoryPropertyRepository();
+        }
+        List<PooledConnectionProvider> shardPools = DatabaseConnection.getPropertyShardProviders();
+        if (shardPools.isEmpty()) {
+            return new PropertyDAO(connectionProvider);
+        }
+        List<PropertyDAO> shards = new ArrayList<>(shardPools.size());
+        for (PooledConnectionProvider pool : shardPools) {
+            shards.add(new PropertyDAO(pool));
+        }
+        ShardedPropertyRepository sharded = new ShardedPropertyRepository(shards,
+                ShardedPropertyRepository.Placement.parse(System.getProperty("db.shardPlacement", "id_range")),
+                Integer.getInteger("db.shardIdRange", 100_000_000));
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).reserveIdRange(sharded.firstId(i), sharded.lastId(i));
+        }
+        return sharded;
+    }
+
+    // one subdirectory per store
+    private static Path journalDir(String store) {
+        return Path.of(System.getProperty("journal.dir", "data/journal"), store);
+    }
+
+    // log growth that triggers a compacting snapshot
+    private static long journalSnapshotBytes() {
+        return Long.getLong("journal.snapshotBytes", 64L * 1024 * 1024);
+    }
+}
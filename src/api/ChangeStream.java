@@ -0,0 +1,236 @@
+package api;
+
+import dto.ChangeEvent;
+import io.javalin.http.sse.SseClient;
+import io.javalin.util.ConcurrencyUtil;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import service.ChangeFeed;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fans ChangeFeed events out to Server-Sent Events subscribers. Each event is serialized once; every
+// subscriber gets a bounded queue drained by a writer thread of its own while it has frames (a virtual
+// thread in VIRTUAL execution mode), so a write never waits on a client and a client with a full TCP window
+// stalls no one else. A subscriber whose queue overflows is sent an "overflow" event and disconnected instead
+// of holding events (and memory) for a client that cannot keep up; it should reconnect and re-read. A write
+// blocked for longer than the write timeout aborts the connection, which frees its thread.
+final class ChangeStream implements ChangeFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStream.class);
+    private static final long WRITE_CHECK_MILLIS = 1_000;
+
+    private final JsonSupport json;
+    private final int bufferSize;
+    private final long writeTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // subscribers with a write in progress, including ones already dropped from subscribers on overflow
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+    // one thread, so subscribers see events in publish order
+    private final ExecutorService fanOut = Executors.newSingleThreadExecutor(daemon("change-stream-fanout"));
+    private final ExecutorService writers;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("change-stream-heartbeat"));
+    private final Counter delivered;
+    private final Counter droppedSlow;
+    private final Counter timedOut;
+
+    // Create after ExecutionMode.apply(), which decides whether writers are virtual threads.
+    ChangeStream(ChangeFeed feed, JsonSupport json, int bufferSize, long writeTimeoutMillis, long heartbeatMillis, MetricsRegistry metrics) {
+        this.json = json;
+        this.bufferSize = bufferSize;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        // a cached pool grows a thread per subscriber that is writing at the moment and retires idle ones
+        this.writers = ConcurrencyUtil.INSTANCE.getUseLoom()
+                ? ConcurrencyUtil.executorService("change-stream-writer")
+                : Executors.newCachedThreadPool(daemon("change-stream-writer"));
+        this.delivered = metrics.counter("sse_events_delivered_total", "Change events written to SSE subscribers.");
+        this.droppedSlow = metrics.counter("sse_subscribers_dropped_total",
+                "SSE subscribers disconnected because their buffer overflowed.");
+        this.timedOut = metrics.counter("sse_write_timeouts_total",
+                "SSE subscribers disconnected because a write was blocked past sse.writeTimeoutMs.");
+        metrics.gauge("sse_subscribers", "Connected SSE change-stream subscribers.", subscribers::size);
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        heartbeat.scheduleAtFixedRate(this::abortStalledWrites, WRITE_CHECK_MILLIS, WRITE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        feed.subscribe(this);
+    }
+
+    // Called from the SSE handler; entity is "property", "agency" or "realtor".
+    void subscribe(SseClient client, String entity) {
+        Subscriber subscriber = new Subscriber(client, entity);
+        client.onClose(() -> subscribers.remove(subscriber));
+        client.keepAlive();
+        subscribers.add(subscriber);
+        // tells the client it is live; anything it read before this point may already be stale
+        subscriber.enqueue(new Frame("ready", "{}", null));
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (!subscribers.isEmpty()) {
+            fanOut.execute(() -> fanOut(event));
+        }
+    }
+
+    private void fanOut(ChangeEvent event) {
+        Frame frame = null;
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.entity.equals(event.getEntity())) {
+                continue;
+            }
+            if (frame == null) {
+                frame = new Frame(event.getType().name().toLowerCase(Locale.ROOT), json.toJsonString(event, ChangeEvent.class),
+                        Long.toString(event.getSequence()));
+            }
+            subscriber.enqueue(frame);
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(Frame.HEARTBEAT);
+        }
+    }
+
+    private void abortStalledWrites() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : writing) {
+            long started = subscriber.writeStartedNanos;
+            if (started != 0 && now - started > writeTimeoutNanos) {
+                subscriber.abort();
+            }
+        }
+    }
+
+    Map<String, Object> stats() {
+        return Map.of(
+                "subscribers", subscribers.size(),
+                "bufferSize", bufferSize,
+                "writeTimeoutMs", TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos),
+                "delivered", delivered.get(),
+                "droppedSlowConsumers", droppedSlow.get(),
+                "writeTimeouts", timedOut.get());
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static final class Frame {
+        static final Frame HEARTBEAT = new Frame(null, null, null);
+
+        private final String event;
+        private final String data;
+        private final String id;
+
+        private Frame(String event, String data, String id) {
+            this.event = event;
+            this.data = data;
+            this.id = id;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseClient client;
+        private final String entity;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean overflowed;
+        // System.nanoTime() when the write in progress started, 0 between writes
+        private volatile long writeStartedNanos;
+
+        private Subscriber(SseClient client, String entity) {
+            this.client = client;
+            this.entity = entity;
+        }
+
+        private void enqueue(Frame frame) {
+            if (overflowed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                if (frame == Frame.HEARTBEAT) {
+                    // a full queue already keeps the connection busy
+                    return;
+                }
+                overflowed = true;
+                queue.clear();
+                subscribers.remove(this);
+                droppedSlow.increment();
+                logger.info("Dropping slow SSE subscriber {} after {} undelivered events", client.ctx().ip(), bufferSize);
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            writing.add(this);
+            try {
+                Frame frame;
+                while (!client.terminated() && (frame = queue.poll()) != null) {
+                    writeStartedNanos = System.nanoTime();
+                    if (frame == Frame.HEARTBEAT) {
+                        client.sendComment("keep-alive");
+                    } else {
+                        client.sendEvent(frame.event, frame.data, frame.id);
+                        delivered.increment();
+                    }
+                    writeStartedNanos = 0;
+                }
+                if (overflowed && !client.terminated()) {
+                    writeStartedNanos = System.nanoTime();
+                    client.sendEvent("overflow", "{\"reason\":\"slow consumer\"}", null);
+                    client.close();
+                }
+                if (client.terminated()) {
+                    subscribers.remove(this);
+                    queue.clear();
+                }
+            } catch (RuntimeException e) {
+                logger.debug("SSE write failed, dropping subscriber", e);
+                subscribers.remove(this);
+                queue.clear();
+                client.close();
+            } finally {
+                writeStartedNanos = 0;
+                writing.remove(this);
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty() && !client.terminated() && scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        // Closes the connection under a blocked write, which then fails and returns the writer thread.
+        private void abort() {
+            if (writing.remove(this)) {
+                timedOut.increment();
+                subscribers.remove(this);
+                logger.info("Dropping SSE subscriber {}, a write was blocked for over {} ms", client.ctx().ip(),
+                        TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos));
+                Request.getBaseRequest(client.ctx().req()).getHttpChannel().abort(new TimeoutException("SSE write timed out"));
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package api;
+
+import io.javalin.util.ConcurrencyUtil;
+
+// How Jetty runs request handlers. VIRTUAL needs a Java 21 runtime; build with -Pvirtual-threads to target 21.
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    public static ExecutionMode fromSystemProperties() {
+        String value = System.getProperty("server.executionMode", PLATFORM.name());
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("server.executionMode must be PLATFORM or VIRTUAL, got: " + value, e);
+        }
+    }
+
+    // Must run before Javalin.create(), which builds the Jetty thread pool.
+    public void apply() {
+        if (this == VIRTUAL && !ConcurrencyUtil.isLoomAvailable()) {
+            throw new IllegalStateException("Virtual threads require Java 21, running on " + System.getProperty("java.version"));
+        }
+        ConcurrencyUtil.INSTANCE.setUseLoom(this == VIRTUAL);
+    }
+}
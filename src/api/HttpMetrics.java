@@ -0,0 +1,65 @@
+package api;
+
+import io.javalin.http.Context;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-route request timing for the Javalin before/after hooks. Routes are labelled by their
+// registered pattern (GET /api/properties/{id}), never the raw path, so series stay bounded.
+class HttpMetrics {
+
+    private static final String START_ATTRIBUTE = "metrics.startNanos";
+
+    private final MetricsRegistry registry;
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+    HttpMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    void start(Context ctx) {
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    void finish(Context ctx) {
+        Long start = ctx.attribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String method = ctx.method().name();
+        String route = ctx.endpointHandlerPath();
+        RouteMetrics metrics = routes.computeIfAbsent(method + ' ' + route, k -> new RouteMetrics(method, route));
+        metrics.latency.recordNanos(elapsed);
+        metrics.status(ctx.statusCode()).increment();
+    }
+
+    void recordError(Throwable e) {
+        errors.computeIfAbsent(e.getClass(), type -> registry.counter("http_errors_total",
+                "Requests that failed, by exception type.", "exception", type.getSimpleName())).increment();
+    }
+
+    private final class RouteMetrics {
+        private final String method;
+        private final String route;
+        private final Histogram latency;
+        private final Map<Integer, Counter> statuses = new ConcurrentHashMap<>();
+
+        private RouteMetrics(String method, String route) {
+            this.method = method;
+            this.route = route;
+            this.latency = registry.histogram("http_request_seconds",
+                    "Request latency by route.", "method", method, "route", route);
+        }
+
+        private Counter status(int status) {
+            return statuses.computeIfAbsent(status, s -> registry.counter("http_requests_total",
+                    "Completed requests by route and status.", "method", method, "route", route, "status", Integer.toString(s)));
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dto.AgencyRecord;
+import dto.BulkInsertResult;
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.ImportResult;
+import dto.MultiGetResult;
+import dto.PropertyRecord;
+import dto.PropertyStats;
+import dto.RealtorRecord;
+import exceptions.InvalidInputException;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// The one JSON engine of the API (Jackson). Request bodies are parsed straight from the request
+// stream and responses written straight to the response stream, with readers/writers prepared
+// up front for the DTOs. Also installed as Javalin's JsonMapper so nothing else pulls in a second stack.
+public class JsonSupport implements JsonMapper {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper mapper;
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+    // for rows of a streamed array: no flush per row, ArrayWriter flushes once at the end
+    private final Map<Type, ObjectWriter> elementWriters = new ConcurrentHashMap<>();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    public JsonSupport() {
+        this(new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+                        Boolean.getBoolean("json.failOnUnknownProperties")));
+    }
+
+    public JsonSupport(ObjectMapper mapper) {
+        // Javalin owns the response stream; writing a value must not close it.
+        this.mapper = mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        for (Class<?> dto : new Class<?>[]{PropertyRecord.class, AgencyRecord.class, RealtorRecord.class, BulkInsertResult.class, PropertyStats.class, MultiGetResult.class, ImportResult.class, ChangeEvent.class, ChangePage.class}) {
+            readers.put(dto, mapper.readerFor(dto));
+            writers.put(dto, mapper.writerFor(dto));
+            elementWriters.put(dto, mapper.writerFor(dto).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        }
+    }
+
+    private ObjectReader reader(Type type) {
+        return readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t)));
+    }
+
+    private ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        return writer != null ? writer : mapper.writer();
+    }
+
+    private ObjectWriter elementWriter(Class<?> type) {
+        return elementWriters.computeIfAbsent(type, t -> writer(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+    }
+
+    // null for an empty (or all-whitespace) body
+    public <T> T read(Context ctx, Class<T> type) {
+        long start = System.nanoTime();
+        ObjectReader reader = reader(type);
+        try (CountingInputStream in = new CountingInputStream(ctx.bodyInputStream());
+             JsonParser parser = reader.createParser(in)) {
+            try {
+                if (parser.nextToken() == null) {
+                    return null;
+                }
+                return reader.readValue(parser);
+            } finally {
+                recordRead(in.count, start);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads a JSON array or a stream of whitespace/newline separated objects (NDJSON).
+    public <T> void readEach(Context ctx, Class<T> type, Consumer<T> consumer) {
+        long start = System.nanoTime();
+        try (CountingInputStream in = new CountingInputStream(ctx.bodyInputStream());
+             MappingIterator<T> values = reader(type).readValues(in)) {
+            try {
+                while (values.hasNextValue()) {
+                    consumer.accept(values.nextValue());
+                }
+            } finally {
+                recordRead(in.count, start);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Context ctx, Object value) {
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        long start = System.nanoTime();
+        CountingOutputStream out = new CountingOutputStream(ctx.outputStream());
+        try {
+            writer(value.getClass()).writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            recordWrite(out.count, start);
+        }
+    }
+
+    public ArrayWriter arrayWriter(Context ctx) throws IOException {
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        return new ArrayWriter(new CountingOutputStream(ctx.outputStream()), false);
+    }
+
+    // One JSON object per line (application/x-ndjson) instead of an enclosing array.
+    public ArrayWriter ndjsonWriter(Context ctx) throws IOException {
+        ctx.contentType(NDJSON);
+        return new ArrayWriter(new CountingOutputStream(ctx.outputStream()), true);
+    }
+
+    private void recordRead(long bytes, long startNanos) {
+        reads.increment();
+        bytesRead.add(bytes);
+        readNanos.add(System.nanoTime() - startNanos);
+    }
+
+    private void recordWrite(long bytes, long startNanos) {
+        writes.increment();
+        bytesWritten.add(bytes);
+        writeNanos.add(System.nanoTime() - startNanos);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "reads", reads.sum(),
+                "bytesRead", bytesRead.sum(),
+                "readMillis", readNanos.sum() / 1_000_000.0,
+                "writes", writes.sum(),
+                "bytesWritten", bytesWritten.sum(),
+                "writeMillis", writeNanos.sum() / 1_000_000.0);
+    }
+
+    // JsonMapper, used by anything that still goes through ctx.json(...)
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        long start = System.nanoTime();
+        try {
+            String json = writer(obj.getClass()).writeValueAsString(obj);
+            recordWrite(json.length(), start);
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream toJsonStream(Object obj, Type type) {
+        return new ByteArrayInputStream(toJsonString(obj, type).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public <T> T fromJsonString(String json, Type type) {
+        long start = System.nanoTime();
+        try {
+            return reader(type).readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException("Malformed JSON: " + e.getOriginalMessage());
+        } finally {
+            recordRead(json.length(), start);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonStream(InputStream json, Type type) {
+        long start = System.nanoTime();
+        try (CountingInputStream in = new CountingInputStream(json)) {
+            try {
+                return reader(type).readValue(in);
+            } finally {
+                recordRead(in.count, start);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public final class ArrayWriter {
+        private final CountingOutputStream out;
+        private final JsonGenerator generator;
+        private final boolean lines;
+        private final long start = System.nanoTime();
+
+        private ArrayWriter(CountingOutputStream out, boolean lines) throws IOException {
+            this.out = out;
+            this.lines = lines;
+            this.generator = mapper.getFactory().createGenerator(out);
+            if (lines) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+        }
+
+        public void write(Object value) throws IOException {
+            elementWriter(value.getClass()).writeValue(generator, value);
+            if (lines) {
+                generator.writeRaw('\n');
+            }
+        }
+
+        public void finish() throws IOException {
+            if (!lines) {
+                generator.writeEndArray();
+            }
+            close();
+        }
+
+        public void close() throws IOException {
+            generator.flush();
+            recordWrite(out.count, start);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
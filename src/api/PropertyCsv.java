@@ -0,0 +1,142 @@
+package api;
+
+import dto.PropertyRecord;
+import exceptions.InvalidInputException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+// RFC 4180 style CSV for properties: "id,city,price" on export; on import a header naming city and price
+// (id, if present, is ignored) or, without a header, city,price per line. Fields may be quoted with "" as
+// the escape; quoted fields cannot span lines.
+final class PropertyCsv {
+
+    static final String CONTENT_TYPE = "text/csv";
+
+    private PropertyCsv() {
+    }
+
+    static void writeHeader(Writer out) throws IOException {
+        out.write("id,city,price\n");
+    }
+
+    static void writeRow(Writer out, PropertyRecord record) throws IOException {
+        out.write(Integer.toString(record.getId()));
+        out.write(',');
+        writeField(out, record.getCity());
+        out.write(',');
+        double price = record.getPrice();
+        // whole prices without the ".0" and never in exponent form
+        out.write(price == Math.rint(price) && Math.abs(price) < 1e15 ? Long.toString((long) price) : Double.toString(price));
+        out.write('\n');
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    // Parses line by line, so the body is never held in memory. Malformed lines abort with the line number.
+    static void readEach(InputStream in, Consumer<PropertyRecord> consumer) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            int cityColumn = 0;
+            int priceColumn = 1;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = split(line, lineNumber);
+                if (lineNumber == 1 && isHeader(fields)) {
+                    cityColumn = column(fields, "city");
+                    priceColumn = column(fields, "price");
+                    continue;
+                }
+                if (fields.size() <= Math.max(cityColumn, priceColumn)) {
+                    throw new InvalidInputException("Line " + lineNumber + ": expected city and price.");
+                }
+                String price = fields.get(priceColumn).trim();
+                try {
+                    consumer.accept(new PropertyRecord(fields.get(cityColumn), price.isEmpty() ? 0.0 : Double.parseDouble(price)));
+                } catch (NumberFormatException e) {
+                    throw new InvalidInputException("Line " + lineNumber + ": invalid price '" + price + "'.");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        for (String field : fields) {
+            if (field.trim().equalsIgnoreCase("price")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().toLowerCase(Locale.ROOT).equals(name)) {
+                return i;
+            }
+        }
+        throw new InvalidInputException("CSV header must name a '" + name + "' column.");
+    }
+
+    private static List<String> split(String line, int lineNumber) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidInputException("Line " + lineNumber + ": unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
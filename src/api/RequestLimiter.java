@@ -0,0 +1,52 @@
+package api;
+
+import exceptions.ServiceUnavailableException;
+import io.javalin.http.Context;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caps concurrently executing requests at the connection pool size. With virtual threads the
+// server accepts thousands of requests; the excess waits here cheaply instead of inside the pool.
+public class RequestLimiter {
+    private static final String PERMIT_ATTRIBUTE = "requestLimiter.permit";
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long queueTimeoutMillis;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RequestLimiter(int maxConcurrent, long queueTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    public void acquire(Context ctx) throws InterruptedException {
+        if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Server is at capacity, try again later.");
+        }
+        admitted.increment();
+        ctx.attribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    public void release(Context ctx) {
+        if (ctx.attribute(PERMIT_ATTRIBUTE) != null) {
+            ctx.attribute(PERMIT_ATTRIBUTE, null);
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "maxConcurrent", maxConcurrent,
+                "inFlight", maxConcurrent - permits.availablePermits(),
+                "queued", permits.getQueueLength(),
+                "admitted", admitted.sum(),
+                "rejected", rejected.sum());
+    }
+}
@@ -1,39 +1,137 @@
 package api;
 
-import com.google.gson.Gson;
+import config.ConnectionProvider;
+import config.DatabaseConnection;
+import config.PooledConnectionProvider;
+import config.RoutingConnectionProvider;
 import dto.AgencyRecord;
+import dto.BulkInsertResult;
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.ImportResult;
 import dto.PropertyRecord;
+import dto.PropertyStats;
 import dto.RealtorRecord;
 import exceptions.DataAccessException;
+import exceptions.GoneException;
 import exceptions.InvalidInputException;
 import exceptions.NotFoundException;
+import exceptions.ServiceUnavailableException;
+import exceptions.TooManyRequestsException;
 import io.javalin.Javalin;
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
 import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import repository.jdbc.PropertyDAO;
-import repository.jdbc.RealEstateAgencyDAO;
-import repository.jdbc.RealtorDAO;
+import repository.PropertyRepository;
+import repository.cache.CachingAgencyRepository;
+import repository.cache.CachingPropertyRepository;
+import repository.cache.CachingRealtorRepository;
+import repository.cache.EntityCache;
+import repository.jdbc.DaoStats;
+import repository.jdbc.ChangeLogCompactor;
+import repository.jdbc.PgChangeListener;
+import repository.jdbc.SchemaBootstrap;
+import repository.shard.ShardedPropertyRepository;
 import service.AgencyService;
+import service.ChangeFeed;
 import service.DefaultAgencyService;
 import service.DefaultPropertyService;
 import service.DefaultRealtorService;
 import service.PropertyService;
+import service.PropertyWriteBehind;
 import service.RealtorService;
+import service.TableVersion;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class RestApiServer {
     
     private static final Logger logger = LoggerFactory.getLogger(RestApiServer.class);
-    private static final Gson gson = new Gson();
-    private static final AgencyService agencyService = new DefaultAgencyService(new RealEstateAgencyDAO());
-    private static final RealtorService realtorService = new DefaultRealtorService(new RealtorDAO());
-    private static final PropertyService propertyService = new DefaultPropertyService(new PropertyDAO());
+    private static final JsonSupport json = new JsonSupport();
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final String PRIMARY_UNTIL_COOKIE = "read-primary-until";
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private static final HttpMetrics httpMetrics = new HttpMetrics(metrics);
+    private static final Backend backend = Backend.fromSystemProperties();
+    // null when the backend does not use the database
+    private static final PooledConnectionProvider connectionProvider =
+            backend.usesDatabase() ? DatabaseConnection.getProvider() : null;
+    // set when -Ddb.replicas lists read replicas; the repositories then read through it
+    private static final RoutingConnectionProvider readRouting =
+            connectionProvider != null ? DatabaseConnection.getRoutingProvider() : null;
+    private static final ConnectionProvider repositoryConnections = readRouting != null ? readRouting : connectionProvider;
+    private static final CachingAgencyRepository agencyRepository =
+            new CachingAgencyRepository(backend.agencies(repositoryConnections), newCache("agency"));
+    private static final CachingRealtorRepository realtorRepository =
+            new CachingRealtorRepository(backend.realtors(repositoryConnections), newCache("realtor"));
+    private static final PropertyRepository propertyStore = backend.properties(repositoryConnections);
+    private static final CachingPropertyRepository propertyRepository =
+            new CachingPropertyRepository(propertyStore, newCache("property"));
+    private static final ChangeFeed changeFeed = new ChangeFeed();
+    // "local": the services publish their own writes; "postgres": triggers + LISTEN see every writer
+    private static final boolean changesFromPostgres = changesFromPostgres();
+    private static final ChangeFeed serviceChanges = changesFromPostgres ? null : changeFeed;
+    private static final AgencyService agencyService = new DefaultAgencyService(agencyRepository, serviceChanges);
+    private static final RealtorService realtorService = new DefaultRealtorService(realtorRepository, serviceChanges);
+    private static final PropertyWriteBehind propertyWriteBehind =
+            PropertyWriteBehind.fromSystemProperties(propertyRepository, metrics);
+    private static final PropertyService propertyService =
+            new DefaultPropertyService(propertyRepository, propertyWriteBehind, serviceChanges);
 
     public static void main(String[] args) {
+        if (connectionProvider != null) {
+            SchemaBootstrap.ensure(connectionProvider);
+        }
+        logger.info("Using the {} backend", backend);
+        if (connectionProvider != null) {
+            // with property shards, property rows are written to the shard databases, not to db.url
+            List<PooledConnectionProvider> propertyShards = DatabaseConnection.getPropertyShardProviders();
+            List<String> mainEntities = propertyShards.isEmpty() ? PgChangeListener.ENTITIES : List.of("agency", "realtor");
+            startChangeLogCompactor(connectionProvider, mainEntities);
+            for (PooledConnectionProvider shard : propertyShards) {
+                startChangeLogCompactor(shard, List.of("property"));
+            }
+            if (changesFromPostgres) {
+                startChangeListener(connectionProvider, mainEntities);
+                for (PooledConnectionProvider shard : propertyShards) {
+                    startChangeListener(shard, List.of("property"));
+                }
+            }
+        }
+        ExecutionMode executionMode = ExecutionMode.fromSystemProperties();
+        executionMode.apply();
+
+        ChangeStream changeStream = new ChangeStream(changeFeed, json,
+                Integer.getInteger("sse.bufferSize", 1024),
+                Long.getLong("sse.writeTimeoutMs", 10_000L),
+                Long.getLong("sse.heartbeatMs", 15_000L),
+                metrics);
+
         Javalin app = Javalin.create(config -> {
+            config.jsonMapper(json);
+            config.compression.custom(compressionStrategy());
             // Note: CORS is configured for development/testing purposes
             // In production, restrict to specific trusted origins
             config.plugins.enableCors(cors -> {
@@ -43,11 +141,94 @@ public class RestApiServer {
             });
         }).start(7070);
 
+        if (propertyWriteBehind != null) {
+            // Drain queued property writes before the JVM exits.
+            Runtime.getRuntime().addShutdownHook(new Thread(propertyWriteBehind::close, "property-write-behind-drain"));
+        }
+
+        // Registered first so the timing includes any time spent queued in the limiter below.
+        app.before(httpMetrics::start);
+        app.after(httpMetrics::finish);
+        if (connectionProvider != null) {
+            registerPoolMetrics();
+        }
+
+        // Virtual threads lift the thread ceiling; the limiter keeps DB-bound work at the pool size.
+        RequestLimiter requestLimiter = null;
+        if (executionMode == ExecutionMode.VIRTUAL && connectionProvider != null) {
+            RequestLimiter limiter = new RequestLimiter(connectionProvider.getMaxSize(),
+                    Long.getLong("server.queueTimeoutMs", 30_000L));
+            app.before("/api/*", ctx -> {
+                // change streams stay open indefinitely and hold no connection, so they take no permit
+                if (!ctx.path().startsWith("/api/admin/") && !ctx.path().endsWith("/changes/stream")) {
+                    limiter.acquire(ctx);
+                }
+            });
+            app.after("/api/*", limiter::release);
+            requestLimiter = limiter;
+        }
+        if (readRouting != null) {
+            // validators and the stats snapshot are not tied to a version until replicas have caught up to it
+            long staleReadMillis = readRouting.getStaleReadMillis();
+            // a shorter window would send a client back to a replica that may not have its write yet
+            long stickyMillis = Long.getLong("db.replica.stickyMs", staleReadMillis);
+            if (stickyMillis < staleReadMillis) {
+                throw new IllegalArgumentException("db.replica.stickyMs (" + stickyMillis + ") must be at least"
+                        + " db.replica.maxLagMs + db.replica.checkMs (" + staleReadMillis + ")");
+            }
+            app.before("/api/*", ctx -> {
+                // a client that wrote in the last stickyMs reads from the primary, so it sees its own writes
+                if (isWrite(ctx.method())) {
+                    ctx.cookie(PRIMARY_UNTIL_COOKIE, Long.toString(System.currentTimeMillis() + stickyMillis),
+                            (int) Math.max(1, (stickyMillis + 999) / 1000));
+                    readRouting.pinToPrimary();
+                } else if (isPrimaryPinned(ctx.cookie(PRIMARY_UNTIL_COOKIE))) {
+                    readRouting.pinToPrimary();
+                }
+            });
+            app.after("/api/*", ctx -> readRouting.unpin());
+            agencyService.version().setStaleReadMillis(staleReadMillis);
+            realtorService.version().setStaleReadMillis(staleReadMillis);
+            propertyService.version().setStaleReadMillis(staleReadMillis);
+            registerReplicaMetrics();
+        }
+        app.exception(ServiceUnavailableException.class, (e, ctx) -> {
+            httpMetrics.recordError(e);
+            json.write(ctx.status(503), Map.of("success", false, "error", e.getMessage()));
+        });
+
         // Agency Endpoints
         app.get("/api/agencies", ctx -> {
             try {
-                List<AgencyRecord> agencies = agencyService.listAgencies();
-                ctx.json(agencies);
+                if (notModified(ctx, agencyService.version())) {
+                    return;
+                }
+                if (ctx.queryParam("ids") != null) {
+                    json.write(ctx, agencyService.getAgenciesByIds(idsQueryParam(ctx)));
+                } else if (isPageRequest(ctx)) {
+                    int limit = intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE);
+                    List<AgencyRecord> agencies = agencyService.listAgencies(intQueryParam(ctx, "after", 0), limit);
+                    if (agencies.size() == limit) {
+                        ctx.header("X-Next-After", String.valueOf(agencies.get(limit - 1).getId()));
+                    }
+                    json.write(ctx, agencies);
+                } else {
+                    streamJsonArray(ctx, agencyService::forEachAgency);
+                }
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid pagination parameters"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/agencies/changes", ctx -> {
+            try {
+                ctx.header("Cache-Control", "no-store");
+                json.write(ctx, agencyService.getAgencyChanges(stringQueryParam(ctx, "since", ChangePage.START),
+                        intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE)));
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid change cursor parameters"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -55,11 +236,14 @@ public class RestApiServer {
 
         app.get("/api/agencies/{id}", ctx -> {
             try {
+                if (notModified(ctx, agencyService.version())) {
+                    return;
+                }
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 AgencyRecord agency = agencyService.getAgency(id);
-                ctx.json(agency);
+                json.write(ctx, agency);
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -67,9 +251,9 @@ public class RestApiServer {
 
         app.post("/api/agencies", ctx -> {
             try {
-                AgencyRecord agency = gson.fromJson(ctx.body(), AgencyRecord.class);
+                AgencyRecord agency = json.read(ctx, AgencyRecord.class);
                 agencyService.createAgency(agency);
-                ctx.status(201).json(Map.of("success", true, "message", "Agency created successfully"));
+                json.write(ctx.status(201), Map.of("success", true, "message", "Agency created successfully"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -78,12 +262,12 @@ public class RestApiServer {
         app.put("/api/agencies/{id}", ctx -> {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
-                AgencyRecord agency = gson.fromJson(ctx.body(), AgencyRecord.class);
+                AgencyRecord agency = json.read(ctx, AgencyRecord.class);
 
                 agencyService.updateAgency(id, agency);
-                ctx.json(Map.of("success", true, "message", "Agency updated successfully"));
+                json.write(ctx, Map.of("success", true, "message", "Agency updated successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -93,9 +277,9 @@ public class RestApiServer {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 agencyService.deleteAgency(id);
-                ctx.json(Map.of("success", true, "message", "Agency deleted successfully"));
+                json.write(ctx, Map.of("success", true, "message", "Agency deleted successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -104,8 +288,35 @@ public class RestApiServer {
         // Realtor Endpoints
         app.get("/api/realtors", ctx -> {
             try {
-                List<RealtorRecord> realtors = realtorService.listRealtors();
-                ctx.json(realtors);
+                if (notModified(ctx, realtorService.version())) {
+                    return;
+                }
+                if (ctx.queryParam("ids") != null) {
+                    json.write(ctx, realtorService.getRealtorsByIds(idsQueryParam(ctx)));
+                } else if (isPageRequest(ctx)) {
+                    int limit = intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE);
+                    List<RealtorRecord> realtors = realtorService.listRealtors(intQueryParam(ctx, "after", 0), limit);
+                    if (realtors.size() == limit) {
+                        ctx.header("X-Next-After", String.valueOf(realtors.get(limit - 1).getId()));
+                    }
+                    json.write(ctx, realtors);
+                } else {
+                    streamJsonArray(ctx, realtorService::forEachRealtor);
+                }
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid pagination parameters"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/realtors/changes", ctx -> {
+            try {
+                ctx.header("Cache-Control", "no-store");
+                json.write(ctx, realtorService.getRealtorChanges(stringQueryParam(ctx, "since", ChangePage.START),
+                        intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE)));
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid change cursor parameters"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -113,11 +324,14 @@ public class RestApiServer {
 
         app.get("/api/realtors/{id}", ctx -> {
             try {
+                if (notModified(ctx, realtorService.version())) {
+                    return;
+                }
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 RealtorRecord realtor = realtorService.getRealtor(id);
-                ctx.json(realtor);
+                json.write(ctx, realtor);
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -125,9 +339,9 @@ public class RestApiServer {
 
         app.post("/api/realtors", ctx -> {
             try {
-                RealtorRecord realtor = gson.fromJson(ctx.body(), RealtorRecord.class);
+                RealtorRecord realtor = json.read(ctx, RealtorRecord.class);
                 realtorService.createRealtor(realtor);
-                ctx.status(201).json(Map.of("success", true, "message", "Realtor created successfully"));
+                json.write(ctx.status(201), Map.of("success", true, "message", "Realtor created successfully"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -136,11 +350,11 @@ public class RestApiServer {
         app.put("/api/realtors/{id}", ctx -> {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
-                RealtorRecord realtor = gson.fromJson(ctx.body(), RealtorRecord.class);
+                RealtorRecord realtor = json.read(ctx, RealtorRecord.class);
                 realtorService.updateRealtor(id, realtor);
-                ctx.json(Map.of("success", true, "message", "Realtor updated successfully"));
+                json.write(ctx, Map.of("success", true, "message", "Realtor updated successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -150,9 +364,9 @@ public class RestApiServer {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 realtorService.deleteRealtor(id);
-                ctx.json(Map.of("success", true, "message", "Realtor deleted successfully"));
+                json.write(ctx, Map.of("success", true, "message", "Realtor deleted successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -161,8 +375,103 @@ public class RestApiServer {
         // Property Endpoints
         app.get("/api/properties", ctx -> {
             try {
-                List<PropertyRecord> properties = propertyService.listProperties();
-                ctx.json(properties);
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
+                if (ctx.queryParam("ids") != null) {
+                    json.write(ctx, propertyService.getPropertiesByIds(idsQueryParam(ctx)));
+                } else if (isPageRequest(ctx)) {
+                    int limit = intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE);
+                    List<PropertyRecord> properties = propertyService.listProperties(intQueryParam(ctx, "after", 0), limit);
+                    if (properties.size() == limit) {
+                        ctx.header("X-Next-After", String.valueOf(properties.get(limit - 1).getId()));
+                    }
+                    json.write(ctx, properties);
+                } else {
+                    streamJsonArray(ctx, propertyService::forEachProperty);
+                }
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid pagination parameters"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/properties/search", ctx -> {
+            try {
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
+                List<PropertyRecord> properties = propertyService.searchProperties(
+                        ctx.queryParam("city"),
+                        doubleQueryParam(ctx, "minPrice"),
+                        doubleQueryParam(ctx, "maxPrice"),
+                        ctx.queryParam("sort"));
+                json.write(ctx, properties);
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid price format"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/properties/export", ctx -> {
+            try {
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
+                String format = ctx.queryParam("format") == null ? "ndjson" : ctx.queryParam("format");
+                RowStream<PropertyRecord> stream;
+                if (format.equals("csv")) {
+                    stream = new CsvRowStream(ctx);
+                } else if (format.equals("ndjson")) {
+                    stream = new JsonRowStream<>(ctx, true);
+                } else {
+                    throw new InvalidInputException("Format must be csv or ndjson.");
+                }
+                ctx.header("Content-Disposition", "attachment; filename=\"properties." + format + "\"");
+                streamRows(propertyService::forEachProperty, stream);
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/properties/top", ctx -> {
+            try {
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
+                List<PropertyRecord> properties = propertyService.topProperties(
+                        intQueryParam(ctx, "k", 10), ctx.queryParam("order"), ctx.queryParam("city"));
+                json.write(ctx, properties);
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid k parameter"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/properties/stats", ctx -> {
+            try {
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
+                PropertyStats stats = propertyService.getPropertyStats(intQueryParam(ctx, "buckets", 10));
+                json.write(ctx, stats);
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid buckets parameter"));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.get("/api/properties/changes", ctx -> {
+            try {
+                ctx.header("Cache-Control", "no-store");
+                json.write(ctx, propertyService.getPropertyChanges(stringQueryParam(ctx, "since", ChangePage.START),
+                        intQueryParam(ctx, "limit", DEFAULT_PAGE_SIZE)));
+            } catch (NumberFormatException e) {
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid change cursor parameters"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -170,11 +479,14 @@ public class RestApiServer {
 
         app.get("/api/properties/{id}", ctx -> {
             try {
+                if (notModified(ctx, propertyService.version())) {
+                    return;
+                }
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 PropertyRecord property = propertyService.getProperty(id);
-                ctx.json(property);
+                json.write(ctx, property);
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -182,9 +494,40 @@ public class RestApiServer {
 
         app.post("/api/properties", ctx -> {
             try {
-                PropertyRecord property = gson.fromJson(ctx.body(), PropertyRecord.class);
-                propertyService.createProperty(property);
-                ctx.status(201).json(Map.of("success", true, "message", "Property created successfully"));
+                PropertyRecord property = json.read(ctx, PropertyRecord.class);
+                int id = propertyService.createProperty(property);
+                if (propertyService.isWriteQueued()) {
+                    json.write(ctx.status(202), Map.of("success", true, "message", "Property accepted for creation"));
+                    return;
+                }
+                json.write(ctx.status(201), Map.of("success", true, "message", "Property created successfully", "id", id));
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        // Streams the body (CSV or NDJSON) into a COPY; the body is never held in memory.
+        app.post("/api/properties/import", ctx -> {
+            try {
+                boolean csv = isCsvBody(ctx);
+                ImportResult result = propertyService.importProperties(sink -> {
+                    if (csv) {
+                        PropertyCsv.readEach(ctx.bodyInputStream(), sink);
+                    } else {
+                        json.readEach(ctx, PropertyRecord.class, sink);
+                    }
+                });
+                json.write(ctx.status(201), result);
+            } catch (RuntimeException e) {
+                handleError(ctx, e);
+            }
+        });
+
+        app.post("/api/properties/bulk", ctx -> {
+            try {
+                List<PropertyRecord> properties = readBulkProperties(ctx);
+                BulkInsertResult result = propertyService.createProperties(properties);
+                json.write(ctx.status(result.getInserted() > 0 ? 201 : 400), result);
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -193,11 +536,15 @@ public class RestApiServer {
         app.put("/api/properties/{id}", ctx -> {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
-                PropertyRecord property = gson.fromJson(ctx.body(), PropertyRecord.class);
+                PropertyRecord property = json.read(ctx, PropertyRecord.class);
                 propertyService.updateProperty(id, property);
-                ctx.json(Map.of("success", true, "message", "Property updated successfully"));
+                if (propertyService.isWriteQueued()) {
+                    json.write(ctx.status(202), Map.of("success", true, "message", "Property update accepted"));
+                    return;
+                }
+                json.write(ctx, Map.of("success", true, "message", "Property updated successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
@@ -207,32 +554,461 @@ public class RestApiServer {
             try {
                 int id = Integer.parseInt(ctx.pathParam("id"));
                 propertyService.deleteProperty(id);
-                ctx.json(Map.of("success", true, "message", "Property deleted successfully"));
+                if (propertyService.isWriteQueued()) {
+                    json.write(ctx.status(202), Map.of("success", true, "message", "Property deletion accepted"));
+                    return;
+                }
+                json.write(ctx, Map.of("success", true, "message", "Property deleted successfully"));
             } catch (NumberFormatException e) {
-                ctx.status(400).json(Map.of("success", false, "error", "Invalid ID format"));
+                json.write(ctx.status(400), Map.of("success", false, "error", "Invalid ID format"));
             } catch (RuntimeException e) {
                 handleError(ctx, e);
             }
         });
 
-        System.out.println("REST API Server started on http://localhost:7070");
+        // Change streams (Server-Sent Events): one event per insert, update or delete
+        app.sse("/api/agencies/changes/stream", client -> changeStream.subscribe(client, "agency"));
+        app.sse("/api/realtors/changes/stream", client -> changeStream.subscribe(client, "realtor"));
+        app.sse("/api/properties/changes/stream", client -> changeStream.subscribe(client, "property"));
+
+        // Admin Endpoints
+        app.get("/api/admin/pool", ctx -> {
+            if (connectionProvider == null) {
+                json.write(ctx.status(404), Map.of("success", false, "error", "No connection pool with the " + backend + " backend"));
+                return;
+            }
+            json.write(ctx, connectionProvider.stats());
+        });
+        app.get("/api/admin/replicas", ctx -> {
+            if (readRouting == null) {
+                json.write(ctx.status(404), Map.of("success", false, "error", "No read replicas configured (-Ddb.replicas)"));
+                return;
+            }
+            json.write(ctx, readRouting.stats());
+        });
+        app.get("/api/admin/shards", ctx -> {
+            if (!(propertyStore instanceof ShardedPropertyRepository)) {
+                json.write(ctx.status(404), Map.of("success", false, "error", "Properties are not sharded (-Ddb.propertyShards)"));
+                return;
+            }
+            json.write(ctx, ((ShardedPropertyRepository) propertyStore).stats());
+        });
+        app.get("/api/admin/dao", ctx -> json.write(ctx, DaoStats.all()));
+        app.get("/api/admin/json", ctx -> json.write(ctx, json.stats()));
+        RequestLimiter limiterForStats = requestLimiter;
+        app.get("/api/admin/execution", ctx -> json.write(ctx, Map.of(
+                "mode", executionMode.name(),
+                "limiter", limiterForStats == null ? Map.of() : limiterForStats.stats())));
+        app.get("/api/admin/changes", ctx -> json.write(ctx, Map.of(
+                "source", changesFromPostgres ? "postgres" : "local",
+                "published", changeFeed.getPublished(),
+                "lastSequence", changeFeed.getLastSequence(),
+                "stream", changeStream.stats())));
+        app.get("/api/admin/cache", ctx -> json.write(ctx, List.of(
+                agencyRepository.stats(), realtorRepository.stats(), propertyRepository.stats())));
+
+        app.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(metrics.scrape()));
+
+        System.out.println("REST API Server started on http://localhost:7070 (" + executionMode + " threads)");
+    }
+
+    private static CompressionStrategy compressionStrategy() {
+        String mode = System.getProperty("server.compression", "gzip");
+        CompressionStrategy strategy;
+        switch (mode) {
+            case "none":
+                return CompressionStrategy.NONE;
+            case "gzip":
+                strategy = new CompressionStrategy(null, new Gzip(6));
+                break;
+            case "brotli":
+                // Needs brotli4j on the classpath (mvn -Pbrotli); gzip stays as the fallback encoding.
+                strategy = new CompressionStrategy(new Brotli(4), new Gzip(6));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown server.compression: " + mode + " (use gzip, brotli or none)");
+        }
+        strategy.setMinSizeForCompression(Integer.getInteger("server.compressionMinBytes", 1024));
+        return strategy;
+    }
+
+    // Sets the validators for the table's current version and answers 304 when the client's copy is
+    // still current. Called before the query runs, so a concurrent write can only make the tag stale-old.
+    // Right after a write the query may be answered by a replica that has not replayed it, so no validators
+    // are sent until the version has settled; otherwise old rows could be revalidated under the new tag.
+    private static boolean notModified(Context ctx, TableVersion version) {
+        if (!version.isSettled()) {
+            ctx.header("Cache-Control", "no-store");
+            return false;
+        }
+        String etag = version.etag();
+        long lastModified = version.getLastModified() / 1000 * 1000;
+        ctx.header("ETag", etag);
+        ctx.header("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModified).atZone(ZoneOffset.UTC)));
+        ctx.header("Cache-Control", "no-cache");
+        ctx.header("Vary", "Accept-Encoding");
+
+        String ifNoneMatch = ctx.header("If-None-Match");
+        boolean current;
+        if (ifNoneMatch != null) {
+            current = etagMatches(ifNoneMatch, etag);
+        } else {
+            Long since = httpDate(ctx.header("If-Modified-Since"));
+            current = since != null && lastModified <= since;
+        }
+        if (current) {
+            ctx.status(304);
+        }
+        return current;
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        String opaque = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long httpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, HTTP_DATE).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static void registerPoolMetrics() {
+        metrics.gauge("db_pool_connections", "Pooled connections by state.",
+                () -> connectionProvider.stats().getActiveConnections(), "state", "active");
+        metrics.gauge("db_pool_connections", "Pooled connections by state.",
+                () -> connectionProvider.stats().getIdleConnections(), "state", "idle");
+        metrics.gauge("db_pool_waiting", "Threads waiting for a pooled connection.",
+                () -> connectionProvider.stats().getWaitingThreads());
+        metrics.counter("db_pool_acquire_timeouts_total", "Connection requests that timed out.",
+                () -> connectionProvider.stats().getAcquireTimeouts());
+        metrics.counter("db_statement_cache_requests_total", "Prepared statement requests by statement cache result.",
+                () -> connectionProvider.stats().getStatementCacheHits(), "result", "hit");
+        metrics.counter("db_statement_cache_requests_total", "Prepared statement requests by statement cache result.",
+                () -> connectionProvider.stats().getStatementCacheMisses(), "result", "miss");
+        metrics.counter("db_statement_cache_evictions_total", "Cached prepared statements closed to make room.",
+                () -> connectionProvider.stats().getStatementCacheEvictions());
+    }
+
+    private static void registerReplicaMetrics() {
+        metrics.counter("db_read_routing_total", "Read connections handed out, by target.",
+                readRouting::getReplicaReads, "target", "replica");
+        metrics.counter("db_read_routing_total", "Read connections handed out, by target.",
+                readRouting::getPinnedReads, "target", "primary_pinned");
+        metrics.counter("db_read_routing_total", "Read connections handed out, by target.",
+                readRouting::getFallbackReads, "target", "primary_fallback");
+    }
+
+    private static boolean isWrite(HandlerType method) {
+        return method == HandlerType.POST || method == HandlerType.PUT || method == HandlerType.DELETE
+                || method == HandlerType.PATCH;
+    }
+
+    private static boolean isPrimaryPinned(String primaryUntil) {
+        if (primaryUntil == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(primaryUntil) > System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Accepts a JSON array or NDJSON (one object per line), parsed directly from the request stream.
+    private static List<PropertyRecord> readBulkProperties(Context ctx) {
+        List<PropertyRecord> properties = new ArrayList<>();
+        json.readEach(ctx, PropertyRecord.class, properties::add);
+        return properties;
+    }
+
+    private static void startChangeListener(PooledConnectionProvider provider, List<String> entities) {
+        PgChangeListener listener = new PgChangeListener(provider, (entity, operation, id) -> {
+            ChangeEvent.Type type = ChangeEvent.Type.valueOf(operation.toUpperCase(Locale.ROOT));
+            applyExternalChange(entity, type, id);
+            changeFeed.publish(entity, type, id, null);
+        }, entities);
+        listener.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(listener::close, "pg-change-listener-stop"));
+    }
+
+    private static void startChangeLogCompactor(PooledConnectionProvider provider, List<String> entities) {
+        ChangeLogCompactor compactor = new ChangeLogCompactor(provider, entities,
+                Integer.getInteger("changes.maxDeletes", 100_000),
+                Long.getLong("changes.compactIntervalMs", 60_000L));
+        compactor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(compactor::close, "change-log-compactor-stop"));
+    }
+
+    // Another server sharing the database (or direct SQL) changed a row: the entity cache, the validators and
+    // the property index follow it, so no server serves that row from its own state until the cache TTL runs
+    // out. The listener thread reads from the primary, where the change is already visible.
+    private static void applyExternalChange(String entity, ChangeEvent.Type type, int id) {
+        if (readRouting != null) {
+            readRouting.pinToPrimary();
+        }
+        try {
+            switch (entity) {
+                case "agency":
+                    if (type == ChangeEvent.Type.RELOAD) {
+                        agencyRepository.evictAll();
+                    } else {
+                        agencyRepository.evict(id);
+                    }
+                    agencyService.applyExternalChange(type, id);
+                    break;
+                case "realtor":
+                    if (type == ChangeEvent.Type.RELOAD) {
+                        realtorRepository.evictAll();
+                    } else {
+                        realtorRepository.evict(id);
+                    }
+                    realtorService.applyExternalChange(type, id);
+                    break;
+                default:
+                    if (type == ChangeEvent.Type.RELOAD) {
+                        propertyRepository.evictAll();
+                    } else {
+                        propertyRepository.evict(id);
+                    }
+                    propertyService.applyExternalChange(type, id);
+            }
+        } catch (RuntimeException e) {
+            // the event is still published; the cache entry expires after cache.ttlMs at the latest
+            logger.warn("Could not apply {} {} {} to the local caches", entity, type, id, e);
+        } finally {
+            if (readRouting != null) {
+                readRouting.unpin();
+            }
+        }
+    }
+
+    private static boolean changesFromPostgres() {
+        String source = System.getProperty("changes.source", "local");
+        switch (source) {
+            case "local":
+                return false;
+            case "postgres":
+                if (!backend.usesDatabase()) {
+                    throw new IllegalArgumentException("changes.source=postgres needs the JDBC backend");
+                }
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown changes.source: " + source + " (use local or postgres)");
+        }
+    }
+
+    private static <V> EntityCache<V> newCache(String name) {
+        return new EntityCache<>(name,
+                Integer.getInteger("cache.maxSize", 10_000),
+                Long.getLong("cache.ttlMs", 60_000L),
+                Long.getLong("cache.negativeTtlMs", 5_000L),
+                readRouting != null ? readRouting.getStaleReadMillis() : 0);
+    }
+
+    private static boolean isPageRequest(Context ctx) {
+        return ctx.queryParam("after") != null || ctx.queryParam("limit") != null;
+    }
+
+    private static int intQueryParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String stringQueryParam(Context ctx, String name, String defaultValue) {
+        String value = ctx.queryParam(name);
+        return value == null ? defaultValue : value;
+    }
+
+    // ?format=csv|ndjson wins; otherwise the Content-Type decides, defaulting to NDJSON.
+    private static boolean isCsvBody(Context ctx) {
+        String format = ctx.queryParam("format");
+        if (format != null) {
+            if (!format.equals("csv") && !format.equals("ndjson")) {
+                throw new InvalidInputException("Format must be csv or ndjson.");
+            }
+            return format.equals("csv");
+        }
+        String contentType = ctx.contentType();
+        return contentType != null && contentType.startsWith(PropertyCsv.CONTENT_TYPE);
+    }
+
+    // ids=1,2,3 (blank entries ignored)
+    private static int[] idsQueryParam(Context ctx) {
+        String[] parts = ctx.queryParam("ids").split(",");
+        int[] ids = new int[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            if (!part.isBlank()) {
+                try {
+                    ids[n++] = Integer.parseInt(part.trim());
+                } catch (NumberFormatException e) {
+                    throw new InvalidInputException("Invalid id in ids: '" + part.trim() + "'.");
+                }
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private static Double doubleQueryParam(Context ctx, String name) {
+        String value = ctx.queryParam(name);
+        return value == null || value.isBlank() ? null : Double.valueOf(value);
+    }
+
+    // Writes rows as they come off the JDBC cursor so memory does not grow with the table.
+    private static <T> void streamJsonArray(Context ctx, Consumer<Consumer<T>> source) throws IOException {
+        streamRows(source, new JsonRowStream<>(ctx, false));
+    }
+
+    private static <T> void streamRows(Consumer<Consumer<T>> source, RowStream<T> stream) throws IOException {
+        try {
+            source.accept(stream);
+            stream.finish();
+        } catch (RuntimeException e) {
+            if (!stream.started) {
+                throw e;
+            }
+            logger.error("Streaming response aborted: {}", e.getMessage(), e);
+            stream.abort();
+        }
+    }
+
+    private abstract static class RowStream<T> implements Consumer<T> {
+        protected final Context ctx;
+        private boolean started;
+
+        private RowStream(Context ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void accept(T item) {
+            try {
+                start();
+                write(item);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Opening the output lazily keeps the response uncommitted until the first row arrives,
+        // so a failing query still gets a proper error response.
+        private void start() throws IOException {
+            if (!started) {
+                open();
+                started = true;
+            }
+        }
+
+        private void finish() throws IOException {
+            start();
+            close(true);
+        }
+
+        // The status is already sent, so the truncated body is all the client can be told.
+        private void abort() throws IOException {
+            close(false);
+            ctx.outputStream().close();
+        }
+
+        protected abstract void open() throws IOException;
+
+        protected abstract void write(T item) throws IOException;
+
+        protected abstract void close(boolean complete) throws IOException;
+    }
+
+    // A JSON array, or NDJSON with one object per line.
+    private static final class JsonRowStream<T> extends RowStream<T> {
+        private final boolean lines;
+        private JsonSupport.ArrayWriter writer;
+
+        private JsonRowStream(Context ctx, boolean lines) {
+            super(ctx);
+            this.lines = lines;
+        }
+
+        @Override
+        protected void open() throws IOException {
+            writer = lines ? json.ndjsonWriter(ctx) : json.arrayWriter(ctx);
+        }
+
+        @Override
+        protected void write(T item) throws IOException {
+            writer.write(item);
+        }
+
+        @Override
+        protected void close(boolean complete) throws IOException {
+            if (complete) {
+                writer.finish();
+            } else {
+                writer.close();
+            }
+        }
+    }
+
+    private static final class CsvRowStream extends RowStream<PropertyRecord> {
+        private Writer writer;
+
+        private CsvRowStream(Context ctx) {
+            super(ctx);
+        }
+
+        @Override
+        protected void open() throws IOException {
+            ctx.contentType(PropertyCsv.CONTENT_TYPE + "; charset=utf-8");
+            writer = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8), 16 * 1024);
+            PropertyCsv.writeHeader(writer);
+        }
+
+        @Override
+        protected void write(PropertyRecord item) throws IOException {
+            PropertyCsv.writeRow(writer, item);
+        }
+
+        @Override
+        protected void close(boolean complete) throws IOException {
+            writer.flush();
+        }
     }
 
     private static void handleError(Context ctx, RuntimeException e) {
+        httpMetrics.recordError(e);
         if (e instanceof InvalidInputException) {
-            ctx.status(400).json(Map.of("success", false, "error", e.getMessage()));
+            json.write(ctx.status(400), Map.of("success", false, "error", e.getMessage()));
             return;
         }
         if (e instanceof NotFoundException) {
-            ctx.status(404).json(Map.of("success", false, "error", e.getMessage()));
+            json.write(ctx.status(404), Map.of("success", false, "error", e.getMessage()));
+            return;
+        }
+        if (e instanceof GoneException) {
+            json.write(ctx.status(410), Map.of("success", false, "error", e.getMessage()));
+            return;
+        }
+        if (e instanceof TooManyRequestsException) {
+            ctx.header("Retry-After", "1");
+            json.write(ctx.status(429), Map.of("success", false, "error", e.getMessage()));
             return;
         }
         if (e instanceof DataAccessException) {
             logger.error("Database error: {}", e.getMessage(), e);
-            ctx.status(500).json(Map.of("success", false, "error", "Database error: " + e.getMessage()));
+            json.write(ctx.status(500), Map.of("success", false, "error", "Database error: " + e.getMessage()));
             return;
         }
         logger.error("Error processing request: {}", e.getMessage(), e);
-        ctx.status(500).json(Map.of("success", false, "error", "Internal server error: " + e.getMessage()));
+        json.write(ctx.status(500), Map.of("success", false, "error", "Internal server error: " + e.getMessage()));
     }
 }
@@ -0,0 +1,18 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface ConnectionProvider {
+    Connection getConnection() throws SQLException;
+
+    // For statements that only read and may see slightly stale data; providers without replicas use the primary.
+    default Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+
+    // For statements that only read but must see the primary's current state, e.g. change-log positions.
+    default Connection getPrimaryReadConnection() throws SQLException {
+        return getConnection();
+    }
+}
@@ -1,14 +1,21 @@
 package config;
 
+import metrics.MetricsRegistry;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseConnection {
 
-    private static final String URL = "jdbc:postgresql://localhost:5432/postgres";
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "0000";
+    private static final String URL = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/postgres");
+    private static final String USER = System.getProperty("db.user", "postgres");
+    private static final String PASSWORD = System.getProperty("db.password", "0000");
+
+    private static volatile PooledConnectionProvider provider;
+    private static volatile RoutingConnectionProvider routingProvider;
+    private static volatile List<PooledConnectionProvider> propertyShardProviders;
 
     static {
         try {
@@ -18,7 +25,95 @@ public class DatabaseConnection {
         }
     }
 
+    public static PooledConnectionProvider getProvider() {
+        PooledConnectionProvider current = provider;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = provider;
+                if (current == null) {
+                    current = poolBuilder(URL)
+                            .acquireTimeoutMillis(Long.getLong("db.pool.acquireTimeoutMs", 30_000L))
+                            .acquireTimer(MetricsRegistry.getDefault().histogram("db_pool_acquire_seconds",
+                                    "Time spent obtaining a connection from the pool."))
+                            .build();
+                    provider = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Read replicas from -Ddb.replicas (comma-separated JDBC URLs, same credentials as the primary), or null
+    // when none are configured. Replica pools give up quickly so a slow or dead replica falls back to the primary.
+    public static RoutingConnectionProvider getRoutingProvider() {
+        String urls = System.getProperty("db.replicas", "").trim();
+        if (urls.isEmpty()) {
+            return null;
+        }
+        RoutingConnectionProvider current = routingProvider;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = routingProvider;
+                if (current == null) {
+                    RoutingConnectionProvider.Builder builder = RoutingConnectionProvider.builder(getProvider())
+                            .strategy(RoutingConnectionProvider.Strategy.parse(System.getProperty("db.replica.strategy", "round_robin")))
+                            .maxLagMillis(Long.getLong("db.replica.maxLagMs", 1_000L))
+                            .checkIntervalMillis(Long.getLong("db.replica.checkMs", 1_000L));
+                    for (String url : urls.split(",")) {
+                        builder.replica(url.trim(), poolBuilder(url.trim())
+                                .minSize(0)
+                                .acquireTimeoutMillis(Long.getLong("db.replica.acquireTimeoutMs", 1_000L))
+                                .connectionProperty("connectTimeout", System.getProperty("db.replica.connectTimeoutSeconds", "2"))
+                                .build());
+                    }
+                    current = builder.build();
+                    routingProvider = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // One pool per database listed in -Ddb.propertyShards (comma-separated JDBC URLs, primary credentials and pool
+    // sizes); empty when properties are not sharded.
+    public static List<PooledConnectionProvider> getPropertyShardProviders() {
+        String urls = System.getProperty("db.propertyShards", "").trim();
+        if (urls.isEmpty()) {
+            return List.of();
+        }
+        List<PooledConnectionProvider> current = propertyShardProviders;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = propertyShardProviders;
+                if (current == null) {
+                    List<PooledConnectionProvider> pools = new ArrayList<>();
+                    for (String url : urls.split(",")) {
+                        pools.add(poolBuilder(url.trim())
+                                .acquireTimeoutMillis(Long.getLong("db.pool.acquireTimeoutMs", 30_000L))
+                                .build());
+                    }
+                    current = List.copyOf(pools);
+                    propertyShardProviders = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static PooledConnectionProvider.Builder poolBuilder(String url) {
+        return PooledConnectionProvider.builder(url)
+                .credentials(USER, PASSWORD)
+                .minSize(Integer.getInteger("db.pool.minSize", 2))
+                .maxSize(Integer.getInteger("db.pool.maxSize", 10))
+                .idleTimeoutMillis(Long.getLong("db.pool.idleTimeoutMs", 600_000L))
+                .leakThresholdMillis(Long.getLong("db.pool.leakThresholdMs", 60_000L))
+                .leakTracing(Boolean.getBoolean("db.pool.leakTracing"))
+                .validateAfterIdleMillis(Long.getLong("db.pool.validateAfterIdleMs", 1_000L))
+                .statementCacheSize(Integer.getInteger("db.statementCacheSize", 64))
+                .connectionProperty("prepareThreshold", System.getProperty("db.prepareThreshold", "5"));
+    }
+
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getProvider().getConnection();
     }
 }
@@ -0,0 +1,67 @@
+package config;
+
+public class PoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int waitingThreads;
+    private final int maxSize;
+    private final long connectionsCreated;
+    private final long connectionsDestroyed;
+    private final long borrows;
+    private final long acquireTimeouts;
+    private final long leaksDetected;
+    private final double averageAcquireMillis;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolStats(int totalConnections, int idleConnections, int activeConnections, int waitingThreads,
+                     int maxSize, long connectionsCreated, long connectionsDestroyed, long borrows,
+                     long acquireTimeouts, long leaksDetected, double averageAcquireMillis,
+                     long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.waitingThreads = waitingThreads;
+        this.maxSize = maxSize;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsDestroyed = connectionsDestroyed;
+        this.borrows = borrows;
+        this.acquireTimeouts = acquireTimeouts;
+        this.leaksDetected = leaksDetected;
+        this.averageAcquireMillis = averageAcquireMillis;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public int getTotalConnections() { return totalConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getActiveConnections() { return activeConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public int getMaxSize() { return maxSize; }
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public long getConnectionsDestroyed() { return connectionsDestroyed; }
+    public long getBorrows() { return borrows; }
+    public long getAcquireTimeouts() { return acquireTimeouts; }
+    public long getLeaksDetected() { return leaksDetected; }
+    public double getAverageAcquireMillis() { return averageAcquireMillis; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+    public double getStatementCacheHitRate() {
+        long requests = statementCacheHits + statementCacheMisses;
+        return requests == 0 ? 0.0 : statementCacheHits / (double) requests;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{total=" + totalConnections + ", idle=" + idleConnections + ", active=" + activeConnections
+                + ", waiting=" + waitingThreads + ", max=" + maxSize + ", created=" + connectionsCreated
+                + ", destroyed=" + connectionsDestroyed + ", borrows=" + borrows + ", timeouts=" + acquireTimeouts
+                + ", leaks=" + leaksDetected + ", avgAcquireMs=" + averageAcquireMillis
+                + ", statementHits=" + statementCacheHits + ", statementMisses=" + statementCacheMisses + "}";
+    }
+}
@@ -0,0 +1,450 @@
+package config;
+
+import metrics.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-upper-bound JDBC pool: connections are borrowed through a semaphore and handed out
+// as proxies whose close() returns the physical connection to the idle deque. With a statement cache
+// size above zero, each physical connection also keeps its prepared statements (see StatementCache).
+// A borrowed connection is only validated (one round trip) when it has sat idle longer than validateAfterIdleMillis;
+// one that was in use moments ago is handed out as is, and a broken one is discarded when it is returned.
+public class PooledConnectionProvider implements ConnectionProvider, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnectionProvider.class);
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final boolean leakTracing;
+    private final int validationTimeoutSeconds;
+    private final long validateAfterIdleMillis;
+    private final Histogram acquireTimer;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    private PooledConnectionProvider(Builder builder) {
+        this.url = builder.url;
+        this.connectionProperties = new Properties();
+        connectionProperties.putAll(builder.properties);
+        if (builder.user != null) {
+            connectionProperties.setProperty("user", builder.user);
+        }
+        if (builder.password != null) {
+            connectionProperties.setProperty("password", builder.password);
+        }
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.acquireTimeoutMillis = builder.acquireTimeoutMillis;
+        this.leakThresholdMillis = builder.leakThresholdMillis;
+        this.leakTracing = builder.leakTracing;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.validateAfterIdleMillis = builder.validateAfterIdleMillis;
+        this.acquireTimer = builder.acquireTimer;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, Math.min(idleTimeoutMillis, 30_000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection " + stats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakTracing ? new Exception("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrows.increment();
+            long waited = System.nanoTime() - start;
+            acquireNanos.add(waited);
+            if (acquireTimer != null) {
+                acquireTimer.recordNanos(waited);
+            }
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturned <= validateAfterIdleMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, connectionProperties);
+        total.incrementAndGet();
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (pooled.statements != null) {
+                pooled.statements.reclaim();
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (pooled.physical.isReadOnly()) {
+                pooled.physical.setReadOnly(false);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that failed to reset: {}", e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing pooled connection: {}", e.getMessage());
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            if (total.get() <= minSize) {
+                break;
+            }
+            if (now - pooled.lastReturned > idleTimeoutMillis && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leaks.increment();
+                    if (pooled.borrowSite != null) {
+                        logger.warn("Connection held for more than {} ms, possible leak", leakThresholdMillis, pooled.borrowSite);
+                    } else {
+                        logger.warn("Connection held for more than {} ms, possible leak (enable leak tracing to log where it was borrowed)",
+                                leakThresholdMillis);
+                    }
+                }
+            }
+        }
+        while (!closed && total.get() < minSize) {
+            try {
+                PooledConnection pooled = open();
+                pooled.lastReturned = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                logger.warn("Could not top up connection pool: {}", e.getMessage());
+                break;
+            }
+        }
+    }
+
+    // A connection outside the pool and its limits, for sessions held open indefinitely (LISTEN). The caller closes it.
+    public Connection openUnpooled() throws SQLException {
+        return DriverManager.getConnection(url, connectionProperties);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Connections currently borrowed; cheaper than stats() for per-request decisions.
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public PoolStats stats() {
+        long borrowCount = borrows.sum();
+        double avgAcquireMillis = borrowCount == 0 ? 0.0 : acquireNanos.sum() / (double) borrowCount / 1_000_000.0;
+        return new PoolStats(total.get(), idle.size(), borrowed.size(), permits.getQueueLength(), maxSize,
+                created.sum(), destroyed.sum(), borrowCount, timeouts.sum(), leaks.sum(), avgAcquireMillis,
+                statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long lastReturned;
+        private volatile Exception borrowSite;
+        private volatile boolean leakReported;
+        private final StatementCache statements;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = statementCacheSize > 0
+                    ? new StatementCache(statementCacheSize, statementHits, statementMisses, statementEvictions)
+                    : null;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (released) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    if (pooled.statements != null && isCacheablePrepare(method)) {
+                        return prepareCached((Connection) proxy, args);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        private PreparedStatement prepareCached(Connection handle, Object[] args) throws SQLException {
+            String sql = (String) args[0];
+            String[] columns = args.length == 2 ? (String[]) args[1] : null;
+            return pooled.statements.prepare(StatementCache.key(sql, columns), handle, () -> columns == null
+                    ? pooled.physical.prepareStatement(sql)
+                    : pooled.physical.prepareStatement(sql, columns));
+        }
+    }
+
+    // prepareStatement(String) and prepareStatement(String, String[]); other variants change the
+    // statement's result set type or key handling and are passed through uncached.
+    private static boolean isCacheablePrepare(Method method) {
+        if (!method.getName().equals("prepareStatement")) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || (types.length == 2 && types[1] == String[].class);
+    }
+
+    public static class Builder {
+        private final String url;
+        private String user;
+        private String password;
+        private int minSize = 2;
+        private int maxSize = 10;
+        private long idleTimeoutMillis = 600_000;
+        private long acquireTimeoutMillis = 30_000;
+        private long leakThresholdMillis = 0;
+        private boolean leakTracing;
+        private int validationTimeoutSeconds = 2;
+        private long validateAfterIdleMillis = 1_000;
+        private Histogram acquireTimer;
+        private int statementCacheSize = 0;
+        private final Properties properties = new Properties();
+
+        private Builder(String url) {
+            this.url = url;
+        }
+
+        public Builder credentials(String user, String password) {
+            this.user = user;
+            this.password = password;
+            return this;
+        }
+
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Builder acquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            return this;
+        }
+
+        public Builder leakThresholdMillis(long leakThresholdMillis) {
+            this.leakThresholdMillis = leakThresholdMillis;
+            return this;
+        }
+
+        // Records the borrower's stack trace on every getConnection() so leak warnings can show it. Costly; for debugging.
+        public Builder leakTracing(boolean leakTracing) {
+            this.leakTracing = leakTracing;
+            return this;
+        }
+
+        // Connections idle for at most this long are handed out without an isValid() round trip.
+        public Builder validateAfterIdleMillis(long validateAfterIdleMillis) {
+            this.validateAfterIdleMillis = validateAfterIdleMillis;
+            return this;
+        }
+
+        public Builder validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        // Optional: receives the time every successful getConnection() spent waiting and opening.
+        public Builder acquireTimer(Histogram acquireTimer) {
+            this.acquireTimer = acquireTimer;
+            return this;
+        }
+
+        // Prepared statements kept per physical connection; 0 (the default) disables the cache.
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        // Passed to the driver when a connection is opened, e.g. prepareThreshold for PostgreSQL.
+        public Builder connectionProperty(String name, String value) {
+            properties.setProperty(name, value);
+            return this;
+        }
+
+        public PooledConnectionProvider build() {
+            if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes must satisfy 0 <= minSize <= maxSize and maxSize > 0.");
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("Statement cache size must not be negative.");
+            }
+            return new PooledConnectionProvider(this);
+        }
+    }
+}
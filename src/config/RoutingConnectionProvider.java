@@ -0,0 +1,305 @@
+package config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read/write splitting over one primary pool and any number of replica pools. getConnection() always
+// returns a primary connection; getReadConnection() returns a replica connection, chosen round-robin or by
+// fewest borrowed connections. A monitor polls every replica's replay lag. A replica that is behind by more
+// than maxLagMillis, or that failed its last check or connection attempt, is skipped until a check passes.
+// When no replica can serve the read, the primary does. A thread pinned with pinToPrimary() reads from the
+// primary too; the server pins the requests of a client that has just written so it reads its own writes.
+// Other reads are not held back by writes, so for up to getStaleReadMillis() after a write a replica may
+// still answer with the old row. Anything that outlives the request (entity cache fills, ETags, the stats
+// snapshot) must not be filled from such a read; the caches check for a recent change themselves.
+public class RoutingConnectionProvider implements ConnectionProvider, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingConnectionProvider.class);
+
+    // 0 while the replica has replayed everything it received; NULL (no standby) also counts as caught up
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery()"
+            + " OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_IN_FLIGHT;
+
+        public static Strategy parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Replica strategy must be round_robin or least_in_flight, got: " + value, e);
+            }
+        }
+    }
+
+    private final PooledConnectionProvider primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long maxLagMillis;
+    private final long checkIntervalMillis;
+    private final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService monitor;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder pinnedReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    private RoutingConnectionProvider(Builder builder) {
+        this.primary = builder.primary;
+        this.replicas = new ArrayList<>(builder.replicas.size());
+        builder.replicas.forEach((url, pool) -> replicas.add(new Replica(url, pool)));
+        this.strategy = builder.strategy;
+        this.maxLagMillis = builder.maxLagMillis;
+        this.checkIntervalMillis = builder.checkIntervalMillis;
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        monitor.scheduleWithFixedDelay(this::checkReplicas, 0, builder.checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder(PooledConnectionProvider primary) {
+        return new Builder(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getPrimaryReadConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        if (pinned.get() != null) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        // each failed attempt takes its replica out of the running, so this tries every replica at most once
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = choose();
+            if (replica == null) {
+                break;
+            }
+            try {
+                Connection conn = replica.pool.getConnection();
+                replica.reads.increment();
+                replicaReads.increment();
+                return conn;
+            } catch (SQLTransientConnectionException e) {
+                // the replica's pool is exhausted, which says nothing about the replica; try another one
+                replica.busy.increment();
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    private Replica choose() {
+        int n = replicas.size();
+        if (strategy == Strategy.ROUND_ROBIN) {
+            for (int i = 0; i < n; i++) {
+                Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), n));
+                if (replica.usable()) {
+                    return replica;
+                }
+            }
+            return null;
+        }
+        Replica best = null;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (Replica replica : replicas) {
+            int inFlight = replica.pool.getActiveCount();
+            if (replica.usable() && inFlight < bestInFlight) {
+                best = replica;
+                bestInFlight = inFlight;
+            }
+        }
+        return best;
+    }
+
+    // Reads on the calling thread go to the primary until unpin().
+    public void pinToPrimary() {
+        pinned.set(Boolean.TRUE);
+    }
+
+    public void unpin() {
+        pinned.remove();
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(LAG_SQL)) {
+                rs.next();
+                replica.lagMillis = rs.getLong(1);
+                if (!replica.up) {
+                    logger.info("Replica {} is reachable again (lag {} ms)", replica.url, replica.lagMillis);
+                }
+                replica.up = true;
+                replica.lastError = null;
+            } catch (SQLTransientConnectionException e) {
+                // all of its connections are busy serving reads; keep the previous verdict
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("Replica check failed", e);
+            }
+        }
+    }
+
+    public PooledConnectionProvider getPrimary() {
+        return primary;
+    }
+
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> replicaStats = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("url", replica.url);
+            stats.put("up", replica.up);
+            stats.put("lagMillis", replica.lagMillis);
+            stats.put("usable", replica.usable());
+            stats.put("inFlight", replica.pool.getActiveCount());
+            stats.put("reads", replica.reads.sum());
+            stats.put("busy", replica.busy.sum());
+            stats.put("failures", replica.failures.sum());
+            stats.put("lastError", replica.lastError);
+            replicaStats.add(stats);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strategy", strategy.name());
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("replicaReads", replicaReads.sum());
+        stats.put("pinnedReads", pinnedReads.sum());
+        stats.put("fallbackReads", fallbackReads.sum());
+        stats.put("staleReadMillis", getStaleReadMillis());
+        stats.put("replicas", replicaStats);
+        return stats;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getPinnedReads() {
+        return pinnedReads.sum();
+    }
+
+    public long getFallbackReads() {
+        return fallbackReads.sum();
+    }
+
+    // How long after a write a replica read may still return the row as it was before: a replica is used
+    // while its last measured lag is within maxLagMillis, and the next measurement is up to a check away.
+    public long getStaleReadMillis() {
+        return maxLagMillis + checkIntervalMillis;
+    }
+
+    // Closes the replica pools; the primary belongs to the caller.
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    private final class Replica {
+        private final String url;
+        private final PooledConnectionProvider pool;
+        private volatile boolean up = true;
+        private volatile long lagMillis;
+        private volatile String lastError;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder busy = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        private Replica(String url, PooledConnectionProvider pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+
+        private boolean usable() {
+            return up && lagMillis <= maxLagMillis;
+        }
+
+        private void markDown(String error) {
+            failures.increment();
+            lastError = error;
+            if (up) {
+                up = false;
+                logger.warn("Replica {} is unavailable, reading from the primary instead: {}", url, error);
+            }
+        }
+    }
+
+    public static class Builder {
+        private final PooledConnectionProvider primary;
+        private final Map<String, PooledConnectionProvider> replicas = new LinkedHashMap<>();
+        private Strategy strategy = Strategy.ROUND_ROBIN;
+        private long maxLagMillis = 1_000;
+        private long checkIntervalMillis = 1_000;
+
+        private Builder(PooledConnectionProvider primary) {
+            this.primary = primary;
+        }
+
+        public Builder replica(String url, PooledConnectionProvider pool) {
+            replicas.put(url, pool);
+            return this;
+        }
+
+        public Builder strategy(Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        // Replicas further behind than this are skipped until they catch up.
+        public Builder maxLagMillis(long maxLagMillis) {
+            this.maxLagMillis = maxLagMillis;
+            return this;
+        }
+
+        public Builder checkIntervalMillis(long checkIntervalMillis) {
+            this.checkIntervalMillis = checkIntervalMillis;
+            return this;
+        }
+
+        public RoutingConnectionProvider build() {
+            if (replicas.isEmpty()) {
+                throw new IllegalArgumentException("At least one replica is required.");
+            }
+            if (maxLagMillis < 0 || checkIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Lag limit must not be negative and the check interval must be positive.");
+            }
+            return new RoutingConnectionProvider(this);
+        }
+    }
+}
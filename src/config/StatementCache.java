@@ -0,0 +1,191 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU of prepared statements for one physical connection, keyed by SQL text. Closing a cached statement
+// resets it and parks it here, so the next prepareStatement() with the same SQL on this connection skips
+// the driver-side parse and keeps the server-side prepared statement (and its plan) alive.
+final class StatementCache {
+
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    // access order: the eldest entry is the least recently prepared
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    interface Preparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    // handle is what the statement's getConnection() reports: the pooled proxy, never the physical connection.
+    synchronized PreparedStatement prepare(String key, Connection handle, Preparer preparer) throws SQLException {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+            entry.inUse = true;
+            return entry.newHandle(handle);
+        }
+        misses.increment();
+        PreparedStatement statement = preparer.prepare();
+        if (entry != null) {
+            // the same SQL is already open on this connection (e.g. nested use); hand out a one-off statement
+            return statement;
+        }
+        entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictOverflow();
+        return entry.newHandle(handle);
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (!entry.inUse) {
+                eldest.remove();
+                evictions.increment();
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    // Called when the connection goes back to the pool: statements the borrower left open become reusable.
+    synchronized void reclaim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.inUse && !entry.checkIn()) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void checkIn(Entry entry) {
+        if (!entry.checkIn()) {
+            entries.values().remove(entry);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // the connection is being reset or discarded anyway
+        }
+    }
+
+    private final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private StatementHandle current;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement newHandle(Connection connection) {
+            current = new StatementHandle(this, connection);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    current);
+        }
+
+        // Clears everything a borrower may have set; false when the statement is unusable and was closed.
+        private boolean checkIn() {
+            if (current != null) {
+                current.closed = true;
+                current = null;
+            }
+            inUse = false;
+            try {
+                ResultSet open = statement.getResultSet();
+                if (open != null) {
+                    open.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                if (statement.getFetchSize() != 0) {
+                    statement.setFetchSize(0);
+                }
+                if (statement.getMaxRows() != 0) {
+                    statement.setMaxRows(0);
+                }
+                return true;
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                return false;
+            }
+        }
+    }
+
+    // What the DAO sees: close() returns the statement to the cache instead of closing it.
+    private final class StatementHandle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection connection;
+        private volatile boolean closed;
+
+        private StatementHandle(Entry entry, Connection connection) {
+            this.entry = entry;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        checkIn(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has already been closed.");
+                    }
+                    try {
+                        return method.invoke(entry.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    static String key(String sql, String[] columnNames) {
+        return columnNames == null ? sql : sql + '\u0000' + String.join(",", columnNames);
+    }
+}
@@ -1,11 +1,15 @@
 package domain;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class Property {
     private final long id;       // encapsulation: private fields
     private String city;
     private double price;
+    // indexes following this listing (see PropertyIndex(boolean)); null until it is filed in one
+    private List<PropertyIndex.Filing> filings;
 
     public Property(long id, String city, double price) {
         this.id = id;
@@ -21,6 +25,7 @@ public class Property {
             throw new IllegalArgumentException("City cannot be blank.");
         }
         this.city = city;
+        refile();
     }
     public double getPrice() { return price; }
     public void setPrice(double price) {
@@ -28,6 +33,33 @@ public class Property {
             throw new IllegalArgumentException("Price must be greater than 0.");
         }
         this.price = price;
+        refile();
+    }
+
+    synchronized void fileIn(PropertyIndex index, long key) {
+        if (filings == null) {
+            filings = new ArrayList<>(1);
+        }
+        filings.add(new PropertyIndex.Filing(index, key));
+    }
+
+    synchronized void unfileFrom(PropertyIndex index, long key) {
+        if (filings != null) {
+            filings.removeIf(f -> f.index == index && f.key == key);
+        }
+    }
+
+    private void refile() {
+        List<PropertyIndex.Filing> current;
+        synchronized (this) {
+            if (filings == null || filings.isEmpty()) {
+                return;
+            }
+            current = new ArrayList<>(filings);
+        }
+        for (PropertyIndex.Filing filing : current) {
+            filing.index.refile(filing.key, this);
+        }
     }
 
     // polymorphic behavior (subclasses can override)
@@ -0,0 +1,314 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Keeps listings in a case-insensitive city hash index and in price order, so city and
+// price-range lookups cost O(log n + k) instead of a scan. Entries are keyed by id (or by a caller's own
+// key, see put(long, Property)) and indexed by the city/price they had when put(). A listing whose city or
+// price changes must be put() again, unless the index follows changes: then the Property setters re-file it.
+public class PropertyIndex {
+    private final Map<Long, Entry> byKey = new LinkedHashMap<>();
+    private final Map<String, NavigableMap<PriceKey, Property>> byCity = new HashMap<>();
+    private final NavigableMap<PriceKey, Property> byPrice = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean followsChanges;
+
+    public PropertyIndex() {
+        this(false);
+    }
+
+    // followsChanges: for listings the caller keeps changing through their setters. Each filed listing
+    // then remembers this index, so only indexes over shared, mutable listings should pay for it.
+    public PropertyIndex(boolean followsChanges) {
+        this.followsChanges = followsChanges;
+    }
+
+    public void put(Property p) {
+        put(p.getId(), p);
+    }
+
+    // Files p under key instead of its id, so one listing (or several with the same id) can be filed more
+    // than once. Equal prices are ordered by key.
+    public void put(long key, Property p) {
+        lock.writeLock().lock();
+        try {
+            if (followsChanges) {
+                // before the entry reads city and price, so a concurrent setter either sees this filing or
+                // has already changed what the entry reads
+                p.fileIn(this, key);
+            }
+            Entry previous = byKey.get(key);
+            if (previous != null) {
+                unlink(previous);
+                if (followsChanges && previous.property != p) {
+                    previous.property.unfileFrom(this, key);
+                }
+            }
+            link(new Entry(key, p));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean putIfAbsent(Property p) {
+        lock.writeLock().lock();
+        try {
+            if (byKey.containsKey(p.getId())) {
+                return false;
+            }
+            put(p);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = byKey.remove(key);
+            if (previous == null) {
+                return false;
+            }
+            unlink(previous);
+            if (followsChanges) {
+                previous.property.unfileFrom(this, key);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called by the Property setters after a change: moves the entry to the listing's new city and price.
+    void refile(long key, Property p) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = byKey.get(key);
+            if (entry != null && entry.property == p) {
+                unlink(entry);
+                link(new Entry(key, p));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(Entry entry) {
+        byKey.put(entry.key, entry);
+        byPrice.put(entry.priceKey, entry.property);
+        byCity.computeIfAbsent(entry.cityKey, k -> new TreeMap<>()).put(entry.priceKey, entry.property);
+    }
+
+    private void unlink(Entry entry) {
+        byPrice.remove(entry.priceKey);
+        NavigableMap<PriceKey, Property> city = byCity.get(entry.cityKey);
+        if (city != null) {
+            city.remove(entry.priceKey);
+            if (city.isEmpty()) {
+                byCity.remove(entry.cityKey);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            if (followsChanges) {
+                for (Entry entry : byKey.values()) {
+                    entry.property.unfileFrom(this, entry.key);
+                }
+            }
+            byKey.clear();
+            byCity.clear();
+            byPrice.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // insertion order
+    public List<Property> all() {
+        lock.readLock().lock();
+        try {
+            List<Property> list = new ArrayList<>(byKey.size());
+            for (Entry entry : byKey.values()) {
+                list.add(entry.property);
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Property> byCity(String city) {
+        return search(city, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+    }
+
+    public List<Property> priceRange(double min, double max) {
+        return search(null, min, max, false);
+    }
+
+    public List<Property> sortedByPrice() {
+        return search(null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+    }
+
+    // city may be null for all cities; results are ordered by price, then id.
+    public List<Property> search(String city, double min, double max, boolean descending) {
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<PriceKey, Property> source = city == null ? byPrice : byCity.get(cityKey(city));
+            if (source == null) {
+                return Collections.emptyList();
+            }
+            NavigableMap<PriceKey, Property> range = source.subMap(
+                    new PriceKey(min, Long.MIN_VALUE), true,
+                    new PriceKey(max, Long.MAX_VALUE), true);
+            Collection<Property> values = descending ? range.descendingMap().values() : range.values();
+            return new ArrayList<>(values);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Same matches as search, in key order: insertion order when the keys are a sequence (RealEstateAgency).
+    // The list is the caller's to change.
+    public List<Property> searchInKeyOrder(String city, double min, double max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<PriceKey, Property> source = city == null ? byPrice : byCity.get(cityKey(city));
+            if (source == null) {
+                return new ArrayList<>();
+            }
+            List<Map.Entry<PriceKey, Property>> matches = new ArrayList<>(source.subMap(
+                    new PriceKey(min, Long.MIN_VALUE), true,
+                    new PriceKey(max, Long.MAX_VALUE), true).entrySet());
+            matches.sort((a, b) -> Long.compare(a.getKey().id, b.getKey().id));
+            List<Property> list = new ArrayList<>(matches.size());
+            for (Map.Entry<PriceKey, Property> match : matches) {
+                list.add(match.getValue());
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The k cheapest (or, descending, most expensive) listings, optionally in one city. Walks the head of
+    // the price tree, O(log n + k), instead of copying and sorting every listing.
+    public List<Property> topK(int k, boolean descending, String city) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<PriceKey, Property> source = city == null ? byPrice : byCity.get(cityKey(city));
+            if (source == null || k == 0) {
+                return Collections.emptyList();
+            }
+            List<Property> list = new ArrayList<>(Math.min(k, source.size()));
+            for (Property p : (descending ? source.descendingMap() : source).values()) {
+                if (list.size() == k) {
+                    break;
+                }
+                list.add(p);
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Same as topK with k = into.length, but fills a caller-owned array and returns how many slots were
+    // written. A caller that reuses its array allocates nothing per result.
+    public int topK(boolean descending, String city, Property[] into) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<PriceKey, Property> source = city == null ? byPrice : byCity.get(cityKey(city));
+            if (source == null) {
+                return 0;
+            }
+            int n = 0;
+            for (Property p : (descending ? source.descendingMap() : source).values()) {
+                if (n == into.length) {
+                    break;
+                }
+                into[n++] = p;
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String cityKey(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final long key;
+        private final Property property;
+        private final PriceKey priceKey;
+        private final String cityKey;
+
+        private Entry(long key, Property property) {
+            this.key = key;
+            this.property = property;
+            this.priceKey = new PriceKey(property.getPrice(), key);
+            this.cityKey = cityKey(property.getCity());
+        }
+    }
+
+    // Where a listing is filed in an index that follows changes; kept by the Property.
+    static final class Filing {
+        final PropertyIndex index;
+        final long key;
+
+        Filing(PropertyIndex index, long key) {
+            this.index = index;
+            this.key = key;
+        }
+    }
+
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final double price;
+        private final long id;
+
+        private PriceKey(double price, long id) {
+            this.price = price;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(id, other.id);
+        }
+    }
+}
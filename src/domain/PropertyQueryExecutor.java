@@ -0,0 +1,217 @@
+package domain;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs PropertyStore queries on a fork/join pool: the rows are split into chunks that are scanned,
+// sorted or reduced in parallel. Stores smaller than the sequential threshold are handled on the calling
+// thread, where the split/merge overhead would outweigh the extra cores. Results match the sequential
+// PropertyStore methods row for row.
+public class PropertyQueryExecutor {
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 50_000;
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    // Shares the common pool.
+    public PropertyQueryExecutor() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    // A dedicated pool with the given number of worker threads.
+    public PropertyQueryExecutor(int parallelism, int sequentialThreshold) {
+        this(new ForkJoinPool(parallelism), sequentialThreshold);
+    }
+
+    public PropertyQueryExecutor(ForkJoinPool pool, int sequentialThreshold) {
+        if (sequentialThreshold < 1) {
+            throw new IllegalArgumentException("Sequential threshold must be positive.");
+        }
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int[] filterByCity(PropertyStore store, String city) {
+        PropertyStore.Snapshot s = store.snapshot(city);
+        if (s.cityMatch == null) {
+            return new int[0];
+        }
+        return filter(s, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    public int[] searchByPrice(PropertyStore store, double min, double max) {
+        return filter(store.snapshot(null), min, max);
+    }
+
+    // Parallel merge sort of row numbers by (price, id).
+    public int[] sortByPriceAsc(PropertyStore store) {
+        PropertyStore.Snapshot s = store.snapshot(null);
+        int[] rows = new int[s.size];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        if (rows.length <= sequentialThreshold) {
+            RowOrder.sort(rows, 0, rows.length - 1, s.prices, s.ids);
+        } else {
+            pool.invoke(new MergeSort(s, rows, new int[rows.length], 0, rows.length));
+        }
+        return rows;
+    }
+
+    // The k cheapest (ascending) or most expensive rows, optionally within one city, best first.
+    // Each chunk keeps a bounded heap of k candidates; the chunk heaps are then merged.
+    public int[] topKByPrice(PropertyStore store, int k, boolean ascending, String cityOrNull) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        PropertyStore.Snapshot s = store.snapshot(cityOrNull);
+        if (k == 0 || (s.cityFiltered && s.cityMatch == null)) {
+            return new int[0];
+        }
+        if (s.size <= sequentialThreshold) {
+            RowHeap heap = new RowHeap(k, ascending, s.prices, s.ids);
+            offerRange(heap, s, 0, s.size);
+            return heap.toSortedArray();
+        }
+        int chunks = chunkCount(s.size);
+        RowHeap[] heaps = new RowHeap[chunks];
+        pool.invoke(new ChunkTask((index, from, to) -> {
+            RowHeap heap = new RowHeap(k, ascending, s.prices, s.ids);
+            offerRange(heap, s, from, to);
+            heaps[index] = heap;
+        }, s.size, chunks, 0, chunks));
+        RowHeap merged = new RowHeap(k, ascending, s.prices, s.ids);
+        for (RowHeap heap : heaps) {
+            heap.drainTo(merged);
+        }
+        return merged.toSortedArray();
+    }
+
+    private static void offerRange(RowHeap heap, PropertyStore.Snapshot s, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (s.matches(row)) {
+                heap.offer(row);
+            }
+        }
+    }
+
+    private int[] filter(PropertyStore.Snapshot s, double min, double max) {
+        if (s.size <= sequentialThreshold) {
+            return scan(s, min, max, 0, s.size);
+        }
+        int chunks = chunkCount(s.size);
+        int[][] parts = new int[chunks][];
+        pool.invoke(new ChunkTask((index, from, to) -> parts[index] = scan(s, min, max, from, to),
+                s.size, chunks, 0, chunks));
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] rows = new int[total];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, rows, offset, part.length);
+            offset += part.length;
+        }
+        return rows;
+    }
+
+    private static int[] scan(PropertyStore.Snapshot s, double min, double max, int from, int to) {
+        double[] prices = s.prices;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += (prices[i] >= min & prices[i] <= max & s.matches(i)) ? 1 : 0;
+        }
+        int[] rows = new int[count];
+        for (int i = from, j = 0; i < to && j < count; i++) {
+            if (prices[i] >= min & prices[i] <= max & s.matches(i)) {
+                rows[j++] = i;
+            }
+        }
+        return rows;
+    }
+
+    // Chunks of about the sequential threshold, but at least a few per worker for load balancing.
+    private int chunkCount(int size) {
+        int bySize = (size + sequentialThreshold - 1) / sequentialThreshold;
+        return Math.max(Math.min(bySize, pool.getParallelism() * 4), 2);
+    }
+
+    private interface ChunkBody {
+        void run(int index, int from, int to);
+    }
+
+    // Splits [0, size) into chunk ranges and runs the body for each, forking halves recursively.
+    private static final class ChunkTask extends RecursiveAction {
+        private final ChunkBody body;
+        private final int size;
+        private final int chunks;
+        private final int first;
+        private final int last;
+
+        private ChunkTask(ChunkBody body, int size, int chunks, int first, int last) {
+            this.body = body;
+            this.size = size;
+            this.chunks = chunks;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                body.run(first, (int) ((long) size * first / chunks), (int) ((long) size * last / chunks));
+                return;
+            }
+            int mid = (first + last) >>> 1;
+            invokeAll(new ChunkTask(body, size, chunks, first, mid), new ChunkTask(body, size, chunks, mid, last));
+        }
+    }
+
+    private final class MergeSort extends RecursiveAction {
+        private final PropertyStore.Snapshot s;
+        private final int[] rows;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+
+        private MergeSort(PropertyStore.Snapshot s, int[] rows, int[] buffer, int from, int to) {
+            this.s = s;
+            this.rows = rows;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sequentialThreshold) {
+                RowOrder.sort(rows, from, to - 1, s.prices, s.ids);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MergeSort(s, rows, buffer, from, mid), new MergeSort(s, rows, buffer, mid, to));
+            merge(mid);
+        }
+
+        private void merge(int mid) {
+            System.arraycopy(rows, from, buffer, from, to - from);
+            int i = from;
+            int j = mid;
+            int k = from;
+            while (i < mid && j < to) {
+                rows[k++] = RowOrder.compare(buffer[j], buffer[i], s.prices, s.ids) < 0 ? buffer[j++] : buffer[i++];
+            }
+            while (i < mid) {
+                rows[k++] = buffer[i++];
+            }
+            while (j < to) {
+                rows[k++] = buffer[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Column-oriented listing storage: one primitive array per field, with cities dictionary-encoded as
+// int codes. A listing costs 8 + 8 + 4 bytes plus amortized array slack, instead of a Property object,
+// a String reference and a list slot, and scans run over contiguous arrays. Queries return row numbers;
+// use get()/toProperties() to materialize the rows a caller actually needs.
+public class PropertyStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] cityCodes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<String, Integer> codesByCity = new HashMap<>();
+    private final List<String> cities = new ArrayList<>();
+
+    // rows ordered by (price, id); rebuilt lazily after appends
+    private int[] priceOrder;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(Property p) {
+        add(p.getId(), p.getCity(), p.getPrice());
+    }
+
+    public void add(long id, String city, double price) {
+        lock.writeLock().lock();
+        try {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                cityCodes = Arrays.copyOf(cityCodes, capacity);
+            }
+            ids[size] = id;
+            prices[size] = price;
+            cityCodes[size] = encode(city);
+            size++;
+            priceOrder = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int encode(String city) {
+        Integer code = codesByCity.get(city);
+        if (code == null) {
+            code = cities.size();
+            codesByCity.put(city, code);
+            cities.add(city);
+        }
+        return code;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int cityCount() {
+        lock.readLock().lock();
+        try {
+            return cities.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long id(int row) {
+        lock.readLock().lock();
+        try {
+            return ids[checkRow(row)];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double price(int row) {
+        lock.readLock().lock();
+        try {
+            return prices[checkRow(row)];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String city(int row) {
+        lock.readLock().lock();
+        try {
+            return cities.get(cityCodes[checkRow(row)]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Property get(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return new Property(ids[row], cities.get(cityCodes[row]), prices[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Property> toProperties(int[] rows) {
+        lock.readLock().lock();
+        try {
+            List<Property> list = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                checkRow(row);
+                list.add(new Property(ids[row], cities.get(cityCodes[row]), prices[row]));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " outside 0.." + (size - 1));
+        }
+        return row;
+    }
+
+    // Cities equal ignoring case, like the list scan in RealEstateAgency; no rows for null. The string
+    // comparison happens once per distinct city; the row scan only compares int codes against a lookup mask.
+    public int[] filterByCity(String city) {
+        lock.readLock().lock();
+        try {
+            boolean[] match = cityMask(city);
+            if (match == null) {
+                return new int[0];
+            }
+            int[] codes = cityCodes;
+            int n = size;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (match[codes[i]]) {
+                    count++;
+                }
+            }
+            int[] rows = new int[count];
+            for (int i = 0, j = 0; i < n && j < count; i++) {
+                if (match[codes[i]]) {
+                    rows[j++] = i;
+                }
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // match[code] is true for the codes of every spelling of the city; null when the city is unknown.
+    private boolean[] cityMask(String city) {
+        boolean[] match = new boolean[cities.size()];
+        boolean any = false;
+        for (int code = 0; code < match.length; code++) {
+            match[code] = cities.get(code).equalsIgnoreCase(city);
+            any |= match[code];
+        }
+        return any ? match : null;
+    }
+
+    // Columns are append-only: rows below size never change and array growth copies, so a snapshot
+    // can be scanned without holding the lock.
+    Snapshot snapshot(String cityOrNull) {
+        lock.readLock().lock();
+        try {
+            boolean[] match = cityOrNull == null ? null : cityMask(cityOrNull);
+            return new Snapshot(ids, prices, cityCodes, size, cityOrNull != null, match);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Inclusive bounds; rows come back in insertion order. Two passes (count, then fill) so the
+    // result is allocated exactly once and both loops are simple array sweeps.
+    public int[] searchByPrice(double min, double max) {
+        lock.readLock().lock();
+        try {
+            double[] p = prices;
+            int n = size;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                count += (p[i] >= min & p[i] <= max) ? 1 : 0;
+            }
+            int[] rows = new int[count];
+            for (int i = 0, j = 0; i < n && j < count; i++) {
+                if (p[i] >= min & p[i] <= max) {
+                    rows[j++] = i;
+                }
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rows ordered by price, then id. The permutation is cached until the next add().
+    public int[] sortByPriceAsc() {
+        lock.readLock().lock();
+        try {
+            int[] order = priceOrder;
+            if (order != null) {
+                return order.clone();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (priceOrder == null) {
+                int[] order = new int[size];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                RowOrder.sort(order, 0, order.length - 1, prices, ids);
+                priceOrder = order;
+            }
+            return priceOrder.clone();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Approximate retained size of the columns and the city dictionary, for footprint comparisons.
+    public long footprintBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 3L * 16 + (long) ids.length * (Long.BYTES + Double.BYTES + Integer.BYTES);
+            for (String city : cities) {
+                bytes += 40L + city.length() + 48;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static final class Snapshot {
+        final long[] ids;
+        final double[] prices;
+        final int[] cityCodes;
+        final int size;
+        final boolean cityFiltered;
+        // null with cityFiltered set means no row can match
+        final boolean[] cityMatch;
+
+        private Snapshot(long[] ids, double[] prices, int[] cityCodes, int size, boolean cityFiltered, boolean[] cityMatch) {
+            this.ids = ids;
+            this.prices = prices;
+            this.cityCodes = cityCodes;
+            this.size = size;
+            this.cityFiltered = cityFiltered;
+            this.cityMatch = cityMatch;
+        }
+
+        boolean matches(int row) {
+            return !cityFiltered || (cityMatch != null && cityMatch[cityCodes[row]]);
+        }
+    }
+}
@@ -1,39 +1,47 @@
 package domain;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 // Data abstraction: agency manages the data pool and exposes simple queries.
 public class RealEstateAgency {
     private final String agencyName;
-    private final List<Property> listings = new ArrayList<>();
+    // keyed by insertion sequence, so listings added twice stay twice and equal prices keep insertion order;
+    // it follows the listings' setters, so a listing changed after add() is found under its new city and price
+    private final PropertyIndex listings = new PropertyIndex(true);
+    private long added;
 
     public RealEstateAgency(String agencyName) { this.agencyName = agencyName; }
     public String getAgencyName() { return agencyName; }
 
     // minimal data pool operations
-    public void add(Property p) { listings.add(p); }
-    public List<Property> all() { return new ArrayList<>(listings); }
+    public synchronized void add(Property p) { listings.put(added++, p); }
+    public List<Property> all() { return listings.all(); }
 
-    // filtering, searching, sorting (minimal set)
+    // filtering, searching, sorting (minimal set), answered from the city/price index; filter and search
+    // results are in insertion order, the sort is stable
     public List<Property> filterByCity(String city) {
-        return listings.stream()
-                .filter(p -> p.getCity().equalsIgnoreCase(city))
-                .collect(Collectors.toList());
-    }
-    public List<Property> searchByPrice(double min, double max) {
-        return listings.stream()
-                .filter(p -> p.getPrice() >= min && p.getPrice() <= max)
-                .collect(Collectors.toList());
-    }
-    public List<Property> sortByPriceAsc() {
-        return listings.stream()
-                .sorted(Comparator.comparingDouble(Property::getPrice))
-                .collect(Collectors.toList());
+        if (city == null) {
+            return new ArrayList<>();
+        }
+        // the index also ignores surrounding spaces; cities here match only when equal ignoring case
+        List<Property> matches = new ArrayList<>();
+        for (Property p : listings.searchInKeyOrder(city, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)) {
+            if (p.getCity().equalsIgnoreCase(city)) {
+                matches.add(p);
+            }
+        }
+        return matches;
     }
+    public List<Property> searchByPrice(double min, double max) { return listings.searchInKeyOrder(null, min, max); }
+    public List<Property> sortByPriceAsc() { return listings.sortedByPrice(); }
+
+    // top-K by price without sorting the pool; city may be null for all cities, and is matched like the index
+    // matches it, ignoring case and surrounding spaces
+    public List<Property> topKByPrice(int k, boolean ascending, String city) { return listings.topK(k, !ascending, city); }
+    // fills into[] (k = into.length) and returns the count; reuse the array to avoid per-call allocation
+    public int topKByPrice(boolean ascending, String city, Property[] into) { return listings.topK(!ascending, city, into); }
 
     @Override
     public String toString() { return "Agency{name='" + agencyName + "', listings=" + listings.size() + "}"; }
@@ -0,0 +1,85 @@
+package domain;
+
+// Bounded heap keeping the k best rows of a columnar store by (price, id): the cheapest when ascending,
+// the most expensive otherwise. The worst kept row sits at the root, so each offer is O(log k) and a
+// row that cannot make the cut is rejected with a single comparison.
+final class RowHeap {
+    private final int[] heap;
+    private final boolean ascending;
+    private final double[] prices;
+    private final long[] ids;
+    private int size;
+
+    RowHeap(int k, boolean ascending, double[] prices, long[] ids) {
+        this.heap = new int[k];
+        this.ascending = ascending;
+        this.prices = prices;
+        this.ids = ids;
+    }
+
+    // true when a should be ranked after b
+    private boolean worse(int a, int b) {
+        int c = RowOrder.compare(a, b, prices, ids);
+        return ascending ? c > 0 : c < 0;
+    }
+
+    void offer(int row) {
+        if (size < heap.length) {
+            heap[size] = row;
+            siftUp(size++);
+        } else if (heap.length > 0 && worse(heap[0], row)) {
+            heap[0] = row;
+            siftDown(0);
+        }
+    }
+
+    void drainTo(RowHeap other) {
+        for (int i = 0; i < size; i++) {
+            other.offer(heap[i]);
+        }
+    }
+
+    // Best first; empties the heap.
+    int[] toSortedArray() {
+        int[] rows = new int[size];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return rows;
+    }
+
+    private void siftUp(int i) {
+        int row = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(row, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = row;
+    }
+
+    private void siftDown(int i) {
+        if (size == 0) {
+            return;
+        }
+        int row = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && worse(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!worse(heap[child], row)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+}
@@ -0,0 +1,57 @@
+package domain;
+
+// Orders row numbers of a columnar store by (price, id) without boxing them; shared by PropertyStore
+// and PropertyQueryExecutor.
+final class RowOrder {
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+
+    private RowOrder() {}
+
+    static int compare(int a, int b, double[] prices, long[] ids) {
+        int byPrice = Double.compare(prices[a], prices[b]);
+        return byPrice != 0 ? byPrice : Long.compare(ids[a], ids[b]);
+    }
+
+    // Quicksort of rows[lo..hi] inclusive.
+    static void sort(int[] rows, int lo, int hi, double[] prices, long[] ids) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(rows[mid], rows[lo], prices, ids) < 0) swap(rows, lo, mid);
+            if (compare(rows[hi], rows[lo], prices, ids) < 0) swap(rows, lo, hi);
+            if (compare(rows[hi], rows[mid], prices, ids) < 0) swap(rows, mid, hi);
+            int pivot = rows[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (compare(rows[i], pivot, prices, ids) < 0) i++;
+                while (compare(pivot, rows[j], prices, ids) < 0) j--;
+                if (i <= j) {
+                    swap(rows, i++, j--);
+                }
+            }
+            // recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                sort(rows, lo, j, prices, ids);
+                lo = i;
+            } else {
+                sort(rows, i, hi, prices, ids);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= lo && compare(row, rows[j], prices, ids) < 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void swap(int[] rows, int a, int b) {
+        int tmp = rows[a];
+        rows[a] = rows[b];
+        rows[b] = tmp;
+    }
+}
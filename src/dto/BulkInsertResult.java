@@ -0,0 +1,44 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkInsertResult {
+    private final int received;
+    private final List<Integer> ids;
+    private final List<RowError> errors;
+
+    public BulkInsertResult(int received, List<Integer> ids, List<RowError> errors) {
+        this.received = received;
+        this.ids = new ArrayList<>(ids);
+        this.errors = new ArrayList<>(errors);
+    }
+
+    public int getReceived() { return received; }
+    public int getInserted() { return (int) ids.stream().filter(id -> id != null).count(); }
+    public List<Integer> getIds() { return ids; }
+    public List<RowError> getErrors() { return errors; }
+
+    @Override
+    public String toString() {
+        return "BulkInsertResult{received=" + received + ", inserted=" + getInserted() + ", errors=" + errors.size() + "}";
+    }
+
+    public static class RowError {
+        private final int index;
+        private final String error;
+
+        public RowError(int index, String error) {
+            this.index = index;
+            this.error = error;
+        }
+
+        public int getIndex() { return index; }
+        public String getError() { return error; }
+
+        @Override
+        public String toString() {
+            return "RowError{index=" + index + ", error='" + error + "'}";
+        }
+    }
+}
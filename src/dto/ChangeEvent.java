@@ -0,0 +1,39 @@
+package dto;
+
+public class ChangeEvent {
+
+    public enum Type { INSERT, UPDATE, DELETE, RELOAD }
+
+    private final long sequence;
+    private final String entity;
+    private final Type type;
+    private final int id;
+    private final Object data;
+    private final long timestamp;
+
+    public ChangeEvent(long sequence, String entity, Type type, int id, Object data, long timestamp) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.type = type;
+        this.id = id;
+        this.data = data;
+        this.timestamp = timestamp;
+    }
+
+    // increases by one per event published by this server; restarts at 1 with the server
+    public long getSequence() { return sequence; }
+    // "property", "agency" or "realtor"
+    public String getEntity() { return entity; }
+    // RELOAD means rows changed without per-row events (bulk import): re-read the table
+    public Type getType() { return type; }
+    // 0 for RELOAD
+    public int getId() { return id; }
+    // the row after the change, or null for DELETE, RELOAD and events that only carry the id
+    public Object getData() { return data; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{sequence=" + sequence + ", entity=" + entity + ", type=" + type + ", id=" + id + "}";
+    }
+}
@@ -0,0 +1,71 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One page of a delta sync: the rows changed after log position "since", each id once with its current
+// state, and the ids deleted since. Apply both, then ask again with since = next until hasMore is false.
+// Positions are opaque to clients; "0" is the start of the log.
+public class ChangePage<T> {
+    public static final String START = "0";
+
+    private final String since;
+    private final String next;
+    private final boolean hasMore;
+    private final List<T> upserts;
+    private final List<Integer> deletes;
+
+    public ChangePage(String since, String next, boolean hasMore, List<T> upserts, List<Integer> deletes) {
+        this.since = since;
+        this.next = next;
+        this.hasMore = hasMore;
+        this.upserts = new ArrayList<>(upserts);
+        this.deletes = new ArrayList<>(deletes);
+    }
+
+    public String getSince() { return since; }
+    public String getNext() { return next; }
+    public boolean isHasMore() { return hasMore; }
+    public List<T> getUpserts() { return upserts; }
+    public List<Integer> getDeletes() { return deletes; }
+
+    // Collects log entries in log order; a later entry for the same id replaces the earlier one.
+    public static final class Builder<T> {
+        private final String since;
+        private final Map<Integer, T> latest = new LinkedHashMap<>();
+        private String next;
+
+        public Builder(String since) {
+            this.since = since;
+            this.next = since;
+        }
+
+        // row is the id's current state, or null when it no longer exists; position is the entry's own
+        public void add(String position, int id, T row) {
+            latest.remove(id);
+            latest.put(id, row);
+            next = position;
+        }
+
+        public ChangePage<T> build(boolean hasMore) {
+            List<T> upserts = new ArrayList<>();
+            List<Integer> deletes = new ArrayList<>();
+            for (Map.Entry<Integer, T> entry : latest.entrySet()) {
+                if (entry.getValue() == null) {
+                    deletes.add(entry.getKey());
+                } else {
+                    upserts.add(entry.getValue());
+                }
+            }
+            return new ChangePage<>(since, next, hasMore, upserts, deletes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangePage{since=" + since + ", next=" + next + ", hasMore=" + hasMore
+                + ", upserts=" + upserts.size() + ", deletes=" + deletes.size() + "}";
+    }
+}
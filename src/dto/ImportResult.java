@@ -0,0 +1,37 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResult {
+    private final long received;
+    private final long imported;
+    private final long rejected;
+    private final List<BulkInsertResult.RowError> errors;
+    private final long elapsedMillis;
+
+    public ImportResult(long received, long imported, long rejected, List<BulkInsertResult.RowError> errors, long elapsedMillis) {
+        this.received = received;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.errors = new ArrayList<>(errors);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getReceived() { return received; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    // the first rejected rows only; see rejected for the total
+    public List<BulkInsertResult.RowError> getErrors() { return errors; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? imported * 1000.0 : imported * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{received=" + received + ", imported=" + imported + ", rejected=" + rejected
+                + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
@@ -0,0 +1,52 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+// Answer to a lookup of several ids: the rows that exist, in the order their ids were requested
+// (duplicates collapsed), plus the ids that matched nothing.
+public class MultiGetResult<T> {
+    private final List<T> items;
+    private final List<Integer> missing;
+
+    public MultiGetResult(List<T> items, List<Integer> missing) {
+        this.items = new ArrayList<>(items);
+        this.missing = new ArrayList<>(missing);
+    }
+
+    // found may come back from the repository in any order.
+    public static <T> MultiGetResult<T> of(int[] ids, List<T> found, ToIntFunction<T> idOf) {
+        Map<Integer, T> byId = new HashMap<>(found.size() * 2);
+        for (T row : found) {
+            byId.put(idOf.applyAsInt(row), row);
+        }
+        Set<Integer> requested = new LinkedHashSet<>();
+        for (int id : ids) {
+            requested.add(id);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int id : requested) {
+            T row = byId.get(id);
+            if (row == null) {
+                missing.add(id);
+            } else {
+                items.add(row);
+            }
+        }
+        return new MultiGetResult<>(items, missing);
+    }
+
+    public List<T> getItems() { return items; }
+    public List<Integer> getMissing() { return missing; }
+
+    @Override
+    public String toString() {
+        return "MultiGetResult{items=" + items.size() + ", missing=" + missing + "}";
+    }
+}
@@ -0,0 +1,137 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Per-city price statistics. Histograms share equal-width buckets over [histogramMin, histogramMax]
+// of all listings, so bucket i means the same price band in every city; the last bucket includes the max.
+public class PropertyStats {
+    private final long count;
+    private final double histogramMin;
+    private final double histogramMax;
+    private final int buckets;
+    private final List<CityStats> cities;
+
+    public PropertyStats(long count, double histogramMin, double histogramMax, int buckets, List<CityStats> cities) {
+        this.count = count;
+        this.histogramMin = histogramMin;
+        this.histogramMax = histogramMax;
+        this.buckets = buckets;
+        this.cities = new ArrayList<>(cities);
+    }
+
+    public long getCount() { return count; }
+    public double getHistogramMin() { return histogramMin; }
+    public double getHistogramMax() { return histogramMax; }
+    public int getBuckets() { return buckets; }
+    public List<CityStats> getCities() { return cities; }
+
+    @Override
+    public String toString() {
+        return "PropertyStats{count=" + count + ", cities=" + cities.size() + ", buckets=" + buckets + "}";
+    }
+
+    // Computes the statistics from individual prices in memory, for stores that cannot aggregate themselves.
+    // Builders filled in parallel can be merged before build().
+    public static final class Builder {
+        private final Map<String, Prices> byCity = new TreeMap<>();
+        private double lo = Double.POSITIVE_INFINITY;
+        private double hi = Double.NEGATIVE_INFINITY;
+
+        public Builder add(String city, double price) {
+            byCity.computeIfAbsent(city, c -> new Prices()).add(price);
+            lo = Math.min(lo, price);
+            hi = Math.max(hi, price);
+            return this;
+        }
+
+        public Builder addAll(Builder other) {
+            for (Map.Entry<String, Prices> entry : other.byCity.entrySet()) {
+                Prices prices = byCity.computeIfAbsent(entry.getKey(), c -> new Prices());
+                for (int i = 0; i < entry.getValue().size; i++) {
+                    prices.add(entry.getValue().values[i]);
+                }
+            }
+            lo = Math.min(lo, other.lo);
+            hi = Math.max(hi, other.hi);
+            return this;
+        }
+
+        public PropertyStats build(int buckets) {
+            if (byCity.isEmpty()) {
+                return new PropertyStats(0, 0.0, 0.0, buckets, List.of());
+            }
+            return build(buckets, lo, hi);
+        }
+
+        // Histograms over the given range; see PropertyRepository.propertyStats(int, double, double).
+        public PropertyStats build(int buckets, double lo, double hi) {
+            List<CityStats> cities = new ArrayList<>(byCity.size());
+            long total = 0;
+            for (Map.Entry<String, Prices> entry : byCity.entrySet()) {
+                double[] prices = Arrays.copyOf(entry.getValue().values, entry.getValue().size);
+                Arrays.sort(prices);
+                long[] histogram = new long[buckets];
+                double sum = 0;
+                for (double price : prices) {
+                    sum += price;
+                    int bucket = hi > lo ? (int) ((price - lo) / (hi - lo) * buckets) : 0;
+                    histogram[Math.max(0, Math.min(bucket, buckets - 1))]++;
+                }
+                int n = prices.length;
+                double median = n % 2 == 1 ? prices[n / 2] : (prices[n / 2 - 1] + prices[n / 2]) / 2;
+                cities.add(new CityStats(entry.getKey(), n, prices[0], prices[n - 1], sum / n, median, histogram));
+                total += n;
+            }
+            return new PropertyStats(total, lo, hi, buckets, cities);
+        }
+
+        private static final class Prices {
+            private double[] values = new double[8];
+            private int size;
+
+            private void add(double price) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = price;
+            }
+        }
+    }
+
+    public static class CityStats {
+        private final String city;
+        private final long count;
+        private final double min;
+        private final double max;
+        private final double mean;
+        private final double median;
+        private final long[] histogram;
+
+        public CityStats(String city, long count, double min, double max, double mean, double median, long[] histogram) {
+            this.city = city;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.median = median;
+            this.histogram = histogram;
+        }
+
+        public String getCity() { return city; }
+        public long getCount() { return count; }
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public double getMean() { return mean; }
+        public double getMedian() { return median; }
+        public long[] getHistogram() { return histogram; }
+
+        @Override
+        public String toString() {
+            return "CityStats{city='" + city + "', count=" + count + ", mean=" + mean + "}";
+        }
+    }
+}
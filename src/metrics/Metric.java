@@ -0,0 +1,7 @@
+package metrics;
+
+// One labelled time series (or, for histograms, a group of series) in the Prometheus text format.
+interface Metric {
+
+    void writeTo(StringBuilder out, String name, String labels);
+}
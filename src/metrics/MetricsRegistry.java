@@ -0,0 +1,157 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Named metric families with labelled children, rendered in the Prometheus text exposition format.
+// Look-ups are a ConcurrentHashMap get once a series exists; hot paths should still keep the returned
+// Counter/Histogram in a field instead of resolving it per call.
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").child(labels, Counter::new);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "histogram").child(labels, () -> new Histogram(Histogram.DEFAULT_BUCKETS));
+    }
+
+    // Gauges are sampled at scrape time; registering the same series again replaces the supplier.
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").children.put(formatLabels(labels), new Gauge(value));
+    }
+
+    // Counters whose total is kept elsewhere (e.g. pool statistics), sampled at scrape time like a gauge.
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "counter").children.put(formatLabels(labels), new SampledCounter(value));
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> child : family.children.entrySet()) {
+                child.getValue().writeTo(out, name, child.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type + ".");
+        }
+        return family;
+    }
+
+    static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs.");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '"': sb.append("\\\""); break;
+                    case '\n': sb.append("\\n"); break;
+                    default: sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Metric> children = new ConcurrentSkipListMap<>();
+        private final Map<String, Metric> lookup = new ConcurrentHashMap<>();
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        private Metric child(String[] labels, Supplier<Metric> factory) {
+            String key = formatLabels(labels);
+            Metric metric = lookup.get(key);
+            if (metric == null) {
+                metric = lookup.computeIfAbsent(key, k -> {
+                    Metric created = factory.get();
+                    children.put(k, created);
+                    return created;
+                });
+            }
+            return metric;
+        }
+    }
+
+    private static final class Gauge implements Metric {
+        private final DoubleSupplier value;
+
+        private Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ').append(formatDouble(value.getAsDouble())).append('\n');
+        }
+    }
+
+    private static final class SampledCounter implements Metric {
+        private final LongSupplier value;
+
+        private SampledCounter(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ').append(value.getAsLong()).append('\n');
+        }
+    }
+}
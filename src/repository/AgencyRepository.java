@@ -1,12 +1,22 @@
 package repository;
 
 import dto.AgencyRecord;
+import dto.ChangePage;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AgencyRepository {
+    // returns the generated id
     int insertAgency(String name, String address);
     AgencyRecord getAgencyById(int id);
+    // The rows that exist, in no particular order; unknown ids are simply absent.
+    List<AgencyRecord> getAgenciesByIds(int[] ids);
     List<AgencyRecord> listAgencies();
+    List<AgencyRecord> listAgencies(int afterId, int limit);
+    void forEachAgency(Consumer<AgencyRecord> consumer);
     int updateAgency(int id, String name, String address);
     int deleteAgency(int id);
+    // Rows changed after log position since, oldest change first, at most limit log entries; each id once, with
+    // its current row or as a deletion. null when since is not a position in the log.
+    ChangePage<AgencyRecord> getAgencyChanges(String since, int limit);
 }
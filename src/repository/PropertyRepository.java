@@ -1,12 +1,35 @@
 package repository;
 
+import dto.ChangePage;
 import dto.PropertyRecord;
+import dto.PropertyStats;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PropertyRepository {
     int insertProperty(String city, double price);
+    int[] insertProperties(List<PropertyRecord> properties);
+    // Bulk load: source pushes rows into the given consumer; all rows are written or none. Returns the row count.
+    long copyProperties(Consumer<Consumer<PropertyRecord>> source);
     PropertyRecord getPropertyById(int id);
+    // The rows that exist, in no particular order; unknown ids are simply absent.
+    List<PropertyRecord> getPropertiesByIds(int[] ids);
     List<PropertyRecord> listProperties();
+    List<PropertyRecord> listProperties(int afterId, int limit);
+    void forEachProperty(Consumer<PropertyRecord> consumer);
+    // Same rows, but never from a read replica: for callers that keep what they read and only follow later
+    // changes (the search index), where a lagging copy would stay wrong.
+    void forEachPrimaryProperty(Consumer<PropertyRecord> consumer);
     int updateProperty(int id, String city, double price);
     int deleteProperty(int id);
+    // Batched forms of update/delete in one transaction; element i is the row count for element i.
+    int[] updateProperties(List<PropertyRecord> properties);
+    int[] deleteProperties(int[] ids);
+    PropertyStats propertyStats(int buckets);
+    // Histograms over [histogramMin, histogramMax] instead of this store's own price range, so the results of
+    // stores holding parts of one table line up bucket for bucket. Prices outside the range count in the end buckets.
+    PropertyStats propertyStats(int buckets, double histogramMin, double histogramMax);
+    // Rows changed after log position since, oldest change first, at most limit log entries; each id once, with
+    // its current row or as a deletion. null when since is not a position in the log.
+    ChangePage<PropertyRecord> getPropertyChanges(String since, int limit);
 }
@@ -1,12 +1,22 @@
 package repository;
 
+import dto.ChangePage;
 import dto.RealtorRecord;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RealtorRepository {
+    // returns the generated id
     int insertRealtor(String name);
     RealtorRecord getRealtorById(int id);
+    // The rows that exist, in no particular order; unknown ids are simply absent.
+    List<RealtorRecord> getRealtorsByIds(int[] ids);
     List<RealtorRecord> listRealtors();
+    List<RealtorRecord> listRealtors(int afterId, int limit);
+    void forEachRealtor(Consumer<RealtorRecord> consumer);
     int updateRealtor(int id, String name);
     int deleteRealtor(int id);
+    // Rows changed after log position since, oldest change first, at most limit log entries; each id once, with
+    // its current row or as a deletion. null when since is not a position in the log.
+    ChangePage<RealtorRecord> getRealtorChanges(String since, int limit);
 }
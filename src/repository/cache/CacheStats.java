@@ -0,0 +1,48 @@
+package repository.cache;
+
+public class CacheStats {
+    private final String name;
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long negativeHits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    public CacheStats(String name, int size, int maxSize, long hits, long negativeHits, long misses,
+                      long evictions, long expirations, long invalidations) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    public String getName() { return name; }
+    public int getSize() { return size; }
+    public int getMaxSize() { return maxSize; }
+    public long getHits() { return hits; }
+    public long getNegativeHits() { return negativeHits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public long getInvalidations() { return invalidations; }
+
+    public double getHitRatio() {
+        long lookups = hits + negativeHits + misses;
+        return lookups == 0 ? 0.0 : (hits + negativeHits) / (double) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{name='" + name + "', size=" + size + ", hits=" + hits + ", negativeHits=" + negativeHits
+                + ", misses=" + misses + ", evictions=" + evictions + ", expirations=" + expirations
+                + ", invalidations=" + invalidations + "}";
+    }
+}
@@ -0,0 +1,94 @@
+package repository.cache;
+
+import dto.AgencyRecord;
+import dto.ChangePage;
+import repository.AgencyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CachingAgencyRepository implements AgencyRepository {
+    private final AgencyRepository delegate;
+    private final EntityCache<AgencyRecord> cache;
+
+    public CachingAgencyRepository(AgencyRepository delegate, EntityCache<AgencyRecord> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // For writes made elsewhere (another server, direct SQL) that this decorator did not see.
+    public void evict(int id) {
+        cache.invalidate(id);
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    @Override
+    public int insertAgency(String name, String address) {
+        int result = delegate.insertAgency(name, address);
+        cache.invalidateMisses();
+        return result;
+    }
+
+    @Override
+    public AgencyRecord getAgencyById(int id) {
+        return cache.get(id, delegate::getAgencyById);
+    }
+
+    @Override
+    public List<AgencyRecord> getAgenciesByIds(int[] ids) {
+        List<AgencyRecord> found = new ArrayList<>(ids.length);
+        for (AgencyRecord record : cache.getAll(ids, delegate::getAgenciesByIds, AgencyRecord::getId).values()) {
+            if (record != null) {
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<AgencyRecord> listAgencies() {
+        return delegate.listAgencies();
+    }
+
+    @Override
+    public List<AgencyRecord> listAgencies(int afterId, int limit) {
+        return delegate.listAgencies(afterId, limit);
+    }
+
+    @Override
+    public void forEachAgency(Consumer<AgencyRecord> consumer) {
+        delegate.forEachAgency(consumer);
+    }
+
+    @Override
+    public int updateAgency(int id, String name, String address) {
+        try {
+            return delegate.updateAgency(id, name, address);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public int deleteAgency(int id) {
+        try {
+            return delegate.deleteAgency(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // Not cached: a page is only ever read once, by the client that holds its cursor.
+    @Override
+    public ChangePage<AgencyRecord> getAgencyChanges(String since, int limit) {
+        return delegate.getAgencyChanges(since, limit);
+    }
+}
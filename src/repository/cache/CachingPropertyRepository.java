@@ -0,0 +1,146 @@
+package repository.cache;
+
+import dto.ChangePage;
+import dto.PropertyRecord;
+import dto.PropertyStats;
+import repository.PropertyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CachingPropertyRepository implements PropertyRepository {
+    private final PropertyRepository delegate;
+    private final EntityCache<PropertyRecord> cache;
+
+    public CachingPropertyRepository(PropertyRepository delegate, EntityCache<PropertyRecord> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // For writes made elsewhere (another server, direct SQL) that this decorator did not see.
+    public void evict(int id) {
+        cache.invalidate(id);
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    @Override
+    public int insertProperty(String city, double price) {
+        int result = delegate.insertProperty(city, price);
+        cache.invalidateMisses();
+        return result;
+    }
+
+    @Override
+    public int[] insertProperties(List<PropertyRecord> properties) {
+        int[] ids = delegate.insertProperties(properties);
+        cache.invalidateMisses();
+        return ids;
+    }
+
+    @Override
+    public long copyProperties(Consumer<Consumer<PropertyRecord>> source) {
+        long result = delegate.copyProperties(source);
+        cache.invalidateMisses();
+        return result;
+    }
+
+    @Override
+    public PropertyRecord getPropertyById(int id) {
+        return cache.get(id, delegate::getPropertyById);
+    }
+
+    @Override
+    public List<PropertyRecord> getPropertiesByIds(int[] ids) {
+        List<PropertyRecord> found = new ArrayList<>(ids.length);
+        for (PropertyRecord record : cache.getAll(ids, delegate::getPropertiesByIds, PropertyRecord::getId).values()) {
+            if (record != null) {
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties() {
+        return delegate.listProperties();
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties(int afterId, int limit) {
+        return delegate.listProperties(afterId, limit);
+    }
+
+    @Override
+    public void forEachProperty(Consumer<PropertyRecord> consumer) {
+        delegate.forEachProperty(consumer);
+    }
+
+    @Override
+    public void forEachPrimaryProperty(Consumer<PropertyRecord> consumer) {
+        delegate.forEachPrimaryProperty(consumer);
+    }
+
+    @Override
+    public PropertyStats propertyStats(int buckets) {
+        return delegate.propertyStats(buckets);
+    }
+
+    @Override
+    public PropertyStats propertyStats(int buckets, double histogramMin, double histogramMax) {
+        return delegate.propertyStats(buckets, histogramMin, histogramMax);
+    }
+
+    @Override
+    public int updateProperty(int id, String city, double price) {
+        try {
+            return delegate.updateProperty(id, city, price);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public int deleteProperty(int id) {
+        try {
+            return delegate.deleteProperty(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // Not cached: a page is only ever read once, by the client that holds its cursor.
+    @Override
+    public ChangePage<PropertyRecord> getPropertyChanges(String since, int limit) {
+        return delegate.getPropertyChanges(since, limit);
+    }
+
+    @Override
+    public int[] updateProperties(List<PropertyRecord> properties) {
+        try {
+            return delegate.updateProperties(properties);
+        } finally {
+            for (PropertyRecord property : properties) {
+                cache.invalidate(property.getId());
+            }
+        }
+    }
+
+    @Override
+    public int[] deleteProperties(int[] ids) {
+        try {
+            return delegate.deleteProperties(ids);
+        } finally {
+            for (int id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+}
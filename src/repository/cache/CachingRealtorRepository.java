@@ -0,0 +1,94 @@
+package repository.cache;
+
+import dto.ChangePage;
+import dto.RealtorRecord;
+import repository.RealtorRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CachingRealtorRepository implements RealtorRepository {
+    private final RealtorRepository delegate;
+    private final EntityCache<RealtorRecord> cache;
+
+    public CachingRealtorRepository(RealtorRepository delegate, EntityCache<RealtorRecord> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // For writes made elsewhere (another server, direct SQL) that this decorator did not see.
+    public void evict(int id) {
+        cache.invalidate(id);
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    @Override
+    public int insertRealtor(String name) {
+        int result = delegate.insertRealtor(name);
+        cache.invalidateMisses();
+        return result;
+    }
+
+    @Override
+    public RealtorRecord getRealtorById(int id) {
+        return cache.get(id, delegate::getRealtorById);
+    }
+
+    @Override
+    public List<RealtorRecord> getRealtorsByIds(int[] ids) {
+        List<RealtorRecord> found = new ArrayList<>(ids.length);
+        for (RealtorRecord record : cache.getAll(ids, delegate::getRealtorsByIds, RealtorRecord::getId).values()) {
+            if (record != null) {
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<RealtorRecord> listRealtors() {
+        return delegate.listRealtors();
+    }
+
+    @Override
+    public List<RealtorRecord> listRealtors(int afterId, int limit) {
+        return delegate.listRealtors(afterId, limit);
+    }
+
+    @Override
+    public void forEachRealtor(Consumer<RealtorRecord> consumer) {
+        delegate.forEachRealtor(consumer);
+    }
+
+    @Override
+    public int updateRealtor(int id, String name) {
+        try {
+            return delegate.updateRealtor(id, name);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public int deleteRealtor(int id) {
+        try {
+            return delegate.deleteRealtor(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // Not cached: a page is only ever read once, by the client that holds its cursor.
+    @Override
+    public ChangePage<RealtorRecord> getRealtorChanges(String since, int limit) {
+        return delegate.getRealtorChanges(since, limit);
+    }
+}
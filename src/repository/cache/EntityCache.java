@@ -0,0 +1,241 @@
+package repository.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+// Bounded cache keyed by entity id with a TTL per entry. Misses are cached too
+// (as null values with a shorter TTL) so repeated lookups of unknown ids skip the database.
+// Hits take no lock: entries live in a ConcurrentHashMap and a hit only marks its entry as used. Stores,
+// invalidations and evictions share one lock. Eviction is CLOCK, an approximation of LRU: entries wait in
+// insertion order, and one that was used since it last came up gets another round instead of being dropped.
+// A load is not stored when its id was invalidated after the load started, so invalidating one id does not
+// void loads of the others; new rows void only loads that found nothing.
+// When the loader may read from a lagging replica, staleReadMillis is how far behind it can be: for that
+// long after an id is invalidated (or after new rows make misses wrong) loads are returned but not cached,
+// since they may still show the row as it was before the write.
+public class EntityCache<V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long staleReadNanos;
+    private final ConcurrentHashMap<Integer, Entry<V>> entries = new ConcurrentHashMap<>();
+    // entries in insertion order for CLOCK eviction; may hold replaced or removed ones, skipped when reached
+    private final ArrayDeque<Entry<V>> clock = new ArrayDeque<>();
+    // id -> when it was last invalidated, oldest first; holds at most maxSize ids
+    private final LinkedHashMap<Integer, Long> invalidatedAt = new LinkedHashMap<>();
+    // the newest invalidation dropped from invalidatedAt, standing in for all the ids dropped
+    private long forgottenAt;
+    private long missesInvalidatedAt;
+    private long clearedAt;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long evictions;
+    private final LongAdder expirations = new LongAdder();
+    private long invalidations;
+
+    public EntityCache(String name, int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this(name, maxSize, ttlMillis, negativeTtlMillis, 0);
+    }
+
+    public EntityCache(String name, int maxSize, long ttlMillis, long negativeTtlMillis, long staleReadMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive.");
+        }
+        if (staleReadMillis < 0) {
+            throw new IllegalArgumentException("Stale read window must not be negative.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+        this.staleReadNanos = staleReadMillis * 1_000_000L;
+        // before any load and outside the stale-read window
+        long longAgo = System.nanoTime() - staleReadNanos - 1;
+        this.forgottenAt = longAgo;
+        this.missesInvalidatedAt = longAgo;
+        this.clearedAt = longAgo;
+    }
+
+    public V get(int id, IntFunction<V> loader) {
+        // taken before the lookup: an invalidation of id after it makes put() drop this load
+        long loadStart = System.nanoTime();
+        Entry<V> entry = lookup(id, loadStart);
+        if (entry != null) {
+            return entry.value;
+        }
+        misses.increment();
+        V value = loader.apply(id);
+        put(id, value, loadStart);
+        return value;
+    }
+
+    // The live entry for id, counted as a hit, or null; an expired entry is dropped.
+    private Entry<V> lookup(int id, long now) {
+        Entry<V> entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - now <= 0) {
+            if (entries.remove(id, entry)) {
+                expirations.increment();
+            }
+            return null;
+        }
+        if (!entry.used) {
+            entry.used = true;
+        }
+        if (entry.value == null) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    // Multi-get: ids with a live entry are answered from memory and the rest go to the loader in one call.
+    // The loader returns the rows it found; ids it did not return are cached as misses. The result maps
+    // each distinct id, in request order, to its value or to null when it does not exist.
+    public Map<Integer, V> getAll(int[] ids, Function<int[], List<V>> loader, ToIntFunction<V> idOf) {
+        Map<Integer, V> result = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long loadStart = System.nanoTime();
+        for (int id : ids) {
+            if (result.containsKey(id)) {
+                continue;
+            }
+            Entry<V> entry = lookup(id, loadStart);
+            if (entry != null) {
+                result.put(id, entry.value);
+                continue;
+            }
+            misses.increment();
+            result.put(id, null);
+            missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            int[] toLoad = new int[missing.size()];
+            for (int i = 0; i < toLoad.length; i++) {
+                toLoad[i] = missing.get(i);
+            }
+            for (V value : loader.apply(toLoad)) {
+                result.put(idOf.applyAsInt(value), value);
+            }
+            synchronized (this) {
+                for (int id : toLoad) {
+                    put(id, result.get(id), loadStart);
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized void put(int id, V value, long loadStart) {
+        long now = System.nanoTime();
+        Long idInvalidatedAt = invalidatedAt.get(id);
+        if (voids(forgottenAt, loadStart, now)
+                || voids(clearedAt, loadStart, now)
+                || (value == null && voids(missesInvalidatedAt, loadStart, now))
+                || (idInvalidatedAt != null && voids(idInvalidatedAt, loadStart, now))) {
+            return;
+        }
+        long ttl = value == null ? negativeTtlNanos : ttlNanos;
+        if (ttl > 0) {
+            Entry<V> entry = new Entry<>(id, value, now + ttl);
+            entries.put(id, entry);
+            clock.addLast(entry);
+            evict();
+        }
+    }
+
+    private void evict() {
+        while (entries.size() > maxSize) {
+            Entry<V> entry = clock.pollFirst();
+            if (entry == null) {
+                return;
+            }
+            if (entries.get(entry.id) != entry) {
+                continue;
+            }
+            if (entry.used) {
+                entry.used = false;
+                clock.addLast(entry);
+            } else if (entries.remove(entry.id, entry)) {
+                evictions++;
+            }
+        }
+        // invalidations and expiries leave their entries behind; drop them before they outnumber the live ones
+        if (clock.size() > 2 * maxSize) {
+            clock.removeIf(entry -> entries.get(entry.id) != entry);
+        }
+    }
+
+    // An invalidation at the given time voids a load that started no later, which may have read the row as
+    // it was before the write, and, with a lagging replica, any load within staleReadNanos after it.
+    private boolean voids(long invalidated, long loadStart, long now) {
+        return invalidated - loadStart >= 0 || now - invalidated < staleReadNanos;
+    }
+
+    public synchronized void invalidate(int id) {
+        invalidations++;
+        entries.remove(id);
+        // re-inserted so the map stays ordered by time
+        invalidatedAt.remove(id);
+        invalidatedAt.put(id, System.nanoTime());
+        Iterator<Long> it = invalidatedAt.values().iterator();
+        while (invalidatedAt.size() > maxSize) {
+            forgottenAt = it.next();
+            it.remove();
+        }
+    }
+
+    // New rows may turn cached "not found" answers into wrong ones.
+    public synchronized void invalidateMisses() {
+        missesInvalidatedAt = System.nanoTime();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().value == null) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        clearedAt = System.nanoTime();
+        invalidations += entries.size();
+        entries.clear();
+        clock.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(name, entries.size(), maxSize, hits.sum(), negativeHits.sum(), misses.sum(), evictions,
+                expirations.sum(), invalidations);
+    }
+
+    private static final class Entry<V> {
+        private final int id;
+        private final V value;
+        private final long expiresAt;
+        // set by hits, cleared when CLOCK passes the entry over
+        private volatile boolean used;
+
+        private Entry(int id, V value, long expiresAt) {
+            this.id = id;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package repository.jdbc;
+
+import config.ConnectionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps change_log bounded. The triggers keep one entry per live row by replacing a row's earlier entry as
+// they write, so only deletions pile up; every interval this trims each entity to its newest maxDeletes, the
+// same bound the in-process logs use (changes.maxDeletes). Servers sharing the database take turns through an
+// advisory lock, so one trims while the others skip the round.
+public final class ChangeLogCompactor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogCompactor.class);
+
+    // pg_try_advisory_xact_lock key, "chlg"
+    private static final long LOCK_KEY = 0x63686c67L;
+
+    private final ConnectionProvider provider;
+    private final List<String> entities;
+    private final int maxDeletes;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor;
+
+    public ChangeLogCompactor(ConnectionProvider provider, List<String> entities, int maxDeletes, long intervalMillis) {
+        if (maxDeletes < 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Deletion limit must not be negative and the interval must be positive.");
+        }
+        this.provider = provider;
+        this.entities = List.copyOf(entities);
+        this.maxDeletes = maxDeletes;
+        this.intervalMillis = intervalMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-log-compactor-" + String.join("-", entities));
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void compact() {
+        try (Connection conn = provider.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (tryLock(conn)) {
+                    for (String entity : entities) {
+                        int dropped = ChangeLogSql.trimDeletes(conn, entity, maxDeletes);
+                        if (dropped > 0) {
+                            logger.info("Dropped the {} oldest {} deletions from change_log", dropped, entity);
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("change_log compaction failed, retrying in {} ms", intervalMillis, e);
+        }
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            stmt.setLong(1, LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,129 @@
+package repository.jdbc;
+
+import dto.ChangePage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Reads change_log, which the schema's triggers fill in the writing transaction. Entries are read in
+// (txid, version) order and only from transactions older than every transaction still running, so an entry
+// can never commit behind a position a reader has already passed, however commits interleave. A position
+// is "txid.version" of the last entry read, so it stays valid after that entry has been replaced; each entry
+// is joined to the row's current state, and a missing row is a deletion.
+//
+// The other side of that guarantee: while any transaction that has written something is open, in this
+// database or another one of the cluster, pages stop at its txid. Plain reads (listings, exports) never take
+// a txid and do not hold it back; a long COPY import or a session left idle in a transaction does, and
+// readers catch up as soon as it ends. idle_in_transaction_session_timeout bounds the second case.
+final class ChangeLogSql {
+
+    interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private ChangeLogSql() {
+    }
+
+    // Parameters: txid, version, entity, entity, limit + 1. columns are qualified with "t.".
+    // A position below the entity's floor (see trimDeletes), or from a transaction that has not started
+    // yet, yields no row at all. A position at the floor passes: its reader has seen the trimmed deletion.
+    // The start of the log always passes.
+    static String select(String table, String columns) {
+        return "WITH cursor AS (SELECT CAST(? AS xid8) AS txid, CAST(? AS bigint) AS version),"
+                + " position AS ("
+                + " SELECT cursor.txid, cursor.version FROM cursor"
+                + " WHERE cursor.version = 0 OR (cursor.txid < pg_snapshot_xmax(pg_current_snapshot())"
+                + " AND NOT EXISTS (SELECT 1 FROM change_log_floor f WHERE f.entity = ?"
+                + " AND (f.txid, f.version) > (cursor.txid, cursor.version)))"
+                + ")"
+                + " SELECT c.txid::text AS log_txid, c.version AS log_version, c.entity_id, " + columns
+                + " FROM position p LEFT JOIN LATERAL ("
+                + " SELECT l.txid, l.version, l.entity_id FROM change_log l"
+                + " WHERE l.entity = ? AND (l.txid, l.version) > (p.txid, p.version)"
+                + " AND l.txid < pg_snapshot_xmin(pg_current_snapshot())"
+                + " ORDER BY l.txid, l.version LIMIT ?"
+                + ") c ON true"
+                + " LEFT JOIN " + table + " t ON t.id = c.entity_id"
+                + " ORDER BY c.txid, c.version";
+    }
+
+    // null when since is not a position in the log (never issued, or below the floor)
+    static <T> ChangePage<T> read(PreparedStatement stmt, String entity, String since, int limit, RowReader<T> reader)
+            throws SQLException {
+        long[] position = parsePosition(since);
+        if (position == null) {
+            return null;
+        }
+        stmt.setString(1, Long.toString(position[0]));
+        stmt.setLong(2, position[1]);
+        stmt.setString(3, entity);
+        stmt.setString(4, entity);
+        stmt.setInt(5, limit + 1);
+        ChangePage.Builder<T> page = new ChangePage.Builder<>(since);
+        boolean positioned = false;
+        int entries = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                positioned = true;
+                long version = rs.getLong("log_version");
+                if (rs.wasNull()) {
+                    break;
+                }
+                if (++entries > limit) {
+                    return page.build(true);
+                }
+                String next = rs.getString("log_txid") + "." + version;
+                rs.getInt("id");
+                page.add(next, rs.getInt("entity_id"), rs.wasNull() ? null : reader.read(rs));
+            }
+        }
+        return positioned ? page.build(false) : null;
+    }
+
+    // {txid, version}; {0, 0} for the start of the log, null for anything that is not a position
+    static long[] parsePosition(String since) {
+        if (since.equals(ChangePage.START)) {
+            return new long[]{0, 0};
+        }
+        int dot = since.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            long txid = Long.parseLong(since.substring(0, dot));
+            long version = Long.parseLong(since.substring(dot + 1));
+            return txid > 0 && version > 0 ? new long[]{txid, version} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Drops the entity's oldest deletions beyond maxDeletes, newest kept, and raises its floor to the newest
+    // one dropped: a client behind that would never learn of it, so its cursor is answered as unknown.
+    // Updates and re-inserts need no trimming, the triggers replace a row's earlier entry as they write.
+    static int trimDeletes(Connection conn, String entity, int maxDeletes) throws SQLException {
+        String sql = "WITH dropped AS ("
+                + " DELETE FROM change_log WHERE version IN ("
+                + " SELECT version FROM change_log WHERE entity = ? AND op = 'D'"
+                + " ORDER BY txid DESC, version DESC OFFSET ?)"
+                + " RETURNING txid, version"
+                + "), raised AS ("
+                + " INSERT INTO change_log_floor AS f (entity, txid, version)"
+                + " SELECT ?, txid, version FROM dropped ORDER BY txid DESC, version DESC LIMIT 1"
+                + " ON CONFLICT (entity) DO UPDATE SET txid = EXCLUDED.txid, version = EXCLUDED.version"
+                + " WHERE (f.txid, f.version) < (EXCLUDED.txid, EXCLUDED.version)"
+                + ")"
+                + " SELECT count(*) FROM dropped";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, entity);
+            stmt.setInt(2, maxDeletes);
+            stmt.setString(3, entity);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
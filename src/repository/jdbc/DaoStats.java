@@ -0,0 +1,83 @@
+package repository.jdbc;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import org.postgresql.PGStatement;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts DAO operations and the statements they prepare, and times statement execution per DAO and SQL
+// verb into the metrics registry. Executions are also split by whether the driver ran them as a named
+// server-side prepared statement, i.e. reused a server plan.
+public final class DaoStats {
+
+    private static final Map<String, DaoStats> registry = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final Map<String, Histogram> queryTimers = new ConcurrentHashMap<>();
+    private final Counter serverPrepared;
+    private final Counter unnamed;
+
+    private DaoStats(String name) {
+        this.name = name;
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        this.serverPrepared = metrics.counter("dao_statement_executions_total",
+                "DAO statement executions by prepare mode.", "dao", name, "prepare", "server");
+        this.unnamed = metrics.counter("dao_statement_executions_total",
+                "DAO statement executions by prepare mode.", "dao", name, "prepare", "unnamed");
+    }
+
+    public static DaoStats forDao(String name) {
+        return registry.computeIfAbsent(name, DaoStats::new);
+    }
+
+    public static Map<String, DaoStats> all() {
+        return new TreeMap<>(registry);
+    }
+
+    void recordOperation() {
+        operations.increment();
+    }
+
+    void recordStatement() {
+        statements.increment();
+    }
+
+    PreparedStatement timed(PreparedStatement stmt, String sql) throws SQLException {
+        Histogram timer = queryTimers.computeIfAbsent(verb(sql), verb ->
+                MetricsRegistry.getDefault().histogram("dao_query_seconds",
+                        "Time spent executing DAO statements.", "dao", name, "statement", verb));
+        PGStatement pg = stmt.isWrapperFor(PGStatement.class) ? stmt.unwrap(PGStatement.class) : null;
+        return TimedStatement.wrap(stmt, timer, pg, serverPrepared, unnamed);
+    }
+
+    // For hot single-row lookups: use a named server-side statement from the first execution rather than
+    // after the driver's prepareThreshold, so the parse/plan is paid once per connection.
+    PreparedStatement serverPrepared(PreparedStatement stmt) throws SQLException {
+        if (stmt.isWrapperFor(PGStatement.class)) {
+            stmt.unwrap(PGStatement.class).setPrepareThreshold(1);
+        }
+        return stmt;
+    }
+
+    private static String verb(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = trimmed.indexOf(' ');
+        return (end < 0 ? trimmed : trimmed.substring(0, end)).toLowerCase(Locale.ROOT);
+    }
+
+    public String getName() { return name; }
+    public long getOperations() { return operations.sum(); }
+    public long getStatements() { return statements.sum(); }
+    public long getServerPreparedExecutions() { return serverPrepared.get(); }
+    public long getUnnamedExecutions() { return unnamed.get(); }
+}
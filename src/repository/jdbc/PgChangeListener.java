@@ -0,0 +1,137 @@
+package repository.jdbc;
+
+import config.PooledConnectionProvider;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Row changes from every writer of the database, via triggers that NOTIFY on commit and one LISTEN session
+// held on its own connection outside the pool. Payloads are "entity:operation:id"; rows are not included
+// (NOTIFY payloads are capped at 8000 bytes and the row may change again before anyone reads it). The triggers
+// come with db/schema.sql, like the change_log ones, and stay installed whether or not anyone listens: a
+// listener never runs DDL on the shared tables. A statement that writes more than 500 rows (a COPY or a large
+// batch) sends one "reload" instead of a notification per row, the same rule the services apply to their feed.
+// Notifications sent while the session is down are lost, so after every reconnect each entity is
+// reported as "reload". A listener watches the tables of the entities it was given; when several databases hold
+// parts of the data (property shards), each gets its own listener, and notifications for entities another
+// listener owns are ignored in case two of them share a database.
+public final class PgChangeListener implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PgChangeListener.class);
+
+    public static final String CHANNEL = "realestate_changes";
+    public static final List<String> ENTITIES = List.of("property", "agency", "realtor");
+    private static final int POLL_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    public interface Sink {
+        // operation is insert, update, delete or reload (id 0)
+        void onChange(String entity, String operation, int id);
+    }
+
+    private final PooledConnectionProvider provider;
+    private final Sink sink;
+    private final List<String> entities;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public PgChangeListener(PooledConnectionProvider provider, Sink sink) {
+        this(provider, sink, ENTITIES);
+    }
+
+    public PgChangeListener(PooledConnectionProvider provider, Sink sink, List<String> entities) {
+        if (!ENTITIES.containsAll(entities)) {
+            throw new IllegalArgumentException("Unknown entity in " + entities + "; expected some of " + ENTITIES);
+        }
+        this.provider = provider;
+        this.sink = sink;
+        this.entities = List.copyOf(entities);
+        this.thread = new Thread(this::run, "pg-change-listener-" + String.join("-", entities));
+        this.thread.setDaemon(true);
+    }
+
+    // The schema (and with it the triggers) is bootstrapped first, so no change is committed unannounced
+    // after the listener is up.
+    public void start() {
+        SchemaBootstrap.ensure(provider);
+        thread.start();
+    }
+
+    private void run() {
+        long backoff = 500;
+        boolean reconnect = false;
+        while (!closed) {
+            try (Connection conn = provider.openUnpooled()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                logger.info("Listening for row changes on channel {}", CHANNEL);
+                if (reconnect) {
+                    reloadAll();
+                }
+                backoff = 500;
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (closed) {
+                    return;
+                }
+                logger.warn("Change listener lost its connection ({}), retrying in {} ms", e.getMessage(), backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            reconnect = true;
+        }
+    }
+
+    private void reloadAll() {
+        for (String entity : entities) {
+            sink.onChange(entity, "reload", 0);
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3) {
+            logger.warn("Ignoring malformed change notification '{}'", payload);
+            return;
+        }
+        if (!entities.contains(parts[0])) {
+            return;
+        }
+        try {
+            sink.onChange(parts[0], parts[1], Integer.parseInt(parts[2]));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to dispatch change notification '{}'", payload, e);
+        }
+    }
+
+    // Stops listening; the triggers stay, other servers may still be listening.
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join(2L * POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
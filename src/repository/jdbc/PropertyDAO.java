@@ -1,83 +1,201 @@
 package repository.jdbc;
 
+import config.ConnectionProvider;
 import config.DatabaseConnection;
+import dto.ChangePage;
 import dto.PropertyRecord;
+import dto.PropertyStats;
 import exceptions.DataAccessException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import repository.PropertyRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PropertyDAO implements PropertyRepository {
 
-    private static final String CREATE_PROPERTY_TABLE_SQL = """
-            CREATE TABLE IF NOT EXISTS property (
-                id SERIAL PRIMARY KEY,
-                city VARCHAR(120) NOT NULL,
-                price NUMERIC(12, 2) NOT NULL
-            )
-            """;
+    private static final DaoStats stats = DaoStats.forDao("property");
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String[] GENERATED_ID = {"id"};
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
 
-    private static final String PROPERTY_TABLE = "property";
-    private static final String LEGACY_PROPERTY_TABLE = "property_listing";
+    private final ConnectionProvider connectionProvider;
+    private volatile PropertySql sql;
 
-    private void ensurePropertyTableExists(Connection conn) throws SQLException {
-        try (PreparedStatement stmt = conn.prepareStatement(CREATE_PROPERTY_TABLE_SQL)) {
-            stmt.execute();
+    public PropertyDAO() {
+        this(DatabaseConnection.getProvider());
+    }
+
+    public PropertyDAO(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    private PropertySql sql() {
+        PropertySql current = sql;
+        if (current == null) {
+            current = new PropertySql(SchemaBootstrap.ensure(connectionProvider).getPropertyTable());
+            sql = current;
         }
+        return current;
     }
 
-    private String resolvePropertyTable(Connection conn) throws SQLException {
-        String sql = "SELECT to_regclass('public.property') AS property_table, to_regclass('public.property_listing') AS legacy_table";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                if (rs.getString("property_table") != null) {
-                    return PROPERTY_TABLE;
-                }
-                if (rs.getString("legacy_table") != null) {
-                    return LEGACY_PROPERTY_TABLE;
+    private Connection connection() throws SQLException {
+        stats.recordOperation();
+        return connectionProvider.getConnection();
+    }
+
+    // Reads that may be served by a replica. Change pages stay on the primary: their cursors are positions
+    // in one server's log, and replicas at different lag would not agree on them.
+    private Connection readConnection() throws SQLException {
+        stats.recordOperation();
+        return connectionProvider.getReadConnection();
+    }
+
+    // Change pages: read-only, but on the primary so a cursor never moves backwards between calls.
+    private Connection primaryReadConnection() throws SQLException {
+        stats.recordOperation();
+        return connectionProvider.getPrimaryReadConnection();
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql), sql);
+    }
+
+    // Single-row lookup by primary key: the hottest read, so it is always run as a server-side prepared statement.
+    private PreparedStatement prepareLookup(Connection conn, String sql) throws SQLException {
+        return stats.serverPrepared(prepare(conn, sql));
+    }
+
+    private PreparedStatement prepareReturningId(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql, GENERATED_ID), sql);
+    }
+
+    @Override
+    public int insertProperty(String city, double price) {
+        String sql = sql().insert;
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepareReturningId(conn, sql)) {
+            stmt.setString(1, city);
+            stmt.setDouble(2, price);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to insert property.", e);
+        }
+    }
+
+    @Override
+    public int[] insertProperties(List<PropertyRecord> properties) {
+        String sql = sql().insert;
+        int[] ids = new int[properties.size()];
+        try (Connection conn = connection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = prepareReturningId(conn, sql)) {
+                int next = 0;
+                int pending = 0;
+                for (int i = 0; i < properties.size(); i++) {
+                    PropertyRecord property = properties.get(i);
+                    stmt.setString(1, property.getCity());
+                    stmt.setDouble(2, property.getPrice());
+                    stmt.addBatch();
+                    pending++;
+                    if (pending == INSERT_BATCH_SIZE || i == properties.size() - 1) {
+                        stmt.executeBatch();
+                        try (ResultSet keys = stmt.getGeneratedKeys()) {
+                            while (keys.next() && next < ids.length) {
+                                ids[next++] = keys.getInt(1);
+                            }
+                        }
+                        pending = 0;
+                    }
                 }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to bulk insert properties.", e);
         }
-        ensurePropertyTableExists(conn);
-        return PROPERTY_TABLE;
+        return ids;
     }
 
+    // COPY ... FROM STDIN through pgjdbc's CopyManager. Rows are encoded as CSV into a buffer that is
+    // shipped every 64 KiB, so imports of any size run in constant memory. COPY is one statement: a failing
+    // row or source cancels it and nothing is inserted.
     @Override
-    public int insertProperty(String city, double price) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String tableName = resolvePropertyTable(conn);
-            String sql = "INSERT INTO " + tableName + " (city, price) VALUES (?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, city);
-                stmt.setDouble(2, price);
-                return stmt.executeUpdate();
+    public long copyProperties(Consumer<Consumer<PropertyRecord>> source) {
+        String sql = sql().copyIn;
+        try (Connection conn = connection()) {
+            stats.recordStatement();
+            CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 256);
+                source.accept(property -> {
+                    appendCopyRow(chunk, property);
+                    if (chunk.length() >= COPY_CHUNK_CHARS) {
+                        flushCopy(copy, chunk);
+                    }
+                });
+                flushCopy(copy, chunk);
+                return copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
             }
         } catch (SQLException e) {
-            throw new DataAccessException("Failed to insert property.", e);
+            throw new DataAccessException("Failed to import properties.", e);
+        }
+    }
+
+    private static void appendCopyRow(StringBuilder chunk, PropertyRecord property) {
+        chunk.append('"').append(property.getCity().replace("\"", "\"\"")).append('"')
+                .append(',').append(property.getPrice()).append('\n');
+    }
+
+    private static void flushCopy(CopyIn copy, StringBuilder chunk) {
+        if (chunk.length() == 0) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        chunk.setLength(0);
+        try {
+            copy.writeToCopy(bytes, 0, bytes.length);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to import properties.", e);
         }
     }
 
     @Override
     public PropertyRecord getPropertyById(int id) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String tableName = resolvePropertyTable(conn);
-            String sql = "SELECT id, city, price FROM " + tableName + " WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, id);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        return new PropertyRecord(
-                                rs.getInt("id"),
-                                rs.getString("city"),
-                                rs.getDouble("price")
-                        );
-                    }
+        String sql = sql().selectById;
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepareLookup(conn, sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PropertyRecord(
+                            rs.getInt("id"),
+                            rs.getString("city"),
+                            rs.getDouble("price")
+                    );
                 }
             }
         } catch (SQLException e) {
@@ -86,14 +204,60 @@ public class PropertyDAO implements PropertyRepository {
         return null;
     }
 
+    @Override
+    public List<PropertyRecord> getPropertiesByIds(int[] ids) {
+        String sql = sql().selectByIds;
+        List<PropertyRecord> list = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return list;
+        }
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setArray(1, SqlArrays.integers(conn, ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new PropertyRecord(
+                            rs.getInt("id"),
+                            rs.getString("city"),
+                            rs.getDouble("price")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read properties.", e);
+        }
+        return list;
+    }
+
     @Override
     public List<PropertyRecord> listProperties() {
+        String sql = sql().selectAll;
         List<PropertyRecord> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String tableName = resolvePropertyTable(conn);
-            String sql = "SELECT id, city, price FROM " + tableName + " ORDER BY id";
-            try (PreparedStatement stmt = conn.prepareStatement(sql);
-                 ResultSet rs = stmt.executeQuery()) {
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                list.add(new PropertyRecord(
+                        rs.getInt("id"),
+                        rs.getString("city"),
+                        rs.getDouble("price")
+                ));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list properties.", e);
+        }
+        return list;
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties(int afterId, int limit) {
+        String sql = sql().selectPage;
+        List<PropertyRecord> list = new ArrayList<>(limit);
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     list.add(new PropertyRecord(
                             rs.getInt("id"),
@@ -108,17 +272,54 @@ public class PropertyDAO implements PropertyRepository {
         return list;
     }
 
+    // The export stream; a replica's copy is as good as any snapshot of the table.
     @Override
-    public int updateProperty(int id, String city, double price) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String tableName = resolvePropertyTable(conn);
-            String sql = "UPDATE " + tableName + " SET city = ?, price = ? WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, city);
-                stmt.setDouble(2, price);
-                stmt.setInt(3, id);
-                return stmt.executeUpdate();
+    public void forEachProperty(Consumer<PropertyRecord> consumer) {
+        try (Connection conn = readConnection()) {
+            streamAll(conn, consumer);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to stream properties.", e);
+        }
+    }
+
+    @Override
+    public void forEachPrimaryProperty(Consumer<PropertyRecord> consumer) {
+        try (Connection conn = primaryReadConnection()) {
+            streamAll(conn, consumer);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to stream properties.", e);
+        }
+    }
+
+    private void streamAll(Connection conn, Consumer<PropertyRecord> consumer) throws SQLException {
+        // PostgreSQL only honours the fetch size (a server-side cursor) inside a transaction.
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = prepare(conn, sql().selectAll)) {
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new PropertyRecord(
+                            rs.getInt("id"),
+                            rs.getString("city"),
+                            rs.getDouble("price")
+                    ));
+                }
             }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public int updateProperty(int id, String city, double price) {
+        String sql = sql().update;
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setString(1, city);
+            stmt.setDouble(2, price);
+            stmt.setInt(3, id);
+            return stmt.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update property.", e);
         }
@@ -126,15 +327,242 @@ public class PropertyDAO implements PropertyRepository {
 
     @Override
     public int deleteProperty(int id) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String tableName = resolvePropertyTable(conn);
-            String sql = "DELETE FROM " + tableName + " WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, id);
-                return stmt.executeUpdate();
-            }
+        String sql = sql().delete;
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Failed to delete property.", e);
         }
     }
+
+    @Override
+    public int[] updateProperties(List<PropertyRecord> properties) {
+        String sql = sql().update;
+        try (Connection conn = connection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                for (PropertyRecord property : properties) {
+                    stmt.setString(1, property.getCity());
+                    stmt.setDouble(2, property.getPrice());
+                    stmt.setInt(3, property.getId());
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+                return counts;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to bulk update properties.", e);
+        }
+    }
+
+    @Override
+    public int[] deleteProperties(int[] ids) {
+        String sql = sql().delete;
+        try (Connection conn = connection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                for (int id : ids) {
+                    stmt.setInt(1, id);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+                return counts;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to bulk delete properties.", e);
+        }
+    }
+
+    // One round trip: per-city aggregates and the bucket counts are computed by PostgreSQL, so the
+    // result is O(cities) to transfer whatever the table size.
+    @Override
+    public PropertyStats propertyStats(int buckets) {
+        return queryStats(sql().stats, buckets, stmt -> {
+            stmt.setInt(1, buckets);
+            stmt.setInt(2, buckets);
+        });
+    }
+
+    @Override
+    public PropertyStats propertyStats(int buckets, double histogramMin, double histogramMax) {
+        return queryStats(sql().statsWithin, buckets, stmt -> {
+            stmt.setDouble(1, histogramMin);
+            stmt.setDouble(2, histogramMax);
+            stmt.setInt(3, buckets);
+            stmt.setInt(4, buckets);
+        });
+    }
+
+    private PropertyStats queryStats(String sql, int buckets, Binder binder) {
+        List<PropertyStats.CityStats> cities = new ArrayList<>();
+        double lo = 0.0;
+        double hi = 0.0;
+        long total = 0;
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long count = rs.getLong("n");
+                    lo = rs.getDouble("range_lo");
+                    hi = rs.getDouble("range_hi");
+                    long[] histogram = new long[buckets];
+                    Array bucketArray = rs.getArray("buckets");
+                    if (bucketArray == null) {
+                        // every listing has the same price, so width_bucket has no range to split
+                        histogram[0] = count;
+                    } else {
+                        Integer[] bucketIds = (Integer[]) bucketArray.getArray();
+                        Long[] counts = (Long[]) rs.getArray("counts").getArray();
+                        for (int i = 0; i < bucketIds.length; i++) {
+                            histogram[bucketIds[i] - 1] = counts[i];
+                        }
+                    }
+                    cities.add(new PropertyStats.CityStats(
+                            rs.getString("city"),
+                            count,
+                            rs.getDouble("lo"),
+                            rs.getDouble("hi"),
+                            rs.getDouble("mean"),
+                            rs.getDouble("median"),
+                            histogram
+                    ));
+                    total += count;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to compute property statistics.", e);
+        }
+        return new PropertyStats(total, lo, hi, buckets, cities);
+    }
+
+    @Override
+    public ChangePage<PropertyRecord> getPropertyChanges(String since, int limit) {
+        String sql = sql().changes;
+        try (Connection conn = primaryReadConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            return ChangeLogSql.read(stmt, "property", since, limit,
+                    rs -> new PropertyRecord(rs.getInt("id"), rs.getString("city"), rs.getDouble("price")));
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read property changes.", e);
+        }
+    }
+
+    // Confines the id sequence to [min, max] so ids from this database never collide with another database's
+    // (see ShardedPropertyRepository). The sequence is only altered when its bounds differ, so restarting any
+    // number of servers never rewinds it; existing rows outside the range are refused.
+    public void reserveIdRange(int min, int max) {
+        String table = sql().table;
+        try (Connection conn = connection()) {
+            String sequence;
+            long minValue;
+            long maxValue;
+            try (PreparedStatement stmt = prepare(conn, "SELECT q.seqname, s.seqmin, s.seqmax"
+                    + " FROM (SELECT pg_get_serial_sequence(?, 'id') AS seqname) q"
+                    + " JOIN pg_sequence s ON s.seqrelid = q.seqname::regclass")) {
+                stmt.setString(1, table);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Table " + table + " has no id sequence.");
+                    }
+                    sequence = rs.getString(1);
+                    minValue = rs.getLong(2);
+                    maxValue = rs.getLong(3);
+                }
+            }
+            if (minValue == min && maxValue == max) {
+                return;
+            }
+            int next = min;
+            try (PreparedStatement stmt = prepare(conn, "SELECT min(id), max(id) FROM " + table);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                int lowest = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    int highest = rs.getInt(2);
+                    if (lowest < min || highest > max) {
+                        throw new IllegalStateException("Table " + table + " holds ids " + lowest + ".." + highest
+                                + ", outside the reserved range " + min + ".." + max + ".");
+                    }
+                    next = highest + 1;
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stats.recordStatement();
+                stmt.execute("ALTER SEQUENCE " + sequence + " MINVALUE " + min + " MAXVALUE " + max
+                        + " START WITH " + min + " RESTART WITH " + next + " NO CYCLE");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to reserve the id range of " + table + ".", e);
+        }
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    // SQL text for the resolved table, built once instead of on every call.
+    private static final class PropertySql {
+        private final String table;
+        private final String insert;
+        private final String copyIn;
+        private final String selectById;
+        private final String selectByIds;
+        private final String selectAll;
+        private final String selectPage;
+        private final String update;
+        private final String delete;
+        private final String stats;
+        private final String statsWithin;
+        private final String changes;
+
+        private PropertySql(String tableName) {
+            this.table = tableName;
+            this.insert = "INSERT INTO " + tableName + " (city, price) VALUES (?, ?)";
+            this.copyIn = "COPY " + tableName + " (city, price) FROM STDIN WITH (FORMAT csv)";
+            this.selectById = "SELECT id, city, price FROM " + tableName + " WHERE id = ?";
+            this.selectByIds = "SELECT id, city, price FROM " + tableName + " WHERE id = ANY(?)";
+            this.selectAll = "SELECT id, city, price FROM " + tableName + " ORDER BY id";
+            this.selectPage = "SELECT id, city, price FROM " + tableName + " WHERE id > ? ORDER BY id LIMIT ?";
+            this.update = "UPDATE " + tableName + " SET city = ?, price = ? WHERE id = ?";
+            this.delete = "DELETE FROM " + tableName + " WHERE id = ?";
+            this.changes = ChangeLogSql.select(tableName, "t.id, t.city, t.price");
+            this.stats = statsSql(tableName,
+                    "SELECT min(price)::float8 AS lo, max(price)::float8 AS hi FROM " + tableName);
+            this.statsWithin = statsSql(tableName, "SELECT CAST(? AS float8) AS lo, CAST(? AS float8) AS hi");
+        }
+
+        // bounds selects the histogram range as (lo, hi); prices outside it fall into the end buckets
+        private static String statsSql(String tableName, String bounds) {
+            return "WITH bounds AS (" + bounds
+                    + "), per_city AS ("
+                    + " SELECT city, count(*) AS n, min(price)::float8 AS lo, max(price)::float8 AS hi,"
+                    + " avg(price)::float8 AS mean, percentile_cont(0.5) WITHIN GROUP (ORDER BY price::float8) AS median"
+                    + " FROM " + tableName + " GROUP BY city"
+                    + "), per_bucket AS ("
+                    + " SELECT t.city, GREATEST(LEAST(width_bucket(t.price::float8, b.lo, b.hi, ?), ?), 1) AS bucket, count(*) AS n"
+                    + " FROM " + tableName + " t CROSS JOIN bounds b WHERE b.hi > b.lo GROUP BY t.city, bucket"
+                    + "), histograms AS ("
+                    + " SELECT city, array_agg(bucket ORDER BY bucket) AS buckets, array_agg(n ORDER BY bucket) AS counts"
+                    + " FROM per_bucket GROUP BY city"
+                    + ")"
+                    + " SELECT p.city, p.n, p.lo, p.hi, p.mean, p.median, b.lo AS range_lo, b.hi AS range_hi, h.buckets, h.counts"
+                    + " FROM per_city p CROSS JOIN bounds b LEFT JOIN histograms h ON h.city = p.city"
+                    + " ORDER BY p.city";
+        }
+    }
 }
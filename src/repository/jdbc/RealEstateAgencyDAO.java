@@ -1,7 +1,9 @@
 package repository.jdbc;
 
+import config.ConnectionProvider;
 import config.DatabaseConnection;
 import dto.AgencyRecord;
+import dto.ChangePage;
 import exceptions.DataAccessException;
 import repository.AgencyRepository;
 
@@ -11,17 +13,68 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class RealEstateAgencyDAO implements AgencyRepository {
 
+    private static final DaoStats stats = DaoStats.forDao("agency");
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String[] GENERATED_ID = {"id"};
+    private static final String CHANGES_SQL = ChangeLogSql.select("real_estate_agency", "t.id, t.name, t.address");
+
+    private final ConnectionProvider connectionProvider;
+
+    public RealEstateAgencyDAO() {
+        this(DatabaseConnection.getProvider());
+    }
+
+    public RealEstateAgencyDAO(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    private Connection connection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getConnection();
+    }
+
+    private Connection readConnection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getReadConnection();
+    }
+
+    private Connection primaryReadConnection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getPrimaryReadConnection();
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql), sql);
+    }
+
+    private PreparedStatement prepareReturningId(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql, GENERATED_ID), sql);
+    }
+
+    private PreparedStatement prepareLookup(Connection conn, String sql) throws SQLException {
+        return stats.serverPrepared(prepare(conn, sql));
+    }
+
     @Override
     public int insertAgency(String name, String address) {
         String sql = "INSERT INTO real_estate_agency (name, address) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepareReturningId(conn, sql)) {
             stmt.setString(1, name);
             stmt.setString(2, address);
-            return stmt.executeUpdate();
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to insert agency.", e);
         }
@@ -30,8 +83,8 @@ public class RealEstateAgencyDAO implements AgencyRepository {
     @Override
     public AgencyRecord getAgencyById(int id) {
         String sql = "SELECT id, name, address FROM real_estate_agency WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepareLookup(conn, sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -48,12 +101,37 @@ public class RealEstateAgencyDAO implements AgencyRepository {
         return null;
     }
 
+    @Override
+    public List<AgencyRecord> getAgenciesByIds(int[] ids) {
+        String sql = "SELECT id, name, address FROM real_estate_agency WHERE id = ANY(?)";
+        List<AgencyRecord> list = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return list;
+        }
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setArray(1, SqlArrays.integers(conn, ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new AgencyRecord(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            rs.getString("address")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read agencies.", e);
+        }
+        return list;
+    }
+
     @Override
     public List<AgencyRecord> listAgencies() {
         String sql = "SELECT id, name, address FROM real_estate_agency ORDER BY id";
         List<AgencyRecord> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 list.add(new AgencyRecord(
@@ -68,11 +146,59 @@ public class RealEstateAgencyDAO implements AgencyRepository {
         return list;
     }
 
+    @Override
+    public List<AgencyRecord> listAgencies(int afterId, int limit) {
+        String sql = "SELECT id, name, address FROM real_estate_agency WHERE id > ? ORDER BY id LIMIT ?";
+        List<AgencyRecord> list = new ArrayList<>(limit);
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new AgencyRecord(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            rs.getString("address")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list agencies.", e);
+        }
+        return list;
+    }
+
+    @Override
+    public void forEachAgency(Consumer<AgencyRecord> consumer) {
+        String sql = "SELECT id, name, address FROM real_estate_agency ORDER BY id";
+        try (Connection conn = readConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(new AgencyRecord(
+                                rs.getInt("id"),
+                                rs.getString("name"),
+                                rs.getString("address")
+                        ));
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to stream agencies.", e);
+        }
+    }
+
     @Override
     public int updateAgency(int id, String name, String address) {
         String sql = "UPDATE real_estate_agency SET name = ?, address = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setString(1, name);
             stmt.setString(2, address);
             stmt.setInt(3, id);
@@ -85,12 +211,22 @@ public class RealEstateAgencyDAO implements AgencyRepository {
     @Override
     public int deleteAgency(int id) {
         String sql = "DELETE FROM real_estate_agency WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setInt(1, id);
             return stmt.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Failed to delete agency.", e);
         }
     }
+
+    @Override
+    public ChangePage<AgencyRecord> getAgencyChanges(String since, int limit) {
+        try (Connection conn = primaryReadConnection();
+             PreparedStatement stmt = prepare(conn, CHANGES_SQL)) {
+            return ChangeLogSql.read(stmt, "agency", since, limit, rs -> new AgencyRecord(rs.getInt("id"), rs.getString("name"), rs.getString("address")));
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read agency changes.", e);
+        }
+    }
 }
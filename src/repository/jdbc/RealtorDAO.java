@@ -1,6 +1,8 @@
 package repository.jdbc;
 
+import config.ConnectionProvider;
 import config.DatabaseConnection;
+import dto.ChangePage;
 import dto.RealtorRecord;
 import exceptions.DataAccessException;
 import repository.RealtorRepository;
@@ -11,30 +13,67 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class RealtorDAO implements RealtorRepository {
 
-    private static final String CREATE_REALTOR_TABLE_SQL = """
-            CREATE TABLE IF NOT EXISTS realtor (
-                id SERIAL PRIMARY KEY,
-                name VARCHAR(255) NOT NULL
-            )
-            """;
+    private static final DaoStats stats = DaoStats.forDao("realtor");
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String[] GENERATED_ID = {"id"};
+    private static final String CHANGES_SQL = ChangeLogSql.select("realtor", "t.id, t.name");
 
-    private void ensureRealtorTableExists(Connection conn) throws SQLException {
-        try (PreparedStatement stmt = conn.prepareStatement(CREATE_REALTOR_TABLE_SQL)) {
-            stmt.execute();
-        }
+    private final ConnectionProvider connectionProvider;
+
+    public RealtorDAO() {
+        this(DatabaseConnection.getProvider());
+    }
+
+    public RealtorDAO(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    private Connection connection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getConnection();
+    }
+
+    private Connection readConnection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getReadConnection();
+    }
+
+    private Connection primaryReadConnection() throws SQLException {
+        SchemaBootstrap.ensure(connectionProvider);
+        stats.recordOperation();
+        return connectionProvider.getPrimaryReadConnection();
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql), sql);
+    }
+
+    private PreparedStatement prepareReturningId(Connection conn, String sql) throws SQLException {
+        stats.recordStatement();
+        return stats.timed(conn.prepareStatement(sql, GENERATED_ID), sql);
+    }
+
+    private PreparedStatement prepareLookup(Connection conn, String sql) throws SQLException {
+        return stats.serverPrepared(prepare(conn, sql));
     }
 
     @Override
     public int insertRealtor(String name) {
         String sql = "INSERT INTO realtor (name) VALUES (?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            ensureRealtorTableExists(conn);
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepareReturningId(conn, sql)) {
             stmt.setString(1, name);
-            return stmt.executeUpdate();
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to insert realtor.", e);
         }
@@ -43,14 +82,12 @@ public class RealtorDAO implements RealtorRepository {
     @Override
     public RealtorRecord getRealtorById(int id) {
         String sql = "SELECT id, name FROM realtor WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            ensureRealtorTableExists(conn);
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, id);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        return new RealtorRecord(rs.getInt("id"), rs.getString("name"));
-                    }
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepareLookup(conn, sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new RealtorRecord(rs.getInt("id"), rs.getString("name"));
                 }
             }
         } catch (SQLException e) {
@@ -59,14 +96,52 @@ public class RealtorDAO implements RealtorRepository {
         return null;
     }
 
+    @Override
+    public List<RealtorRecord> getRealtorsByIds(int[] ids) {
+        String sql = "SELECT id, name FROM realtor WHERE id = ANY(?)";
+        List<RealtorRecord> list = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return list;
+        }
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setArray(1, SqlArrays.integers(conn, ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new RealtorRecord(rs.getInt("id"), rs.getString("name")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read realtors.", e);
+        }
+        return list;
+    }
+
     @Override
     public List<RealtorRecord> listRealtors() {
         String sql = "SELECT id, name FROM realtor ORDER BY id";
         List<RealtorRecord> list = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            ensureRealtorTableExists(conn);
-            try (PreparedStatement stmt = conn.prepareStatement(sql);
-                 ResultSet rs = stmt.executeQuery()) {
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                list.add(new RealtorRecord(rs.getInt("id"), rs.getString("name")));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list realtors.", e);
+        }
+        return list;
+    }
+
+    @Override
+    public List<RealtorRecord> listRealtors(int afterId, int limit) {
+        String sql = "SELECT id, name FROM realtor WHERE id > ? ORDER BY id LIMIT ?";
+        List<RealtorRecord> list = new ArrayList<>(limit);
+        try (Connection conn = readConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     list.add(new RealtorRecord(rs.getInt("id"), rs.getString("name")));
                 }
@@ -77,12 +152,32 @@ public class RealtorDAO implements RealtorRepository {
         return list;
     }
 
+    @Override
+    public void forEachRealtor(Consumer<RealtorRecord> consumer) {
+        String sql = "SELECT id, name FROM realtor ORDER BY id";
+        try (Connection conn = readConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(new RealtorRecord(rs.getInt("id"), rs.getString("name")));
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to stream realtors.", e);
+        }
+    }
+
     @Override
     public int updateRealtor(int id, String name) {
         String sql = "UPDATE realtor SET name = ? WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            ensureRealtorTableExists(conn);
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setString(1, name);
             stmt.setInt(2, id);
             return stmt.executeUpdate();
@@ -94,13 +189,22 @@ public class RealtorDAO implements RealtorRepository {
     @Override
     public int deleteRealtor(int id) {
         String sql = "DELETE FROM realtor WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            ensureRealtorTableExists(conn);
+        try (Connection conn = connection();
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setInt(1, id);
             return stmt.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Failed to delete realtor.", e);
         }
     }
+
+    @Override
+    public ChangePage<RealtorRecord> getRealtorChanges(String since, int limit) {
+        try (Connection conn = primaryReadConnection();
+             PreparedStatement stmt = prepare(conn, CHANGES_SQL)) {
+            return ChangeLogSql.read(stmt, "realtor", since, limit, rs -> new RealtorRecord(rs.getInt("id"), rs.getString("name")));
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read realtor changes.", e);
+        }
+    }
 }
@@ -0,0 +1,178 @@
+package repository.jdbc;
+
+import config.ConnectionProvider;
+import config.RoutingConnectionProvider;
+import exceptions.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Runs db/schema.sql once per database and remembers which property table is in use,
+// so the DAOs never have to issue catalog lookups or DDL on the request path.
+public final class SchemaBootstrap {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaBootstrap.class);
+
+    public static final String PROPERTY_TABLE = "property";
+    public static final String LEGACY_PROPERTY_TABLE = "property_listing";
+
+    // db/schema.sql is copied onto the classpath by the build; -Ddb.schema points at a file instead
+    private static final String SCHEMA_RESOURCE = "db/schema.sql";
+    private static final String SCHEMA_PATH = System.getProperty("db.schema");
+    private static final Pattern CREATE_PROPERTY_TABLE =
+            Pattern.compile("(?is)^CREATE\\s+TABLE\\s+IF\\s+NOT\\s+EXISTS\\s+property\\s*\\(.*");
+
+    private static final Map<ConnectionProvider, Schema> schemas = new ConcurrentHashMap<>();
+
+    private SchemaBootstrap() {}
+
+    public static Schema ensure(ConnectionProvider provider) {
+        if (provider instanceof RoutingConnectionProvider) {
+            // the schema lives on the primary; replicas receive it through replication
+            provider = ((RoutingConnectionProvider) provider).getPrimary();
+        }
+        Schema schema = schemas.get(provider);
+        if (schema != null) {
+            return schema;
+        }
+        return schemas.computeIfAbsent(provider, SchemaBootstrap::bootstrap);
+    }
+
+    private static Schema bootstrap(ConnectionProvider provider) {
+        try (Connection conn = provider.getConnection()) {
+            String propertyTable = resolvePropertyTable(conn);
+            List<String> statements = splitStatements(loadSchemaScript());
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    if (LEGACY_PROPERTY_TABLE.equals(propertyTable) && CREATE_PROPERTY_TABLE.matcher(sql).matches()) {
+                        continue;
+                    }
+                    stmt.addBatch(sql);
+                }
+                stmt.executeBatch();
+            }
+            logger.info("Schema ready, property table is '{}'", propertyTable);
+            return new Schema(propertyTable);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to bootstrap database schema.", e);
+        }
+    }
+
+    // Same preference order the DAO used to evaluate on every call: property, then the legacy table.
+    private static String resolvePropertyTable(Connection conn) throws SQLException {
+        String sql = "SELECT to_regclass('public.property') AS property_table, to_regclass('public.property_listing') AS legacy_table";
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next() && rs.getString("property_table") == null && rs.getString("legacy_table") != null) {
+                return LEGACY_PROPERTY_TABLE;
+            }
+        }
+        return PROPERTY_TABLE;
+    }
+
+    private static String loadSchemaScript() {
+        if (SCHEMA_PATH != null) {
+            Path path = Path.of(SCHEMA_PATH);
+            try {
+                return Files.readString(path, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new DataAccessException("Failed to read schema script " + path.toAbsolutePath() + ".", e);
+            }
+        }
+        try (InputStream in = SchemaBootstrap.class.getClassLoader().getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new FileNotFoundException(SCHEMA_RESOURCE + " is not on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to read schema script " + SCHEMA_RESOURCE + ".", e);
+        }
+    }
+
+    // Splits on ';' outside of quotes, dollar-quoted bodies and comments.
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String dollarTag = null;
+        boolean inString = false;
+        int i = 0;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (dollarTag != null) {
+                if (script.startsWith(dollarTag, i)) {
+                    current.append(dollarTag);
+                    i += dollarTag.length();
+                    dollarTag = null;
+                } else {
+                    current.append(c);
+                    i++;
+                }
+                continue;
+            }
+            if (inString) {
+                current.append(c);
+                inString = c != '\'';
+                i++;
+                continue;
+            }
+            if (c == '-' && script.startsWith("--", i)) {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? script.length() : end;
+                continue;
+            }
+            if (c == '\'') {
+                inString = true;
+            } else if (c == '$') {
+                int end = script.indexOf('$', i + 1);
+                if (end > 0 && script.substring(i + 1, end).matches("\\w*")) {
+                    dollarTag = script.substring(i, end + 1);
+                    current.append(dollarTag);
+                    i = end + 1;
+                    continue;
+                }
+            } else if (c == ';') {
+                addStatement(statements, current);
+                current.setLength(0);
+                i++;
+                continue;
+            }
+            current.append(c);
+            i++;
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder sql) {
+        String statement = sql.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+    }
+
+    public static final class Schema {
+        private final String propertyTable;
+
+        private Schema(String propertyTable) {
+            this.propertyTable = propertyTable;
+        }
+
+        public String getPropertyTable() { return propertyTable; }
+    }
+}
@@ -0,0 +1,21 @@
+package repository.jdbc;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Binds an id list as one SQL array parameter, for "WHERE id = ANY(?)": one statement and one plan
+// whatever the number of ids, instead of an IN list whose text changes with its length.
+final class SqlArrays {
+
+    private SqlArrays() {
+    }
+
+    static Array integers(Connection conn, int[] values) throws SQLException {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return conn.createArrayOf("integer", boxed);
+    }
+}
@@ -0,0 +1,59 @@
+package repository.jdbc;
+
+import metrics.Counter;
+import metrics.Histogram;
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+// Wraps a PreparedStatement so that each execute*() call is timed into the DAO's query histogram and
+// counted by prepare mode. Everything else is passed straight through.
+final class TimedStatement implements InvocationHandler {
+
+    private final PreparedStatement target;
+    private final Histogram timer;
+    // null when the driver is not pgjdbc
+    private final PGStatement pg;
+    private final Counter serverPrepared;
+    private final Counter unnamed;
+
+    private TimedStatement(PreparedStatement target, Histogram timer, PGStatement pg,
+                           Counter serverPrepared, Counter unnamed) {
+        this.target = target;
+        this.timer = timer;
+        this.pg = pg;
+        this.serverPrepared = serverPrepared;
+        this.unnamed = unnamed;
+    }
+
+    static PreparedStatement wrap(PreparedStatement target, Histogram timer, PGStatement pg,
+                                  Counter serverPrepared, Counter unnamed) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new TimedStatement(target, timer, pg, serverPrepared, unnamed));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        boolean timed = method.getName().startsWith("execute");
+        if (timed && pg != null) {
+            // asked before executing: true when this execution runs as a named server-side statement
+            (pg.isUseServerPrepare() ? serverPrepared : unnamed).increment();
+        }
+        long start = timed ? System.nanoTime() : 0L;
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if (timed) {
+                timer.recordSince(start);
+            }
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package repository.journal;
+
+import exceptions.DataAccessException;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Write-ahead log for one in-memory store. A write changes memory and appends its record under one lock, so the
+// log has the same order as memory, then waits outside the lock until the record is on disk. One writer thread
+// drains everything appended since its last pass with one write and one force(): concurrent writers share an
+// fsync (group commit). Other threads can read a change before its fsync completes. If a write or fsync fails,
+// the journal stops: every record not yet on disk is undone in memory, newest first, the segment is cut back to
+// its last synced length, and the waiting writers fail. Memory then matches what a restart would recover.
+//
+// Records are [length][CRC-32][op count][ops] and every op carries the whole row, so replaying an op twice is
+// harmless. That makes snapshots cheap: after switching to a new segment N, the store is written out while
+// writes continue, and whatever those writes changed is replayed from segment N on recovery anyway. snapshot-N
+// is renamed into place once every write it may hold is on disk, and then the segments before N are deleted.
+// Recovery loads the newest snapshot, replays the segments from its number on, and truncates a torn record at
+// the end of the last segment.
+final class Journal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+    private static final int SNAPSHOT_MAGIC = 0x524A5331; // "RJS1"
+    private static final long ROTATE_CHECK_MILLIS = 1_000;
+
+    interface Target {
+        // applies one op written by a Mutation
+        void replay(DataInput in) throws IOException;
+        // called while writes continue; see the class comment
+        void writeSnapshot(DataOutput out) throws IOException;
+        void readSnapshot(DataInput in) throws IOException;
+    }
+
+    interface Mutation<T> {
+        T apply(Record record);
+    }
+
+    // The ops of one write, applied together on replay.
+    static final class Record {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final List<Runnable> undo = new ArrayList<>();
+        private int ops;
+
+        // the stream for the next op; the target writes the op's fields to it
+        DataOutput op() {
+            ops++;
+            return out;
+        }
+
+        // Reverts one change already made to memory, should the record never reach the disk. Runs under the
+        // journal lock, after the undo actions of every later write and in reverse order of registration.
+        void undo(Runnable action) {
+            undo.add(action);
+        }
+
+        private byte[] frame() {
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            ByteBuffer frame = ByteBuffer.allocate(12 + payload.length);
+            frame.putInt(4 + payload.length).putInt(0).putInt(ops).put(payload);
+            crc.update(frame.array(), 8, 4 + payload.length);
+            frame.putInt(4, (int) crc.getValue());
+            return frame.array();
+        }
+    }
+
+    private final Path dir;
+    private final String name;
+    private final Target target;
+    private final long snapshotBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appendedCondition = lock.newCondition();
+    private final Condition durableCondition = lock.newCondition();
+    // Appended records and Rotate markers, in append order
+    private List<Object> pending = new ArrayList<>();
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+    private long nextSegment;
+
+    private FileChannel segment;
+    private long segmentBytes;
+    // segment length at its last force(), where a failed group commit is cut back to
+    private long syncedBytes;
+    private final Thread writer;
+    private final ExecutorService snapshots;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    private final Histogram syncTimer;
+    private final Counter records;
+    private final Counter snapshotsTaken;
+
+    Journal(Path dir, String name, Target target, long snapshotBytes, MetricsRegistry metrics) {
+        this.dir = dir;
+        this.name = name;
+        this.target = target;
+        this.snapshotBytes = snapshotBytes;
+        this.syncTimer = metrics.histogram("journal_sync_seconds", "Time to write and fsync one group commit.", "store", name);
+        this.records = metrics.counter("journal_records_total", "Records appended to the journal.", "store", name);
+        this.snapshotsTaken = metrics.counter("journal_snapshots_total", "Snapshots written.", "store", name);
+        try {
+            Files.createDirectories(dir);
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to recover the " + name + " journal in " + dir + ".", e);
+        }
+        this.writer = new Thread(this::writeLoop, "journal-writer-" + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.snapshots = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "journal-snapshot-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Runs mutation under the journal lock, appends the ops it recorded and returns once they are on disk.
+    // A mutation must not call write() itself.
+    <T> T write(Mutation<T> mutation) {
+        if (lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Nested journal write.");
+        }
+        Record record = new Record();
+        long ticket = 0;
+        T result;
+        lock.lock();
+        try {
+            requireOpen();
+            try {
+                result = mutation.apply(record);
+            } finally {
+                // ops already applied to memory are logged even if the mutation failed halfway
+                if (record.ops > 0) {
+                    ticket = ++appended;
+                    pending.add(new Appended(ticket, record.frame(), record.undo));
+                    appendedCondition.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ticket > 0) {
+            awaitDurable(ticket);
+        }
+        return result;
+    }
+
+    private void awaitDurable(long ticket) {
+        lock.lock();
+        try {
+            while (durable < ticket && failure == null) {
+                durableCondition.awaitUninterruptibly();
+            }
+            if (durable < ticket) {
+                throw new DataAccessException("Failed to write the " + name + " journal.", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requireOpen() {
+        if (failure != null) {
+            throw new DataAccessException("The " + name + " journal stopped after a write error.", failure);
+        }
+        if (closed) {
+            throw new DataAccessException("The " + name + " journal is closed.", null);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<Object> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    appendedCondition.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+            long start = System.nanoTime();
+            long written = 0;
+            try {
+                List<ByteBuffer> frames = new ArrayList<>(batch.size());
+                for (Object item : batch) {
+                    if (item instanceof Rotate) {
+                        writeFully(frames);
+                        segment.force(false);
+                        markDurable(written);
+                        segment.close();
+                        openSegment(((Rotate) item).segment);
+                        ((Rotate) item).done.countDown();
+                    } else {
+                        Appended appendedRecord = (Appended) item;
+                        frames.add(ByteBuffer.wrap(appendedRecord.frame));
+                        written = appendedRecord.ticket;
+                        records.increment();
+                    }
+                }
+                writeFully(frames);
+                segment.force(false);
+            } catch (IOException e) {
+                logger.error("Journal {} failed; undoing the records not on disk and refusing further writes", name, e);
+                fail(batch, e);
+                return;
+            }
+            syncTimer.recordSince(start);
+            markDurable(written);
+            if (segmentBytes >= snapshotBytes && snapshotRunning.compareAndSet(false, true)) {
+                snapshots.execute(this::snapshot);
+            }
+        }
+    }
+
+    private void markDurable(long ticket) {
+        syncedBytes = segmentBytes;
+        lock.lock();
+        try {
+            if (ticket > durable) {
+                durable = ticket;
+                durableCondition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Undoes, newest first, every record of the failed batch and of those appended since that is not on disk,
+    // and cuts the segment back so a restart does not bring them back either.
+    private void fail(List<Object> batch, IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            List<Object> lost = new ArrayList<>(batch);
+            lost.addAll(pending);
+            pending.clear();
+            for (int i = lost.size() - 1; i >= 0; i--) {
+                if (lost.get(i) instanceof Appended && ((Appended) lost.get(i)).ticket > durable) {
+                    List<Runnable> undo = ((Appended) lost.get(i)).undo;
+                    for (int j = undo.size() - 1; j >= 0; j--) {
+                        try {
+                            undo.get(j).run();
+                        } catch (RuntimeException undoFailure) {
+                            logger.error("Journal {} could not undo a lost write; memory may be ahead of the log", name, undoFailure);
+                        }
+                    }
+                }
+            }
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            segment.truncate(syncedBytes);
+            segment.force(false);
+        } catch (IOException truncateFailure) {
+            logger.warn("Journal {} could not cut its segment back to {} bytes: {}", name, syncedBytes,
+                    truncateFailure.getMessage());
+        }
+    }
+
+    private void writeFully(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            segmentBytes += segment.write(buffers);
+        }
+        frames.clear();
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segmentBytes = segment.size();
+        syncedBytes = segmentBytes;
+        segment.position(segmentBytes);
+    }
+
+    // Also called by the size trigger; safe to call at any time.
+    void snapshot() {
+        try {
+            Rotate rotate;
+            lock.lock();
+            try {
+                requireOpen();
+                rotate = new Rotate(nextSegment++);
+                pending.add(rotate);
+                appendedCondition.signal();
+            } finally {
+                lock.unlock();
+            }
+            // the snapshot may only replace segments the writer has finished with
+            while (!rotate.done.await(ROTATE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    throw new IOException("Journal writer stopped before rotating to segment " + rotate.segment);
+                }
+            }
+            Path tmp = dir.resolve(snapshotName(rotate.segment) + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CheckedOutputStream checked = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                target.writeSnapshot(out);
+                out.flush();
+                new DataOutputStream(Channels.newOutputStream(channel)).writeLong(checked.getChecksum().getValue());
+                channel.force(true);
+            }
+            lock.lock();
+            try {
+                // The snapshot may hold any write appended so far. Each must be on disk before the rename, and
+                // fail() must not run until the rename is too, or a write undone and reported as failed would
+                // come back from the snapshot on restart.
+                long captured = appended;
+                while (durable < captured && failure == null) {
+                    durableCondition.awaitUninterruptibly();
+                }
+                requireOpen();
+                Files.move(tmp, dir.resolve(snapshotName(rotate.segment)), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+            } finally {
+                lock.unlock();
+            }
+            deleteBefore(rotate.segment);
+            snapshotsTaken.increment();
+            logger.info("Journal {} compacted into {}", name, snapshotName(rotate.segment));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Journal {} snapshot failed; the log keeps growing until the next one", name, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        long snapshot = -1;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(".tmp")) {
+                    Files.delete(file);
+                } else if (fileName.startsWith("segment-") && fileName.endsWith(".log")) {
+                    segments.put(number(fileName), file);
+                } else if (fileName.startsWith("snapshot-") && fileName.endsWith(".bin")) {
+                    snapshot = Math.max(snapshot, number(fileName));
+                }
+            }
+        }
+        long first = 0;
+        if (snapshot >= 0) {
+            readSnapshot(dir.resolve(snapshotName(snapshot)));
+            first = snapshot;
+        }
+        long replayed = 0;
+        long current = first;
+        for (var entry : segments.tailMap(first, true).entrySet()) {
+            replayed += replay(entry.getValue(), entry.getKey().equals(segments.lastKey()));
+            current = entry.getKey();
+        }
+        deleteBefore(first);
+        nextSegment = current + 1;
+        openSegment(current);
+        logger.info("Journal {} recovered from {} with {} replayed records", name,
+                snapshot >= 0 ? snapshotName(snapshot) : "an empty store", replayed);
+    }
+
+    private void readSnapshot(Path file) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a journal snapshot.");
+            }
+            target.readSnapshot(in);
+            long expected = checked.getChecksum().getValue();
+            if (new DataInputStream(raw).readLong() != expected) {
+                throw new IOException(file + " is corrupt (checksum mismatch).");
+            }
+        }
+    }
+
+    // Returns the number of records applied. A record cut short or failing its checksum ends the last segment
+    // (a write interrupted by a crash) and is truncated away; anywhere else it means the log is damaged.
+    private long replay(Path file, boolean last) throws IOException {
+        long applied = 0;
+        long good = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            while (good < size) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int crc = in.readInt();
+                    if (length < 4 || length > size - good - 8) {
+                        throw new EOFException();
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 check = new CRC32();
+                    check.update(payload);
+                    if ((int) check.getValue() != crc) {
+                        throw new EOFException();
+                    }
+                } catch (EOFException e) {
+                    if (!last) {
+                        throw new IOException(file + " is damaged at offset " + good + ".");
+                    }
+                    logger.warn("Journal {}: discarding {} bytes of an incomplete record at the end of {}",
+                            name, size - good, file.getFileName());
+                    channel.truncate(good);
+                    channel.force(true);
+                    break;
+                }
+                DataInputStream ops = new DataInputStream(new ByteArrayInputStream(payload));
+                for (int n = ops.readInt(); n > 0; n--) {
+                    target.replay(ops);
+                }
+                applied++;
+                good += 8 + payload.length;
+            }
+        }
+        return applied;
+    }
+
+    private void deleteBefore(long segmentNumber) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                boolean segmentFile = fileName.startsWith("segment-") && fileName.endsWith(".log");
+                boolean snapshotFile = fileName.startsWith("snapshot-") && fileName.endsWith(".bin");
+                if ((segmentFile || snapshotFile) && number(fileName) < segmentNumber) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the rename is still atomic
+            logger.debug("Could not fsync {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("segment-%016d.log", number));
+    }
+
+    private static String snapshotName(long number) {
+        return String.format("snapshot-%016d.bin", number);
+    }
+
+    private static long number(String fileName) {
+        return Long.parseLong(fileName.substring(fileName.indexOf('-') + 1, fileName.lastIndexOf('.')));
+    }
+
+    static void uncheckedWrite(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    interface IoAction {
+        void run() throws IOException;
+    }
+
+    // Waits for pending records, then stops the writer.
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            appendedCondition.signal();
+        } finally {
+            lock.unlock();
+        }
+        snapshots.shutdownNow();
+        try {
+            writer.join();
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.debug("Error closing journal {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static final class Appended {
+        private final long ticket;
+        private final byte[] frame;
+        private final List<Runnable> undo;
+
+        private Appended(long ticket, byte[] frame, List<Runnable> undo) {
+            this.ticket = ticket;
+            this.frame = frame;
+            this.undo = undo;
+        }
+    }
+
+    private static final class Rotate {
+        private final long segment;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Rotate(long segment) {
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package repository.journal;
+
+import dto.AgencyRecord;
+import metrics.MetricsRegistry;
+import repository.memory.InMemoryAgencyRepository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+
+// InMemoryAgencyRepository made durable by a Journal; see JournalPropertyRepository.
+public class JournalAgencyRepository extends InMemoryAgencyRepository implements Journal.Target, AutoCloseable {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Journal journal;
+
+    public JournalAgencyRepository(Path dir, long snapshotBytes, MetricsRegistry metrics) {
+        this.journal = new Journal(dir, "agency", this, snapshotBytes, metrics);
+        changes.seed(rows.keySet());
+    }
+
+    @Override
+    public int insertAgency(String name, String address) {
+        return journal.write(record -> {
+            int id = super.insertAgency(name, address);
+            record.undo(() -> restoreRow(id, null));
+            put(record, id, name, address);
+            return id;
+        });
+    }
+
+    @Override
+    public int updateAgency(int id, String name, String address) {
+        return journal.write(record -> {
+            AgencyRecord previous = rows.get(id);
+            int count = super.updateAgency(id, name, address);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                put(record, id, name, address);
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int deleteAgency(int id) {
+        return journal.write(record -> {
+            AgencyRecord previous = rows.get(id);
+            int count = super.deleteAgency(id);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                Journal.uncheckedWrite(() -> {
+                    DataOutput out = record.op();
+                    out.writeByte(DELETE);
+                    out.writeInt(id);
+                });
+            }
+            return count;
+        });
+    }
+
+    private static void put(Journal.Record record, int id, String name, String address) {
+        Journal.uncheckedWrite(() -> {
+            DataOutput out = record.op();
+            out.writeByte(PUT);
+            out.writeInt(id);
+            out.writeUTF(name);
+            out.writeUTF(address);
+        });
+    }
+
+    @Override
+    public void replay(DataInput in) throws IOException {
+        byte op = in.readByte();
+        int id = in.readInt();
+        if (op == PUT) {
+            rows.put(id, new AgencyRecord(id, in.readUTF(), in.readUTF()));
+        } else if (op == DELETE) {
+            rows.remove(id);
+        } else {
+            throw new IOException("Unknown agency journal op " + op);
+        }
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(sequence.get());
+        for (AgencyRecord row : rows.values()) {
+            out.writeBoolean(true);
+            out.writeInt(row.getId());
+            out.writeUTF(row.getName());
+            out.writeUTF(row.getAddress());
+        }
+        out.writeBoolean(false);
+    }
+
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        sequence.set(in.readInt());
+        while (in.readBoolean()) {
+            int id = in.readInt();
+            rows.put(id, new AgencyRecord(id, in.readUTF(), in.readUTF()));
+        }
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,174 @@
+package repository.journal;
+
+import dto.PropertyRecord;
+import metrics.MetricsRegistry;
+import repository.memory.InMemoryPropertyRepository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// InMemoryPropertyRepository made durable by a Journal: reads never leave memory, and every write returns once
+// its record is fsynced. Batches and imports are one record, so they survive a crash whole or not at all. Each
+// change registers its undo with the record, which the journal runs if the record cannot be made durable.
+public class JournalPropertyRepository extends InMemoryPropertyRepository implements Journal.Target, AutoCloseable {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Journal journal;
+
+    public JournalPropertyRepository(Path dir, long snapshotBytes, MetricsRegistry metrics) {
+        this.journal = new Journal(dir, "property", this, snapshotBytes, metrics);
+        // the log itself is not journaled; recovered rows start it over for full syncs
+        changes.seed(rows.keySet());
+    }
+
+    @Override
+    public int insertProperty(String city, double price) {
+        return journal.write(record -> {
+            int id = super.insertProperty(city, price);
+            record.undo(() -> restoreRow(id, null));
+            put(record, id, city, price);
+            return id;
+        });
+    }
+
+    // The superclass methods below would call back into the journalled single-row methods, so these call
+    // the superclass's single-row methods directly and log the whole batch as one record.
+    @Override
+    public int[] insertProperties(List<PropertyRecord> properties) {
+        return journal.write(record -> {
+            int[] ids = new int[properties.size()];
+            for (int i = 0; i < ids.length; i++) {
+                PropertyRecord property = properties.get(i);
+                int id = super.insertProperty(property.getCity(), property.getPrice());
+                ids[i] = id;
+                record.undo(() -> restoreRow(id, null));
+                put(record, ids[i], property.getCity(), property.getPrice());
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public int updateProperty(int id, String city, double price) {
+        return journal.write(record -> {
+            PropertyRecord previous = rows.get(id);
+            int count = super.updateProperty(id, city, price);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                put(record, id, city, price);
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int[] updateProperties(List<PropertyRecord> properties) {
+        return journal.write(record -> {
+            int[] counts = new int[properties.size()];
+            for (int i = 0; i < counts.length; i++) {
+                PropertyRecord property = properties.get(i);
+                PropertyRecord previous = rows.get(property.getId());
+                counts[i] = super.updateProperty(property.getId(), property.getCity(), property.getPrice());
+                if (counts[i] > 0) {
+                    record.undo(() -> restoreRow(property.getId(), previous));
+                    put(record, property.getId(), property.getCity(), property.getPrice());
+                }
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public int deleteProperty(int id) {
+        return journal.write(record -> {
+            PropertyRecord previous = rows.get(id);
+            int count = super.deleteProperty(id);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                delete(record, id);
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int[] deleteProperties(int[] ids) {
+        return journal.write(record -> {
+            int[] counts = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                int id = ids[i];
+                PropertyRecord previous = rows.get(id);
+                counts[i] = super.deleteProperty(id);
+                if (counts[i] > 0) {
+                    record.undo(() -> restoreRow(id, previous));
+                    delete(record, id);
+                }
+            }
+            return counts;
+        });
+    }
+
+    private static void put(Journal.Record record, int id, String city, double price) {
+        Journal.uncheckedWrite(() -> {
+            DataOutput out = record.op();
+            out.writeByte(PUT);
+            out.writeInt(id);
+            out.writeUTF(city);
+            out.writeDouble(price);
+        });
+    }
+
+    private static void delete(Journal.Record record, int id) {
+        Journal.uncheckedWrite(() -> {
+            DataOutput out = record.op();
+            out.writeByte(DELETE);
+            out.writeInt(id);
+        });
+    }
+
+    @Override
+    public void replay(DataInput in) throws IOException {
+        byte op = in.readByte();
+        int id = in.readInt();
+        if (op == PUT) {
+            rows.put(id, new PropertyRecord(id, in.readUTF(), in.readDouble()));
+        } else if (op == DELETE) {
+            rows.remove(id);
+        } else {
+            throw new IOException("Unknown property journal op " + op);
+        }
+        // deleted ids are never handed out again
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(sequence.get());
+        for (PropertyRecord property : rows.values()) {
+            out.writeBoolean(true);
+            out.writeInt(property.getId());
+            out.writeUTF(property.getCity());
+            out.writeDouble(property.getPrice());
+        }
+        out.writeBoolean(false);
+    }
+
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        sequence.set(in.readInt());
+        while (in.readBoolean()) {
+            int id = in.readInt();
+            rows.put(id, new PropertyRecord(id, in.readUTF(), in.readDouble()));
+        }
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
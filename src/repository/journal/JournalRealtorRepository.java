@@ -0,0 +1,112 @@
+package repository.journal;
+
+import dto.RealtorRecord;
+import metrics.MetricsRegistry;
+import repository.memory.InMemoryRealtorRepository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+
+// InMemoryRealtorRepository made durable by a Journal; see JournalPropertyRepository.
+public class JournalRealtorRepository extends InMemoryRealtorRepository implements Journal.Target, AutoCloseable {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Journal journal;
+
+    public JournalRealtorRepository(Path dir, long snapshotBytes, MetricsRegistry metrics) {
+        this.journal = new Journal(dir, "realtor", this, snapshotBytes, metrics);
+        changes.seed(rows.keySet());
+    }
+
+    @Override
+    public int insertRealtor(String name) {
+        return journal.write(record -> {
+            int id = super.insertRealtor(name);
+            record.undo(() -> restoreRow(id, null));
+            put(record, id, name);
+            return id;
+        });
+    }
+
+    @Override
+    public int updateRealtor(int id, String name) {
+        return journal.write(record -> {
+            RealtorRecord previous = rows.get(id);
+            int count = super.updateRealtor(id, name);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                put(record, id, name);
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int deleteRealtor(int id) {
+        return journal.write(record -> {
+            RealtorRecord previous = rows.get(id);
+            int count = super.deleteRealtor(id);
+            if (count > 0) {
+                record.undo(() -> restoreRow(id, previous));
+                Journal.uncheckedWrite(() -> {
+                    DataOutput out = record.op();
+                    out.writeByte(DELETE);
+                    out.writeInt(id);
+                });
+            }
+            return count;
+        });
+    }
+
+    private static void put(Journal.Record record, int id, String name) {
+        Journal.uncheckedWrite(() -> {
+            DataOutput out = record.op();
+            out.writeByte(PUT);
+            out.writeInt(id);
+            out.writeUTF(name);
+        });
+    }
+
+    @Override
+    public void replay(DataInput in) throws IOException {
+        byte op = in.readByte();
+        int id = in.readInt();
+        if (op == PUT) {
+            rows.put(id, new RealtorRecord(id, in.readUTF()));
+        } else if (op == DELETE) {
+            rows.remove(id);
+        } else {
+            throw new IOException("Unknown realtor journal op " + op);
+        }
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(sequence.get());
+        for (RealtorRecord row : rows.values()) {
+            out.writeBoolean(true);
+            out.writeInt(row.getId());
+            out.writeUTF(row.getName());
+        }
+        out.writeBoolean(false);
+    }
+
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        sequence.set(in.readInt());
+        while (in.readBoolean()) {
+            int id = in.readInt();
+            rows.put(id, new RealtorRecord(id, in.readUTF()));
+        }
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
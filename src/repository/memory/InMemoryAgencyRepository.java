@@ -0,0 +1,106 @@
+package repository.memory;
+
+import dto.AgencyRecord;
+import dto.ChangePage;
+import repository.AgencyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class InMemoryAgencyRepository implements AgencyRepository {
+    protected final ConcurrentNavigableMap<Integer, AgencyRecord> rows = new ConcurrentSkipListMap<>();
+    protected final AtomicInteger sequence = new AtomicInteger();
+    protected final InMemoryChangeLog changes = new InMemoryChangeLog();
+
+    @Override
+    public int insertAgency(String name, String address) {
+        int id = sequence.incrementAndGet();
+        rows.put(id, new AgencyRecord(id, name, address));
+        changes.record(id);
+        return id;
+    }
+
+    @Override
+    public AgencyRecord getAgencyById(int id) {
+        return copy(rows.get(id));
+    }
+
+    @Override
+    public List<AgencyRecord> getAgenciesByIds(int[] ids) {
+        List<AgencyRecord> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            AgencyRecord record = rows.get(id);
+            if (record != null) {
+                found.add(copy(record));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<AgencyRecord> listAgencies() {
+        List<AgencyRecord> list = new ArrayList<>(rows.size());
+        forEachAgency(list::add);
+        return list;
+    }
+
+    @Override
+    public List<AgencyRecord> listAgencies(int afterId, int limit) {
+        List<AgencyRecord> list = new ArrayList<>(limit);
+        for (AgencyRecord record : rows.tailMap(afterId, false).values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            list.add(copy(record));
+        }
+        return list;
+    }
+
+    @Override
+    public void forEachAgency(Consumer<AgencyRecord> consumer) {
+        for (AgencyRecord record : rows.values()) {
+            consumer.accept(copy(record));
+        }
+    }
+
+    @Override
+    public int updateAgency(int id, String name, String address) {
+        if (rows.replace(id, new AgencyRecord(id, name, address)) == null) {
+            return 0;
+        }
+        changes.record(id);
+        return 1;
+    }
+
+    @Override
+    public int deleteAgency(int id) {
+        if (rows.remove(id) == null) {
+            return 0;
+        }
+        changes.recordDelete(id);
+        return 1;
+    }
+
+    @Override
+    public ChangePage<AgencyRecord> getAgencyChanges(String since, int limit) {
+        return changes.read(since, limit, id -> copy(rows.get(id)));
+    }
+
+    // Puts a row back as it was (null: absent), recording the change; for writes that have to be taken back.
+    protected void restoreRow(int id, AgencyRecord row) {
+        if (row != null) {
+            rows.put(id, row);
+            changes.record(id);
+        } else if (rows.remove(id) != null) {
+            changes.recordDelete(id);
+        }
+    }
+
+    protected static AgencyRecord copy(AgencyRecord record) {
+        return record == null ? null : new AgencyRecord(record.getId(), record.getName(), record.getAddress());
+    }
+}
@@ -0,0 +1,84 @@
+package repository.memory;
+
+import dto.ChangePage;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+// Version -> id of every write, the in-memory counterpart of the change_log table. Appends and reads share
+// one lock, so versions become visible in order and a reader never passes one that is still being written.
+// Like change_log after compaction, each row keeps only its latest entry, so the log holds one entry per
+// live row plus the most recent deletions (changes.maxDeletes). Dropping an older deletion raises the floor
+// below which cursors are answered as unknown, because a client behind it would never learn of the delete.
+public final class InMemoryChangeLog {
+
+    private static final int MAX_DELETES = Integer.getInteger("changes.maxDeletes", 100_000);
+
+    private final NavigableMap<Long, Integer> entries = new TreeMap<>();
+    private final Map<Integer, Long> latest = new HashMap<>();
+    private final ArrayDeque<Long> deletes = new ArrayDeque<>();
+    // Versions start from the clock, so a cursor from before a restart (the rows may have outlived it, see
+    // repository.journal) falls below every position of this run and is answered as unknown instead of
+    // silently skipping changes. Millis * 1000 stays within the integers JSON clients can represent exactly.
+    private final long base = System.currentTimeMillis() * 1_000L;
+    private long floor = base;
+    private long version = base;
+
+    // Called after the row itself has changed.
+    synchronized void record(int id) {
+        append(id);
+    }
+
+    // Called after the row has been removed.
+    synchronized void recordDelete(int id) {
+        deletes.addLast(append(id));
+        if (deletes.size() > MAX_DELETES) {
+            long oldest = deletes.removeFirst();
+            latest.remove(entries.remove(oldest));
+            floor = oldest;
+        }
+    }
+
+    // Gives every row that is already there an entry, so a full sync (since=0) includes rows that were
+    // loaded rather than written through the repository, e.g. recovered from a journal.
+    public synchronized void seed(Iterable<Integer> ids) {
+        for (int id : ids) {
+            append(id);
+        }
+    }
+
+    private long append(int id) {
+        Long previous = latest.put(id, ++version);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+        entries.put(version, id);
+        return version;
+    }
+
+    // Positions are versions written in decimal; anything else is not a position in this log.
+    synchronized <T> ChangePage<T> read(String since, int limit, IntFunction<T> current) {
+        long position;
+        try {
+            position = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (position < 0 || (position != 0 && position < floor) || position > version) {
+            return null;
+        }
+        ChangePage.Builder<T> page = new ChangePage.Builder<>(since);
+        int n = 0;
+        for (Map.Entry<Long, Integer> entry : entries.tailMap(position, false).entrySet()) {
+            if (n++ == limit) {
+                return page.build(true);
+            }
+            page.add(Long.toString(entry.getKey()), entry.getValue(), current.apply(entry.getValue()));
+        }
+        return page.build(false);
+    }
+}
@@ -0,0 +1,170 @@
+package repository.memory;
+
+import dto.ChangePage;
+import dto.PropertyRecord;
+import dto.PropertyStats;
+import repository.PropertyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Keeps rows in an id-ordered map; stands in for PropertyDAO in benchmarks and database-free runs.
+public class InMemoryPropertyRepository implements PropertyRepository {
+    protected final ConcurrentNavigableMap<Integer, PropertyRecord> rows = new ConcurrentSkipListMap<>();
+    protected final AtomicInteger sequence = new AtomicInteger();
+    protected final InMemoryChangeLog changes = new InMemoryChangeLog();
+
+    @Override
+    public int insertProperty(String city, double price) {
+        int id = sequence.incrementAndGet();
+        rows.put(id, new PropertyRecord(id, city, price));
+        changes.record(id);
+        return id;
+    }
+
+    @Override
+    public int[] insertProperties(List<PropertyRecord> properties) {
+        int[] ids = new int[properties.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = insertProperty(properties.get(i).getCity(), properties.get(i).getPrice());
+        }
+        return ids;
+    }
+
+    // No COPY here: rows are staged and go through insertProperties at the end, so a failing source
+    // leaves nothing behind, as a failed COPY would.
+    @Override
+    public long copyProperties(Consumer<Consumer<PropertyRecord>> source) {
+        List<PropertyRecord> staged = new ArrayList<>();
+        source.accept(staged::add);
+        insertProperties(staged);
+        return staged.size();
+    }
+
+    @Override
+    public PropertyRecord getPropertyById(int id) {
+        return copy(rows.get(id));
+    }
+
+    @Override
+    public List<PropertyRecord> getPropertiesByIds(int[] ids) {
+        List<PropertyRecord> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            PropertyRecord record = rows.get(id);
+            if (record != null) {
+                found.add(copy(record));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties() {
+        List<PropertyRecord> list = new ArrayList<>(rows.size());
+        forEachProperty(list::add);
+        return list;
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties(int afterId, int limit) {
+        List<PropertyRecord> list = new ArrayList<>(limit);
+        for (PropertyRecord record : rows.tailMap(afterId, false).values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            list.add(copy(record));
+        }
+        return list;
+    }
+
+    @Override
+    public void forEachProperty(Consumer<PropertyRecord> consumer) {
+        for (PropertyRecord record : rows.values()) {
+            consumer.accept(copy(record));
+        }
+    }
+
+    @Override
+    public void forEachPrimaryProperty(Consumer<PropertyRecord> consumer) {
+        forEachProperty(consumer);
+    }
+
+    // Same figures as PropertyDAO's SQL aggregation (percentile_cont median, width_bucket histogram).
+    @Override
+    public PropertyStats propertyStats(int buckets) {
+        return collectStats().build(buckets);
+    }
+
+    @Override
+    public PropertyStats propertyStats(int buckets, double histogramMin, double histogramMax) {
+        return collectStats().build(buckets, histogramMin, histogramMax);
+    }
+
+    private PropertyStats.Builder collectStats() {
+        PropertyStats.Builder stats = new PropertyStats.Builder();
+        for (PropertyRecord record : rows.values()) {
+            stats.add(record.getCity(), record.getPrice());
+        }
+        return stats;
+    }
+
+    @Override
+    public int updateProperty(int id, String city, double price) {
+        if (rows.replace(id, new PropertyRecord(id, city, price)) == null) {
+            return 0;
+        }
+        changes.record(id);
+        return 1;
+    }
+
+    @Override
+    public int deleteProperty(int id) {
+        if (rows.remove(id) == null) {
+            return 0;
+        }
+        changes.recordDelete(id);
+        return 1;
+    }
+
+    @Override
+    public int[] updateProperties(List<PropertyRecord> properties) {
+        int[] counts = new int[properties.size()];
+        for (int i = 0; i < counts.length; i++) {
+            PropertyRecord p = properties.get(i);
+            counts[i] = updateProperty(p.getId(), p.getCity(), p.getPrice());
+        }
+        return counts;
+    }
+
+    @Override
+    public int[] deleteProperties(int[] ids) {
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            counts[i] = deleteProperty(ids[i]);
+        }
+        return counts;
+    }
+
+    @Override
+    public ChangePage<PropertyRecord> getPropertyChanges(String since, int limit) {
+        return changes.read(since, limit, id -> copy(rows.get(id)));
+    }
+
+    // Puts a row back as it was (null: absent), recording the change; for writes that have to be taken back.
+    protected void restoreRow(int id, PropertyRecord row) {
+        if (row != null) {
+            rows.put(id, row);
+            changes.record(id);
+        } else if (rows.remove(id) != null) {
+            changes.recordDelete(id);
+        }
+    }
+
+    protected static PropertyRecord copy(PropertyRecord record) {
+        return record == null ? null : new PropertyRecord(record.getId(), record.getCity(), record.getPrice());
+    }
+}
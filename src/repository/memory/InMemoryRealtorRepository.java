@@ -0,0 +1,106 @@
+package repository.memory;
+
+import dto.ChangePage;
+import dto.RealtorRecord;
+import repository.RealtorRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class InMemoryRealtorRepository implements RealtorRepository {
+    protected final ConcurrentNavigableMap<Integer, RealtorRecord> rows = new ConcurrentSkipListMap<>();
+    protected final AtomicInteger sequence = new AtomicInteger();
+    protected final InMemoryChangeLog changes = new InMemoryChangeLog();
+
+    @Override
+    public int insertRealtor(String name) {
+        int id = sequence.incrementAndGet();
+        rows.put(id, new RealtorRecord(id, name));
+        changes.record(id);
+        return id;
+    }
+
+    @Override
+    public RealtorRecord getRealtorById(int id) {
+        return copy(rows.get(id));
+    }
+
+    @Override
+    public List<RealtorRecord> getRealtorsByIds(int[] ids) {
+        List<RealtorRecord> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            RealtorRecord record = rows.get(id);
+            if (record != null) {
+                found.add(copy(record));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<RealtorRecord> listRealtors() {
+        List<RealtorRecord> list = new ArrayList<>(rows.size());
+        forEachRealtor(list::add);
+        return list;
+    }
+
+    @Override
+    public List<RealtorRecord> listRealtors(int afterId, int limit) {
+        List<RealtorRecord> list = new ArrayList<>(limit);
+        for (RealtorRecord record : rows.tailMap(afterId, false).values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            list.add(copy(record));
+        }
+        return list;
+    }
+
+    @Override
+    public void forEachRealtor(Consumer<RealtorRecord> consumer) {
+        for (RealtorRecord record : rows.values()) {
+            consumer.accept(copy(record));
+        }
+    }
+
+    @Override
+    public int updateRealtor(int id, String name) {
+        if (rows.replace(id, new RealtorRecord(id, name)) == null) {
+            return 0;
+        }
+        changes.record(id);
+        return 1;
+    }
+
+    @Override
+    public int deleteRealtor(int id) {
+        if (rows.remove(id) == null) {
+            return 0;
+        }
+        changes.recordDelete(id);
+        return 1;
+    }
+
+    @Override
+    public ChangePage<RealtorRecord> getRealtorChanges(String since, int limit) {
+        return changes.read(since, limit, id -> copy(rows.get(id)));
+    }
+
+    // Puts a row back as it was (null: absent), recording the change; for writes that have to be taken back.
+    protected void restoreRow(int id, RealtorRecord row) {
+        if (row != null) {
+            rows.put(id, row);
+            changes.record(id);
+        } else if (rows.remove(id) != null) {
+            changes.recordDelete(id);
+        }
+    }
+
+    protected static RealtorRecord copy(RealtorRecord record) {
+        return record == null ? null : new RealtorRecord(record.getId(), record.getName());
+    }
+}
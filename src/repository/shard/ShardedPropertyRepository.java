@@ -0,0 +1,542 @@
+package repository.shard;
+
+import dto.ChangePage;
+import dto.PropertyRecord;
+import dto.PropertyStats;
+import repository.PropertyRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// Spreads properties over several stores. Shard i owns the ids [i * idRangeSize + 1, (i + 1) * idRangeSize] and
+// allocates them itself (see PropertyDAO.reserveIdRange), so ids are globally unique and every id maps to one
+// shard without a directory. Placement only picks the shard for a new row: round-robin under ID_RANGE, by a hash
+// of the city under CITY_HASH. Rows never move, so under CITY_HASH an update that changes the city leaves the row
+// on the shard where it was created.
+//
+// Operations on several shards run in parallel. Because each shard holds one contiguous id range, results in id
+// order are the shards' results concatenated in shard order. Writes to several shards are atomic per shard, not
+// across shards.
+public class ShardedPropertyRepository implements PropertyRepository, AutoCloseable {
+
+    public enum Placement {
+        ID_RANGE,
+        CITY_HASH;
+
+        public static Placement parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Shard placement must be id_range or city_hash, got: " + value, e);
+            }
+        }
+    }
+
+    // rows queued per shard during copyProperties before the source waits for that shard
+    private static final int COPY_QUEUE_SIZE = 10_000;
+    private static final PropertyRecord COPY_END = new PropertyRecord(0, "", 0.0);
+    private static final PropertyRecord COPY_ABORT = new PropertyRecord(0, "", 0.0);
+    // resolution of the merged histograms that medians of cities spread over several shards are read from
+    private static final int MEDIAN_BUCKETS = 1024;
+    // between the shards' positions in a change cursor; shard positions never contain it
+    private static final String CURSOR_SEPARATOR = "_";
+
+    private final List<PropertyRepository> shards;
+    private final Placement placement;
+    private final int idRangeSize;
+    private final ExecutorService executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final LongAdder[] inserted;
+
+    public ShardedPropertyRepository(List<? extends PropertyRepository> shards, Placement placement, int idRangeSize) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        if (idRangeSize <= 0 || (long) shards.size() * idRangeSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(shards.size() + " shards of " + idRangeSize + " ids do not fit in the id type.");
+        }
+        this.shards = List.copyOf(shards);
+        this.placement = placement;
+        this.idRangeSize = idRangeSize;
+        // unbounded: concurrency is already capped by the request threads, and a long import must not make
+        // other requests' fan-outs queue behind it
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "property-shard-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.inserted = new LongAdder[shards.size()];
+        for (int i = 0; i < inserted.length; i++) {
+            inserted[i] = new LongAdder();
+        }
+    }
+
+    public int firstId(int shard) {
+        return shard * idRangeSize + 1;
+    }
+
+    public int lastId(int shard) {
+        return (shard + 1) * idRangeSize;
+    }
+
+    // -1 for ids no shard owns
+    private int shardOf(int id) {
+        if (id <= 0) {
+            return -1;
+        }
+        int shard = (id - 1) / idRangeSize;
+        return shard < shards.size() ? shard : -1;
+    }
+
+    private int placeNew(String city) {
+        int n = shards.size();
+        if (placement == Placement.CITY_HASH && city != null) {
+            return Math.floorMod(city.hashCode(), n);
+        }
+        return Math.floorMod(nextShard.getAndIncrement(), n);
+    }
+
+    @Override
+    public int insertProperty(String city, double price) {
+        int shard = placeNew(city);
+        int id = shards.get(shard).insertProperty(city, price);
+        inserted[shard].increment();
+        return id;
+    }
+
+    @Override
+    public int[] insertProperties(List<PropertyRecord> properties) {
+        List<List<Integer>> positions = partition(properties.size(), i -> placeNew(properties.get(i).getCity()));
+        int[] ids = new int[properties.size()];
+        fanOut(shard -> {
+            List<Integer> mine = positions.get(shard);
+            if (mine.isEmpty()) {
+                return null;
+            }
+            List<PropertyRecord> batch = new ArrayList<>(mine.size());
+            for (int position : mine) {
+                batch.add(properties.get(position));
+            }
+            int[] generated = shards.get(shard).insertProperties(batch);
+            for (int i = 0; i < generated.length; i++) {
+                ids[mine.get(i)] = generated[i];
+            }
+            inserted[shard].add(generated.length);
+            return null;
+        });
+        return ids;
+    }
+
+    // Each shard runs its own copy, fed through a bounded queue as the source produces rows. A failing source
+    // or shard cancels the copies still open; a shard whose copy had already committed keeps its rows.
+    @Override
+    public long copyProperties(Consumer<Consumer<PropertyRecord>> source) {
+        int n = shards.size();
+        List<BlockingQueue<PropertyRecord>> queues = new ArrayList<>(n);
+        List<CompletableFuture<Long>> copies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            BlockingQueue<PropertyRecord> queue = new ArrayBlockingQueue<>(COPY_QUEUE_SIZE);
+            PropertyRepository shard = shards.get(i);
+            queues.add(queue);
+            copies.add(CompletableFuture.supplyAsync(() -> shard.copyProperties(sink -> drain(queue, sink)), executor));
+        }
+        try {
+            source.accept(property -> enqueue(queues, copies, placeNew(property.getCity()), property));
+            // a copy that already finished has failed; end none of them then
+            for (CompletableFuture<Long> copy : copies) {
+                if (copy.isDone()) {
+                    join(copy);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                enqueue(queues, copies, i, COPY_END);
+            }
+        } catch (RuntimeException e) {
+            for (BlockingQueue<PropertyRecord> queue : queues) {
+                queue.clear();
+                queue.offer(COPY_ABORT);
+            }
+            for (CompletableFuture<Long> copy : copies) {
+                try {
+                    copy.join();
+                } catch (RuntimeException ignored) {
+                    // cancelled or failed; e is the error to report
+                }
+            }
+            throw e;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            long rows = join(copies.get(i));
+            inserted[i].add(rows);
+            total += rows;
+        }
+        return total;
+    }
+
+    private static void enqueue(List<BlockingQueue<PropertyRecord>> queues, List<CompletableFuture<Long>> copies,
+                                int shard, PropertyRecord property) {
+        try {
+            while (!queues.get(shard).offer(property, 100, TimeUnit.MILLISECONDS)) {
+                if (copies.get(shard).isDone()) {
+                    join(copies.get(shard));
+                    throw new IllegalStateException("Shard " + shard + " stopped reading rows.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing properties.", e);
+        }
+    }
+
+    // Throwing makes the shard cancel its copy, so nothing it received is committed.
+    private static void drain(BlockingQueue<PropertyRecord> queue, Consumer<PropertyRecord> sink) {
+        try {
+            for (PropertyRecord property = queue.take(); property != COPY_END; property = queue.take()) {
+                if (property == COPY_ABORT) {
+                    throw new IllegalStateException("Import cancelled on another shard.");
+                }
+                sink.accept(property);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted.", e);
+        }
+    }
+
+    @Override
+    public PropertyRecord getPropertyById(int id) {
+        int shard = shardOf(id);
+        return shard < 0 ? null : shards.get(shard).getPropertyById(id);
+    }
+
+    @Override
+    public List<PropertyRecord> getPropertiesByIds(int[] ids) {
+        List<List<Integer>> positions = partition(ids.length, i -> shardOf(ids[i]));
+        List<PropertyRecord> found = new ArrayList<>(ids.length);
+        for (List<PropertyRecord> part : this.<List<PropertyRecord>>fanOut(shard -> {
+            List<Integer> mine = positions.get(shard);
+            if (mine.isEmpty()) {
+                return List.of();
+            }
+            int[] shardIds = new int[mine.size()];
+            for (int i = 0; i < shardIds.length; i++) {
+                shardIds[i] = ids[mine.get(i)];
+            }
+            return shards.get(shard).getPropertiesByIds(shardIds);
+        })) {
+            found.addAll(part);
+        }
+        return found;
+    }
+
+    @Override
+    public List<PropertyRecord> listProperties() {
+        List<PropertyRecord> list = new ArrayList<>();
+        for (List<PropertyRecord> part : fanOut(shard -> shards.get(shard).listProperties())) {
+            list.addAll(part);
+        }
+        return list;
+    }
+
+    // Walks the shards from the one owning afterId + 1 and stops as soon as the page is full, so a page
+    // usually touches one shard.
+    @Override
+    public List<PropertyRecord> listProperties(int afterId, int limit) {
+        List<PropertyRecord> list = new ArrayList<>(limit);
+        int first = afterId < 0 ? 0 : Math.max(0, afterId / idRangeSize);
+        for (int shard = first; shard < shards.size() && list.size() < limit; shard++) {
+            list.addAll(shards.get(shard).listProperties(afterId, limit - list.size()));
+        }
+        return list;
+    }
+
+    // Streams shard after shard to keep id order and constant memory; this one does not fan out.
+    @Override
+    public void forEachProperty(Consumer<PropertyRecord> consumer) {
+        for (PropertyRepository shard : shards) {
+            shard.forEachProperty(consumer);
+        }
+    }
+
+    @Override
+    public void forEachPrimaryProperty(Consumer<PropertyRecord> consumer) {
+        for (PropertyRepository shard : shards) {
+            shard.forEachPrimaryProperty(consumer);
+        }
+    }
+
+    @Override
+    public int updateProperty(int id, String city, double price) {
+        int shard = shardOf(id);
+        return shard < 0 ? 0 : shards.get(shard).updateProperty(id, city, price);
+    }
+
+    @Override
+    public int deleteProperty(int id) {
+        int shard = shardOf(id);
+        return shard < 0 ? 0 : shards.get(shard).deleteProperty(id);
+    }
+
+    @Override
+    public int[] updateProperties(List<PropertyRecord> properties) {
+        List<List<Integer>> positions = partition(properties.size(), i -> shardOf(properties.get(i).getId()));
+        int[] counts = new int[properties.size()];
+        fanOut(shard -> {
+            List<Integer> mine = positions.get(shard);
+            if (!mine.isEmpty()) {
+                List<PropertyRecord> batch = new ArrayList<>(mine.size());
+                for (int position : mine) {
+                    batch.add(properties.get(position));
+                }
+                scatter(shards.get(shard).updateProperties(batch), mine, counts);
+            }
+            return null;
+        });
+        return counts;
+    }
+
+    @Override
+    public int[] deleteProperties(int[] ids) {
+        List<List<Integer>> positions = partition(ids.length, i -> shardOf(ids[i]));
+        int[] counts = new int[ids.length];
+        fanOut(shard -> {
+            List<Integer> mine = positions.get(shard);
+            if (!mine.isEmpty()) {
+                int[] shardIds = new int[mine.size()];
+                for (int i = 0; i < shardIds.length; i++) {
+                    shardIds[i] = ids[mine.get(i)];
+                }
+                scatter(shards.get(shard).deleteProperties(shardIds), mine, counts);
+            }
+            return null;
+        });
+        return counts;
+    }
+
+    // Aggregated by the shards in two parallel rounds, so only O(cities) per shard reaches this process: the
+    // overall price range first, then per-city aggregates with histograms over that range. Counts, extremes, means
+    // and histograms merge exactly. A median is exact when all of a city's rows are on one shard (always the case
+    // under CITY_HASH); otherwise it is interpolated from a histogram MEDIAN_BUCKETS wide, so it is off by at most
+    // 1/MEDIAN_BUCKETS of the price range.
+    @Override
+    public PropertyStats propertyStats(int buckets) {
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (PropertyStats part : fanOut(shard -> shards.get(shard).propertyStats(1))) {
+            if (part.getCount() > 0) {
+                lo = Math.min(lo, part.getHistogramMin());
+                hi = Math.max(hi, part.getHistogramMax());
+            }
+        }
+        if (lo > hi) {
+            return new PropertyStats(0, 0.0, 0.0, buckets, List.of());
+        }
+        return propertyStats(buckets, lo, hi);
+    }
+
+    @Override
+    public PropertyStats propertyStats(int buckets, double histogramMin, double histogramMax) {
+        // fine buckets nest evenly in the requested ones
+        int finePerBucket = Math.max(1, (MEDIAN_BUCKETS + buckets - 1) / buckets);
+        int fineBuckets = buckets * finePerBucket;
+        Map<String, List<PropertyStats.CityStats>> byCity = new TreeMap<>();
+        for (PropertyStats part : fanOut(shard -> shards.get(shard).propertyStats(fineBuckets, histogramMin, histogramMax))) {
+            for (PropertyStats.CityStats city : part.getCities()) {
+                byCity.computeIfAbsent(city.getCity(), c -> new ArrayList<>()).add(city);
+            }
+        }
+        double width = histogramMax > histogramMin ? (histogramMax - histogramMin) / fineBuckets : 0.0;
+        List<PropertyStats.CityStats> cities = new ArrayList<>(byCity.size());
+        long total = 0;
+        for (Map.Entry<String, List<PropertyStats.CityStats>> entry : byCity.entrySet()) {
+            long count = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            long[] fine = new long[fineBuckets];
+            for (PropertyStats.CityStats part : entry.getValue()) {
+                count += part.getCount();
+                min = Math.min(min, part.getMin());
+                max = Math.max(max, part.getMax());
+                sum += part.getMean() * part.getCount();
+                for (int i = 0; i < fineBuckets; i++) {
+                    fine[i] += part.getHistogram()[i];
+                }
+            }
+            long[] histogram = new long[buckets];
+            for (int i = 0; i < fineBuckets; i++) {
+                histogram[i / finePerBucket] += fine[i];
+            }
+            double median = entry.getValue().size() == 1
+                    ? entry.getValue().get(0).getMedian()
+                    : interpolateMedian(fine, count, histogramMin, width, min, max);
+            cities.add(new PropertyStats.CityStats(entry.getKey(), count, min, max, sum / count, median, histogram));
+            total += count;
+        }
+        return new PropertyStats(total, histogramMin, histogramMax, buckets, cities);
+    }
+
+    // The value at rank (count - 1) / 2, as percentile_cont(0.5), assuming prices spread evenly within a bucket.
+    private static double interpolateMedian(long[] histogram, long count, double lo, double width, double min, double max) {
+        double rank = (count - 1) / 2.0;
+        long before = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            long n = histogram[i];
+            if (n > 0 && before + n > rank) {
+                double value = lo + width * (i + (rank - before + 0.5) / n);
+                return Math.max(min, Math.min(max, value));
+            }
+            before += n;
+        }
+        return max;
+    }
+
+    // Every shard keeps its own change log, so the cursor holds one position per shard, in shard order,
+    // joined by CURSOR_SEPARATOR ("0" alone is the start of every log). The limit is split evenly and every
+    // shard is read in parallel from its own position. Each shard reads at least one entry; when that takes a
+    // limit below the shard count over it, the shards past the limit in this page's turn order are left out
+    // and stay where they were, with hasMore set. Ids are unique across shards, so the pages simply add up.
+    @Override
+    public ChangePage<PropertyRecord> getPropertyChanges(String since, int limit) {
+        int n = shards.size();
+        if (n == 1) {
+            return shards.get(0).getPropertyChanges(since, limit);
+        }
+        String[] positions = new String[n];
+        if (since.equals(ChangePage.START)) {
+            Arrays.fill(positions, ChangePage.START);
+        } else {
+            positions = since.split(CURSOR_SEPARATOR, -1);
+            if (positions.length != n) {
+                return null;
+            }
+        }
+        // the shards that get one more than limit / n take turns, so no shard waits on the others' churn
+        int[] shares = new int[n];
+        int first = Math.floorMod(since.hashCode(), n);
+        for (int i = 0; i < n; i++) {
+            shares[(first + i) % n] = Math.max(1, limit / n + (i < limit % n ? 1 : 0));
+        }
+        String[] from = positions;
+        List<ChangePage<PropertyRecord>> pages = fanOut(shard -> shards.get(shard).getPropertyChanges(from[shard], shares[shard]));
+        if (pages.contains(null)) {
+            return null;
+        }
+        // whole shard pages are kept in turn order while they fit; one left out holds at least one entry
+        boolean[] kept = new boolean[n];
+        int taken = 0;
+        for (int i = 0; i < n; i++) {
+            int shard = (first + i) % n;
+            ChangePage<PropertyRecord> page = pages.get(shard);
+            int entries = page.getUpserts().size() + page.getDeletes().size();
+            if (taken + entries <= limit) {
+                kept[shard] = true;
+                taken += entries;
+            }
+        }
+        String[] next = new String[n];
+        boolean hasMore = false;
+        List<PropertyRecord> upserts = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        for (int shard = 0; shard < n; shard++) {
+            ChangePage<PropertyRecord> page = pages.get(shard);
+            if (!kept[shard]) {
+                next[shard] = positions[shard];
+                hasMore = true;
+                continue;
+            }
+            next[shard] = page.getNext();
+            hasMore |= page.isHasMore();
+            upserts.addAll(page.getUpserts());
+            deletes.addAll(page.getDeletes());
+        }
+        return new ChangePage<>(since, String.join(CURSOR_SEPARATOR, next), hasMore, upserts, deletes);
+    }
+
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> shardStats = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            Map<String, Object> shard = new LinkedHashMap<>();
+            shard.put("shard", i);
+            shard.put("firstId", firstId(i));
+            shard.put("lastId", lastId(i));
+            shard.put("inserted", inserted[i].sum());
+            shardStats.add(shard);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("placement", placement.name());
+        stats.put("idRangeSize", idRangeSize);
+        stats.put("shards", shardStats);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // positions.get(shard) lists, in input order, the indexes that shardFor assigns to that shard; indexes
+    // assigned to no shard (-1) are left out
+    private List<List<Integer>> partition(int size, IntFunction<Integer> shardFor) {
+        List<List<Integer>> positions = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            int shard = shardFor.apply(i);
+            if (shard >= 0) {
+                positions.get(shard).add(i);
+            }
+        }
+        return positions;
+    }
+
+    private static void scatter(int[] shardCounts, List<Integer> positions, int[] counts) {
+        for (int i = 0; i < shardCounts.length; i++) {
+            counts[positions.get(i)] = shardCounts[i];
+        }
+    }
+
+    // Runs task for every shard in parallel; results are in shard order.
+    private <T> List<T> fanOut(IntFunction<T> task) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> task.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package service;
 
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.MultiGetResult;
 import dto.AgencyRecord;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AgencyService {
     List<AgencyRecord> listAgencies();
+    List<AgencyRecord> listAgencies(int afterId, int limit);
+    void forEachAgency(Consumer<AgencyRecord> consumer);
     AgencyRecord getAgency(int id);
+    MultiGetResult<AgencyRecord> getAgenciesByIds(int[] ids);
+    ChangePage<AgencyRecord> getAgencyChanges(String since, int limit);
     void createAgency(AgencyRecord agency);
     void updateAgency(int id, AgencyRecord agency);
     void deleteAgency(int id);
+    TableVersion version();
+    // A change to the table this service did not make (changes.source=postgres); follows it like its own writes.
+    void applyExternalChange(ChangeEvent.Type type, int id);
 }
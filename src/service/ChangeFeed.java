@@ -0,0 +1,55 @@
+package service;
+
+import dto.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process bus for row changes. The services publish after each write they perform; listeners are
+// called on the writing thread, in publish order, so they must hand the event off rather than do I/O.
+// Like TableVersion, it only sees writes made through this server's services.
+public final class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    public interface Listener {
+        void onChange(ChangeEvent event);
+    }
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+
+    // Returns the handle that removes the listener again.
+    public Runnable subscribe(Listener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public void publish(String entity, ChangeEvent.Type type, int id, Object data) {
+        ChangeEvent event;
+        // numbering and dispatch under one lock, so listeners see sequence order even with concurrent writers
+        synchronized (this) {
+            event = new ChangeEvent(sequence.incrementAndGet(), entity, type, id, data, System.currentTimeMillis());
+            for (Listener listener : listeners) {
+                try {
+                    listener.onChange(event);
+                } catch (RuntimeException e) {
+                    logger.warn("Change listener failed on {}", event, e);
+                }
+            }
+        }
+        published.increment();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getLastSequence() {
+        return sequence.get();
+    }
+}
@@ -1,18 +1,41 @@
 package service;
 
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.MultiGetResult;
 import dto.AgencyRecord;
+import exceptions.GoneException;
 import exceptions.InvalidInputException;
 import exceptions.NotFoundException;
 import repository.AgencyRepository;
 import util.ValidationRules;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class DefaultAgencyService implements AgencyService, ValidationRules {
     private final AgencyRepository agencyRepository;
+    private final TableVersion version = new TableVersion("agencies");
+    private final ChangeFeed changes;
 
     public DefaultAgencyService(AgencyRepository agencyRepository) {
+        this(agencyRepository, null);
+    }
+
+    // changes may be null when nothing subscribes to row changes.
+    public DefaultAgencyService(AgencyRepository agencyRepository, ChangeFeed changes) {
         this.agencyRepository = agencyRepository;
+        this.changes = changes;
+    }
+
+    @Override
+    public TableVersion version() {
+        return version;
+    }
+
+    @Override
+    public void applyExternalChange(ChangeEvent.Type type, int id) {
+        version.bump();
     }
 
     @Override
@@ -20,6 +43,17 @@ public class DefaultAgencyService implements AgencyService, ValidationRules {
         return agencyRepository.listAgencies();
     }
 
+    @Override
+    public List<AgencyRecord> listAgencies(int afterId, int limit) {
+        requirePage(afterId, limit);
+        return agencyRepository.listAgencies(afterId, limit);
+    }
+
+    @Override
+    public void forEachAgency(Consumer<AgencyRecord> consumer) {
+        agencyRepository.forEachAgency(consumer);
+    }
+
     @Override
     public AgencyRecord getAgency(int id) {
         if (id <= 0) {
@@ -32,13 +66,31 @@ public class DefaultAgencyService implements AgencyService, ValidationRules {
         return agency;
     }
 
+    @Override
+    public MultiGetResult<AgencyRecord> getAgenciesByIds(int[] ids) {
+        requireIds(ids);
+        return MultiGetResult.of(ids, agencyRepository.getAgenciesByIds(ids), AgencyRecord::getId);
+    }
+
+    @Override
+    public ChangePage<AgencyRecord> getAgencyChanges(String since, int limit) {
+        requireChangeCursor(since, limit);
+        ChangePage<AgencyRecord> page = agencyRepository.getAgencyChanges(since, limit);
+        if (page == null) {
+            throw new GoneException("Change cursor " + since + " is no longer available; resync from since=" + ChangePage.START + ".");
+        }
+        return page;
+    }
+
     @Override
     public void createAgency(AgencyRecord agency) {
         validateAgency(agency);
-        int result = agencyRepository.insertAgency(agency.getName(), agency.getAddress());
-        if (result <= 0) {
+        int id = agencyRepository.insertAgency(agency.getName(), agency.getAddress());
+        version.bump();
+        if (id <= 0) {
             throw new IllegalStateException("Failed to create agency.");
         }
+        publish(ChangeEvent.Type.INSERT, id, new AgencyRecord(id, agency.getName(), agency.getAddress()));
     }
 
     @Override
@@ -48,9 +100,11 @@ public class DefaultAgencyService implements AgencyService, ValidationRules {
         }
         validateAgency(agency);
         int result = agencyRepository.updateAgency(id, agency.getName(), agency.getAddress());
+        version.bump();
         if (result <= 0) {
             throw new NotFoundException("Agency not found.");
         }
+        publish(ChangeEvent.Type.UPDATE, id, new AgencyRecord(id, agency.getName(), agency.getAddress()));
     }
 
     @Override
@@ -59,9 +113,17 @@ public class DefaultAgencyService implements AgencyService, ValidationRules {
             throw new InvalidInputException("Agency id must be positive.");
         }
         int result = agencyRepository.deleteAgency(id);
+        version.bump();
         if (result <= 0) {
             throw new NotFoundException("Agency not found.");
         }
+        publish(ChangeEvent.Type.DELETE, id, null);
+    }
+
+    private void publish(ChangeEvent.Type type, int id, AgencyRecord row) {
+        if (changes != null) {
+            changes.publish("agency", type, id, row);
+        }
     }
 
     private void validateAgency(AgencyRecord agency) {
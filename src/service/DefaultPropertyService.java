@@ -1,18 +1,98 @@
 package service;
 
+import domain.Property;
+import domain.PropertyIndex;
+import dto.BulkInsertResult;
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.ImportResult;
+import dto.MultiGetResult;
 import dto.PropertyRecord;
+import dto.PropertyStats;
+import exceptions.GoneException;
 import exceptions.InvalidInputException;
 import exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import repository.PropertyRepository;
 import util.ValidationRules;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class DefaultPropertyService implements PropertyService, ValidationRules {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultPropertyService.class);
+    private static final int MAX_STATS_BUCKETS = 100;
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 100;
+    // larger batches are announced as one RELOAD, which a subscriber's buffer can always hold
+    private static final int MAX_ROW_EVENTS_PER_BATCH = 500;
+
     private final PropertyRepository propertyRepository;
+    private final TableVersion version = new TableVersion("properties");
+    private final PropertyIndex index = new PropertyIndex();
+    private volatile boolean indexLoaded;
+    // ids deleted while the index is being filled, so the load does not bring them back; null otherwise
+    private volatile Set<Integer> deletedDuringLoad;
+    private volatile StatsSnapshot stats;
+
+    private final PropertyWriteBehind writeBehind;
+    private final ChangeFeed changes;
 
     public DefaultPropertyService(PropertyRepository propertyRepository) {
+        this(propertyRepository, null);
+    }
+
+    // writeBehind may be null for synchronous writes.
+    public DefaultPropertyService(PropertyRepository propertyRepository, PropertyWriteBehind writeBehind) {
+        this(propertyRepository, writeBehind, null);
+    }
+
+    // changes may be null when nothing subscribes to row changes. Queued writes are published once they
+    // reach the repository, not when accepted, and a coalesced burst once, with the values written.
+    public DefaultPropertyService(PropertyRepository propertyRepository, PropertyWriteBehind writeBehind, ChangeFeed changes) {
         this.propertyRepository = propertyRepository;
+        this.writeBehind = writeBehind;
+        this.changes = changes;
+        if (writeBehind != null) {
+            writeBehind.setListener(new WriteBehindListener());
+        }
+    }
+
+    @Override
+    public TableVersion version() {
+        return version;
+    }
+
+    // Rows are re-read rather than taken from the event, which carries only the id, and only while the index
+    // is loaded or loading; otherwise its next load reads them anyway. Writes of this server come back here as
+    // well; re-applying them is harmless.
+    @Override
+    public void applyExternalChange(ChangeEvent.Type type, int id) {
+        if (type == ChangeEvent.Type.RELOAD) {
+            synchronized (index) {
+                index.clear();
+                indexLoaded = false;
+            }
+        } else if (indexLoaded || deletedDuringLoad != null) {
+            PropertyRecord row = type == ChangeEvent.Type.DELETE ? null : propertyRepository.getPropertyById(id);
+            if (row != null && row.getCity() != null && !row.getCity().isBlank() && row.getPrice() > 0) {
+                index.put(toProperty(row));
+            } else {
+                recordDelete(id);
+                index.remove(id);
+            }
+        }
+        version.bump();
+    }
+
+    @Override
+    public boolean isWriteQueued() {
+        return writeBehind != null && writeBehind.getDurability() == PropertyWriteBehind.Durability.ENQUEUE;
     }
 
     @Override
@@ -20,6 +100,17 @@ public class DefaultPropertyService implements PropertyService, ValidationRules
         return propertyRepository.listProperties();
     }
 
+    @Override
+    public List<PropertyRecord> listProperties(int afterId, int limit) {
+        requirePage(afterId, limit);
+        return propertyRepository.listProperties(afterId, limit);
+    }
+
+    @Override
+    public void forEachProperty(Consumer<PropertyRecord> consumer) {
+        propertyRepository.forEachProperty(consumer);
+    }
+
     @Override
     public PropertyRecord getProperty(int id) {
         if (id <= 0) {
@@ -32,13 +123,234 @@ public class DefaultPropertyService implements PropertyService, ValidationRules
         return property;
     }
 
+    // One repository round trip for the whole list; unknown ids are reported, not thrown.
+    @Override
+    public MultiGetResult<PropertyRecord> getPropertiesByIds(int[] ids) {
+        requireIds(ids);
+        return MultiGetResult.of(ids, propertyRepository.getPropertiesByIds(ids), PropertyRecord::getId);
+    }
+
+    @Override
+    public ChangePage<PropertyRecord> getPropertyChanges(String since, int limit) {
+        requireChangeCursor(since, limit);
+        ChangePage<PropertyRecord> page = propertyRepository.getPropertyChanges(since, limit);
+        if (page == null) {
+            throw new GoneException("Change cursor " + since + " is no longer available; resync from since=" + ChangePage.START + ".");
+        }
+        return page;
+    }
+
+    @Override
+    public List<PropertyRecord> searchProperties(String city, Double minPrice, Double maxPrice, String sort) {
+        boolean descending = isDescending("Sort", sort);
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        if (min > max) {
+            throw new InvalidInputException("minPrice must not be greater than maxPrice.");
+        }
+        String cityFilter = city == null || city.isBlank() ? null : city;
+        return toRecords(loadedIndex().search(cityFilter, min, max, descending));
+    }
+
+    // Reads only the first k entries of the index's price order, so the cost does not grow with the table.
+    @Override
+    public List<PropertyRecord> topProperties(int k, String order, String city) {
+        if (k < 1 || k > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("k must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        boolean descending = isDescending("Order", order);
+        String cityFilter = city == null || city.isBlank() ? null : city;
+        return toRecords(loadedIndex().topK(k, descending, cityFilter));
+    }
+
+    private static boolean isDescending(String parameter, String order) {
+        if (order == null || order.equals("price_asc")) {
+            return false;
+        }
+        if (order.equals("price_desc")) {
+            return true;
+        }
+        throw new InvalidInputException(parameter + " must be price_asc or price_desc.");
+    }
+
+    private static List<PropertyRecord> toRecords(List<Property> properties) {
+        List<PropertyRecord> result = new ArrayList<>(properties.size());
+        for (Property p : properties) {
+            result.add(new PropertyRecord((int) p.getId(), p.getCity(), p.getPrice()));
+        }
+        return result;
+    }
+
+    // The index is filled from the repository on first use and then kept in sync by this
+    // service's own writes (and applyExternalChange). It is read from the primary: the index only follows
+    // changes after the load, so rows from a lagging replica would stay stale in it. Writes are not held
+    // up by the load: a row deleted while the table is being read may still be in what the load sees, so
+    // such ids are recorded and left out (or taken back out) before the index is published.
+    private PropertyIndex loadedIndex() {
+        if (!indexLoaded) {
+            synchronized (index) {
+                if (!indexLoaded) {
+                    Set<Integer> deleted = new HashSet<>();
+                    deletedDuringLoad = deleted;
+                    propertyRepository.forEachPrimaryProperty(r -> {
+                        // rows that would fail Property's own validation cannot be indexed
+                        if (r.getCity() != null && !r.getCity().isBlank() && r.getPrice() > 0) {
+                            synchronized (deleted) {
+                                if (!deleted.contains(r.getId())) {
+                                    index.putIfAbsent(toProperty(r));
+                                }
+                            }
+                        }
+                    });
+                    synchronized (deleted) {
+                        for (int id : deleted) {
+                            index.remove(id);
+                        }
+                        deletedDuringLoad = null;
+                    }
+                    indexLoaded = true;
+                }
+            }
+        }
+        return index;
+    }
+
+    // Called before the id is removed from the index: once the load has finished, everything it put is
+    // already there for the removal to take out.
+    private void recordDelete(int id) {
+        Set<Integer> deleted = deletedDuringLoad;
+        if (deleted != null) {
+            synchronized (deleted) {
+                if (deletedDuringLoad == deleted) {
+                    deleted.add(id);
+                }
+            }
+        }
+    }
+
+    private static Property toProperty(PropertyRecord record) {
+        return new Property(record.getId(), record.getCity(), record.getPrice());
+    }
+
+    // Aggregation runs in the repository (GROUP BY in SQL); the answer is reused until the next write.
     @Override
-    public void createProperty(PropertyRecord property) {
+    public PropertyStats getPropertyStats(int buckets) {
+        if (buckets < 1 || buckets > MAX_STATS_BUCKETS) {
+            throw new InvalidInputException("Buckets must be between 1 and " + MAX_STATS_BUCKETS + ".");
+        }
+        long current = version.getVersion();
+        StatsSnapshot cached = stats;
+        if (cached != null && cached.version == current && cached.buckets == buckets) {
+            return cached.stats;
+        }
+        // read before the query: right after a write the query may run on a replica that has not seen it
+        boolean settled = version.isSettled();
+        PropertyStats computed = propertyRepository.propertyStats(buckets);
+        if (settled) {
+            stats = new StatsSnapshot(current, buckets, computed);
+        }
+        return computed;
+    }
+
+    @Override
+    public int createProperty(PropertyRecord property) {
         validateProperty(property);
-        int result = propertyRepository.insertProperty(property.getCity(), property.getPrice());
-        if (result <= 0) {
+        String city = property.getCity();
+        double price = property.getPrice();
+        if (writeBehind != null) {
+            CompletableFuture<Integer> queued = writeBehind.insert(city, price);
+            if (isWriteQueued()) {
+                return 0;
+            }
+            int id = awaitCommit(queued);
+            if (id <= 0) {
+                throw new IllegalStateException("Failed to create property.");
+            }
+            return id;
+        }
+        int id = propertyRepository.insertProperty(city, price);
+        version.bump();
+        if (id <= 0) {
             throw new IllegalStateException("Failed to create property.");
         }
+        index.put(new Property(id, property.getCity(), property.getPrice()));
+        publish(ChangeEvent.Type.INSERT, id, new PropertyRecord(id, city, price));
+        return id;
+    }
+
+    @Override
+    public BulkInsertResult createProperties(List<PropertyRecord> properties) {
+        if (properties == null || properties.isEmpty()) {
+            throw new InvalidInputException("At least one property is required.");
+        }
+        List<PropertyRecord> valid = new ArrayList<>(properties.size());
+        List<Integer> positions = new ArrayList<>(properties.size());
+        List<BulkInsertResult.RowError> errors = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            try {
+                validateProperty(properties.get(i));
+                valid.add(properties.get(i));
+                positions.add(i);
+            } catch (InvalidInputException e) {
+                errors.add(new BulkInsertResult.RowError(i, e.getMessage()));
+            }
+        }
+        List<Integer> ids = new ArrayList<>(properties.size());
+        for (int i = 0; i < properties.size(); i++) {
+            ids.add(null);
+        }
+        if (!valid.isEmpty()) {
+            int[] generated = propertyRepository.insertProperties(valid);
+            version.bump();
+            for (int i = 0; i < generated.length; i++) {
+                ids.set(positions.get(i), generated[i]);
+                index.put(new Property(generated[i], valid.get(i).getCity(), valid.get(i).getPrice()));
+                if (generated.length <= MAX_ROW_EVENTS_PER_BATCH) {
+                    publish(ChangeEvent.Type.INSERT, generated[i], new PropertyRecord(generated[i], valid.get(i).getCity(), valid.get(i).getPrice()));
+                }
+            }
+            if (generated.length > MAX_ROW_EVENTS_PER_BATCH) {
+                publish(ChangeEvent.Type.RELOAD, 0, null);
+            }
+        }
+        return new BulkInsertResult(properties.size(), ids, errors);
+    }
+
+    // Rows are validated as they stream past and only valid ones reach the repository's bulk load, so
+    // nothing is buffered here. Generated ids are not returned by COPY, so the search index is rebuilt
+    // from the table on its next use.
+    @Override
+    public ImportResult importProperties(Consumer<Consumer<PropertyRecord>> source) {
+        long start = System.nanoTime();
+        long[] received = new long[1];
+        List<BulkInsertResult.RowError> errors = new ArrayList<>();
+        long[] rejected = new long[1];
+        long imported = propertyRepository.copyProperties(sink -> source.accept(property -> {
+            int row = (int) received[0]++;
+            try {
+                validateProperty(property);
+            } catch (InvalidInputException e) {
+                rejected[0]++;
+                if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                    errors.add(new BulkInsertResult.RowError(row, e.getMessage()));
+                }
+                return;
+            }
+            sink.accept(property);
+        }));
+        if (imported > 0) {
+            version.bump();
+            synchronized (index) {
+                index.clear();
+                indexLoaded = false;
+            }
+            publish(ChangeEvent.Type.RELOAD, 0, null);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        ImportResult result = new ImportResult(received[0], imported, rejected[0], errors, elapsedMillis);
+        logger.info("Imported {} properties ({} rejected) in {} ms, {} rows/s",
+                imported, rejected[0], elapsedMillis, Math.round(result.getRowsPerSecond()));
+        return result;
     }
 
     @Override
@@ -47,10 +359,20 @@ public class DefaultPropertyService implements PropertyService, ValidationRules
             throw new InvalidInputException("Property id must be positive.");
         }
         validateProperty(property);
+        if (writeBehind != null) {
+            CompletableFuture<Integer> queued = writeBehind.update(id, property.getCity(), property.getPrice());
+            if (!isWriteQueued() && awaitCommit(queued) <= 0) {
+                throw new NotFoundException("Property not found.");
+            }
+            return;
+        }
         int result = propertyRepository.updateProperty(id, property.getCity(), property.getPrice());
+        version.bump();
         if (result <= 0) {
             throw new NotFoundException("Property not found.");
         }
+        index.put(new Property(id, property.getCity(), property.getPrice()));
+        publish(ChangeEvent.Type.UPDATE, id, new PropertyRecord(id, property.getCity(), property.getPrice()));
     }
 
     @Override
@@ -58,10 +380,69 @@ public class DefaultPropertyService implements PropertyService, ValidationRules
         if (id <= 0) {
             throw new InvalidInputException("Property id must be positive.");
         }
+        if (writeBehind != null) {
+            CompletableFuture<Integer> queued = writeBehind.delete(id);
+            if (!isWriteQueued() && awaitCommit(queued) <= 0) {
+                throw new NotFoundException("Property not found.");
+            }
+            return;
+        }
         int result = propertyRepository.deleteProperty(id);
+        version.bump();
+        recordDelete(id);
+        index.remove(id);
         if (result <= 0) {
             throw new NotFoundException("Property not found.");
         }
+        publish(ChangeEvent.Type.DELETE, id, null);
+    }
+
+    // Applies queued writes to the index and the feed once per written row, so callers merged into one
+    // update see a single event with the final values; it runs before any of them is answered.
+    private final class WriteBehindListener implements PropertyWriteBehind.Listener {
+        @Override
+        public void inserted(int id, String city, double price) {
+            index.put(new Property(id, city, price));
+            version.bump();
+            publish(ChangeEvent.Type.INSERT, id, new PropertyRecord(id, city, price));
+        }
+
+        @Override
+        public void updated(int id, String city, double price, int rows) {
+            if (rows > 0) {
+                index.put(new Property(id, city, price));
+                publish(ChangeEvent.Type.UPDATE, id, new PropertyRecord(id, city, price));
+            }
+            version.bump();
+        }
+
+        @Override
+        public void deleted(int id, int rows) {
+            recordDelete(id);
+            index.remove(id);
+            version.bump();
+            if (rows > 0) {
+                publish(ChangeEvent.Type.DELETE, id, null);
+            }
+        }
+    }
+
+    private void publish(ChangeEvent.Type type, int id, PropertyRecord row) {
+        if (changes != null) {
+            changes.publish("property", type, id, row);
+        }
+    }
+
+    // Ack-on-commit: wait for the batch holding this mutation and surface its failure as-is.
+    private static int awaitCommit(CompletableFuture<Integer> queued) {
+        try {
+            return queued.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     private void validateProperty(PropertyRecord property) {
@@ -71,4 +452,16 @@ public class DefaultPropertyService implements PropertyService, ValidationRules
         requireNonBlank("City", property.getCity());
         ValidationRules.requirePositive("Price", property.getPrice());
     }
+
+    private static final class StatsSnapshot {
+        private final long version;
+        private final int buckets;
+        private final PropertyStats stats;
+
+        private StatsSnapshot(long version, int buckets, PropertyStats stats) {
+            this.version = version;
+            this.buckets = buckets;
+            this.stats = stats;
+        }
+    }
 }
@@ -1,18 +1,41 @@
 package service;
 
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.MultiGetResult;
 import dto.RealtorRecord;
+import exceptions.GoneException;
 import exceptions.InvalidInputException;
 import exceptions.NotFoundException;
 import repository.RealtorRepository;
 import util.ValidationRules;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class DefaultRealtorService implements RealtorService, ValidationRules {
     private final RealtorRepository realtorRepository;
+    private final TableVersion version = new TableVersion("realtors");
+    private final ChangeFeed changes;
 
     public DefaultRealtorService(RealtorRepository realtorRepository) {
+        this(realtorRepository, null);
+    }
+
+    // changes may be null when nothing subscribes to row changes.
+    public DefaultRealtorService(RealtorRepository realtorRepository, ChangeFeed changes) {
         this.realtorRepository = realtorRepository;
+        this.changes = changes;
+    }
+
+    @Override
+    public TableVersion version() {
+        return version;
+    }
+
+    @Override
+    public void applyExternalChange(ChangeEvent.Type type, int id) {
+        version.bump();
     }
 
     @Override
@@ -20,6 +43,17 @@ public class DefaultRealtorService implements RealtorService, ValidationRules {
         return realtorRepository.listRealtors();
     }
 
+    @Override
+    public List<RealtorRecord> listRealtors(int afterId, int limit) {
+        requirePage(afterId, limit);
+        return realtorRepository.listRealtors(afterId, limit);
+    }
+
+    @Override
+    public void forEachRealtor(Consumer<RealtorRecord> consumer) {
+        realtorRepository.forEachRealtor(consumer);
+    }
+
     @Override
     public RealtorRecord getRealtor(int id) {
         if (id <= 0) {
@@ -32,13 +66,31 @@ public class DefaultRealtorService implements RealtorService, ValidationRules {
         return realtor;
     }
 
+    @Override
+    public MultiGetResult<RealtorRecord> getRealtorsByIds(int[] ids) {
+        requireIds(ids);
+        return MultiGetResult.of(ids, realtorRepository.getRealtorsByIds(ids), RealtorRecord::getId);
+    }
+
+    @Override
+    public ChangePage<RealtorRecord> getRealtorChanges(String since, int limit) {
+        requireChangeCursor(since, limit);
+        ChangePage<RealtorRecord> page = realtorRepository.getRealtorChanges(since, limit);
+        if (page == null) {
+            throw new GoneException("Change cursor " + since + " is no longer available; resync from since=" + ChangePage.START + ".");
+        }
+        return page;
+    }
+
     @Override
     public void createRealtor(RealtorRecord realtor) {
         validateRealtor(realtor);
-        int result = realtorRepository.insertRealtor(realtor.getName());
-        if (result <= 0) {
+        int id = realtorRepository.insertRealtor(realtor.getName());
+        version.bump();
+        if (id <= 0) {
             throw new IllegalStateException("Failed to create realtor.");
         }
+        publish(ChangeEvent.Type.INSERT, id, new RealtorRecord(id, realtor.getName()));
     }
 
     @Override
@@ -48,9 +100,11 @@ public class DefaultRealtorService implements RealtorService, ValidationRules {
         }
         validateRealtor(realtor);
         int result = realtorRepository.updateRealtor(id, realtor.getName());
+        version.bump();
         if (result <= 0) {
             throw new NotFoundException("Realtor not found.");
         }
+        publish(ChangeEvent.Type.UPDATE, id, new RealtorRecord(id, realtor.getName()));
     }
 
     @Override
@@ -59,9 +113,17 @@ public class DefaultRealtorService implements RealtorService, ValidationRules {
             throw new InvalidInputException("Realtor id must be positive.");
         }
         int result = realtorRepository.deleteRealtor(id);
+        version.bump();
         if (result <= 0) {
             throw new NotFoundException("Realtor not found.");
         }
+        publish(ChangeEvent.Type.DELETE, id, null);
+    }
+
+    private void publish(ChangeEvent.Type type, int id, RealtorRecord row) {
+        if (changes != null) {
+            changes.publish("realtor", type, id, row);
+        }
     }
 
     private void validateRealtor(RealtorRecord realtor) {
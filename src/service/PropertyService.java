@@ -1,12 +1,35 @@
 package service;
 
+import dto.BulkInsertResult;
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.ImportResult;
+import dto.MultiGetResult;
 import dto.PropertyRecord;
+import dto.PropertyStats;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PropertyService {
     List<PropertyRecord> listProperties();
+    List<PropertyRecord> listProperties(int afterId, int limit);
+    void forEachProperty(Consumer<PropertyRecord> consumer);
     PropertyRecord getProperty(int id);
-    void createProperty(PropertyRecord property);
+    MultiGetResult<PropertyRecord> getPropertiesByIds(int[] ids);
+    ChangePage<PropertyRecord> getPropertyChanges(String since, int limit);
+    List<PropertyRecord> searchProperties(String city, Double minPrice, Double maxPrice, String sort);
+    List<PropertyRecord> topProperties(int k, String order, String city);
+    PropertyStats getPropertyStats(int buckets);
+    int createProperty(PropertyRecord property);
+    BulkInsertResult createProperties(List<PropertyRecord> properties);
+    // source pushes parsed rows; invalid rows are skipped and reported, the rest are bulk loaded
+    ImportResult importProperties(Consumer<Consumer<PropertyRecord>> source);
     void updateProperty(int id, PropertyRecord property);
     void deleteProperty(int id);
+    TableVersion version();
+    // A change to the table this service did not make (changes.source=postgres); the search index and
+    // version() follow it like the service's own writes.
+    void applyExternalChange(ChangeEvent.Type type, int id);
+    // true when create/update/delete return before the change has reached the database
+    boolean isWriteQueued();
 }
@@ -0,0 +1,377 @@
+package service;
+
+import dto.PropertyRecord;
+import exceptions.TooManyRequestsException;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PropertyRepository;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Buffers property mutations and applies them from a single background writer in JDBC batches.
+// While they wait, an update or delete replaces an earlier pending update of the same id, so a burst of
+// edits to one listing costs one statement. Inserts cannot be coalesced (no id yet) and are batched as-is.
+// What was written is reported to the Listener once per statement row, so a merged burst is one update (or
+// delete) with its final values, and every caller merged into it is answered with that row's count.
+public final class PropertyWriteBehind implements AutoCloseable {
+
+    // Called on the writer thread after a batch commits, before the callers of its mutations are answered.
+    public interface Listener {
+        void inserted(int id, String city, double price);
+        void updated(int id, String city, double price, int rows);
+        void deleted(int id, int rows);
+    }
+
+    public enum Durability {
+        // the caller is answered once the mutation is queued; failures are only logged and counted
+        ENQUEUE,
+        // the caller waits until the batch holding its mutation has committed
+        COMMIT
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyWriteBehind.class);
+
+    private final PropertyRepository repository;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Durability durability;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final List<PendingInsert> inserts = new ArrayList<>();
+    private final Map<Integer, PendingChange> changes = new LinkedHashMap<>();
+    private final Thread writer;
+    private boolean closed;
+    private volatile Listener listener;
+
+    private final Counter enqueued;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter flushed;
+    private final Counter failed;
+    private final Histogram flushTimer;
+
+    public PropertyWriteBehind(PropertyRepository repository, int capacity, int batchSize, long lingerMillis,
+                               Durability durability, MetricsRegistry metrics) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Write-behind capacity and batch size must be positive.");
+        }
+        this.repository = repository;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.durability = durability;
+        this.enqueued = metrics.counter("property_write_queue_enqueued_total", "Property mutations accepted by the write-behind queue.");
+        this.coalesced = metrics.counter("property_write_queue_coalesced_total", "Pending property mutations replaced by a later one for the same id.");
+        this.rejected = metrics.counter("property_write_queue_rejected_total", "Property mutations refused because the queue was full.");
+        this.flushed = metrics.counter("property_write_queue_flushed_total", "Property mutations written by the background writer.");
+        this.failed = metrics.counter("property_write_queue_failed_total", "Property mutations whose batch failed.");
+        this.flushTimer = metrics.histogram("property_write_queue_flush_seconds", "Time to write one write-behind batch.");
+        metrics.gauge("property_write_queue_depth", "Property mutations waiting to be written.", this::depth);
+        metrics.gauge("property_write_queue_capacity", "Maximum pending property mutations.", () -> capacity);
+        this.writer = new Thread(this::run, "property-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Returns null unless -DwriteBehind.enabled=true.
+    public static PropertyWriteBehind fromSystemProperties(PropertyRepository repository, MetricsRegistry metrics) {
+        if (!Boolean.getBoolean("writeBehind.enabled")) {
+            return null;
+        }
+        String durability = System.getProperty("writeBehind.durability", Durability.COMMIT.name());
+        return new PropertyWriteBehind(repository,
+                Integer.getInteger("writeBehind.capacity", 10_000),
+                Integer.getInteger("writeBehind.batchSize", 500),
+                Long.getLong("writeBehind.lingerMs", 5L),
+                Durability.valueOf(durability.trim().toUpperCase(Locale.ROOT)),
+                metrics);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Completes with the generated id.
+    public CompletableFuture<Integer> insert(String city, double price) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        lock.lock();
+        try {
+            admit();
+            inserts.add(new PendingInsert(city, price, result));
+            enqueued.increment();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    // Completes with the number of rows updated (0 when the id does not exist).
+    public CompletableFuture<Integer> update(int id, String city, double price) {
+        return change(id, city, price, false);
+    }
+
+    // Completes with the number of rows deleted.
+    public CompletableFuture<Integer> delete(int id) {
+        return change(id, null, 0.0, true);
+    }
+
+    private CompletableFuture<Integer> change(int id, String city, double price, boolean delete) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        lock.lock();
+        try {
+            PendingChange pending = changes.get(id);
+            if (pending == null) {
+                admit();
+                changes.put(id, new PendingChange(id, city, price, delete, result));
+            } else if (pending.delete && !delete) {
+                // the row is already on its way out; this update will find nothing
+                pending.afterDelete.add(result);
+                coalesced.increment();
+            } else {
+                pending.city = city;
+                pending.price = price;
+                pending.delete = delete;
+                pending.waiters.add(result);
+                coalesced.increment();
+            }
+            enqueued.increment();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private void admit() {
+        if (closed) {
+            throw new IllegalStateException("Write-behind queue is closed.");
+        }
+        if (inserts.size() + changes.size() >= capacity) {
+            rejected.increment();
+            throw new TooManyRequestsException("Write queue is full (" + capacity + " pending), retry later.");
+        }
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return inserts.size() + changes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        List<PendingInsert> insertBatch = new ArrayList<>();
+        List<PendingChange> changeBatch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (inserts.isEmpty() && changes.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (inserts.isEmpty() && changes.isEmpty()) {
+                    return;
+                }
+                // Give a burst a moment to fill the batch before paying for a round trip.
+                long remaining = lingerNanos;
+                while (inserts.size() + changes.size() < batchSize && remaining > 0 && !closed) {
+                    try {
+                        remaining = notEmpty.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                drain(insertBatch, changeBatch);
+            } finally {
+                lock.unlock();
+            }
+            flush(insertBatch, changeBatch);
+            insertBatch.clear();
+            changeBatch.clear();
+        }
+    }
+
+    private void drain(List<PendingInsert> insertBatch, List<PendingChange> changeBatch) {
+        Iterator<PendingInsert> pendingInserts = inserts.iterator();
+        while (pendingInserts.hasNext() && insertBatch.size() < batchSize) {
+            insertBatch.add(pendingInserts.next());
+            pendingInserts.remove();
+        }
+        Iterator<PendingChange> pendingChanges = changes.values().iterator();
+        while (pendingChanges.hasNext() && insertBatch.size() + changeBatch.size() < batchSize) {
+            changeBatch.add(pendingChanges.next());
+            pendingChanges.remove();
+        }
+    }
+
+    private void flush(List<PendingInsert> insertBatch, List<PendingChange> changeBatch) {
+        long start = System.nanoTime();
+        if (!insertBatch.isEmpty()) {
+            List<PropertyRecord> rows = new ArrayList<>(insertBatch.size());
+            for (PendingInsert insert : insertBatch) {
+                rows.add(new PropertyRecord(0, insert.city, insert.price));
+            }
+            try {
+                int[] ids = repository.insertProperties(rows);
+                for (int i = 0; i < insertBatch.size(); i++) {
+                    PendingInsert insert = insertBatch.get(i);
+                    int id = ids[i];
+                    notify(l -> l.inserted(id, insert.city, insert.price));
+                    insert.result.complete(id);
+                }
+                flushed.add(insertBatch.size());
+            } catch (RuntimeException e) {
+                fail("insert", insertBatch.size(), e);
+                for (PendingInsert insert : insertBatch) {
+                    insert.result.completeExceptionally(e);
+                }
+            }
+        }
+        List<PendingChange> updates = new ArrayList<>();
+        List<PendingChange> deletes = new ArrayList<>();
+        for (PendingChange change : changeBatch) {
+            (change.delete ? deletes : updates).add(change);
+        }
+        if (!updates.isEmpty()) {
+            List<PropertyRecord> rows = new ArrayList<>(updates.size());
+            for (PendingChange update : updates) {
+                rows.add(new PropertyRecord(update.id, update.city, update.price));
+            }
+            try {
+                complete(updates, repository.updateProperties(rows));
+            } catch (RuntimeException e) {
+                fail("update", updates.size(), e);
+                completeExceptionally(updates, e);
+            }
+        }
+        if (!deletes.isEmpty()) {
+            int[] ids = new int[deletes.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = deletes.get(i).id;
+            }
+            try {
+                complete(deletes, repository.deleteProperties(ids));
+            } catch (RuntimeException e) {
+                fail("delete", deletes.size(), e);
+                completeExceptionally(deletes, e);
+            }
+        }
+        flushTimer.recordSince(start);
+    }
+
+    private void complete(List<PendingChange> batch, int[] counts) {
+        for (int i = 0; i < batch.size(); i++) {
+            // JDBC may report SUCCESS_NO_INFO (-2) for a batched row; treat it as applied.
+            int count = counts[i] == Statement.SUCCESS_NO_INFO ? 1 : counts[i];
+            PendingChange change = batch.get(i);
+            if (change.delete) {
+                notify(l -> l.deleted(change.id, count));
+            } else {
+                notify(l -> l.updated(change.id, change.city, change.price, count));
+            }
+            for (CompletableFuture<Integer> waiter : change.waiters) {
+                waiter.complete(count);
+            }
+            for (CompletableFuture<Integer> waiter : change.afterDelete) {
+                waiter.complete(0);
+            }
+        }
+        flushed.add(batch.size());
+    }
+
+    private void notify(Consumer<Listener> event) {
+        Listener current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            event.accept(current);
+        } catch (RuntimeException e) {
+            // the rows are written; the callers still get their answer
+            logger.warn("Write-behind listener failed", e);
+        }
+    }
+
+    private void completeExceptionally(List<PendingChange> batch, RuntimeException e) {
+        for (PendingChange change : batch) {
+            change.waiters.forEach(waiter -> waiter.completeExceptionally(e));
+            change.afterDelete.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+
+    private void fail(String operation, int rows, RuntimeException e) {
+        failed.add(rows);
+        if (durability == Durability.ENQUEUE) {
+            // nobody is waiting on these, so this log line is the only trace of the lost writes
+            logger.error("Write-behind {} batch of {} rows failed: {}", operation, rows, e.getMessage(), e);
+        }
+    }
+
+    // Stops accepting mutations and waits for everything already queued to be written.
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingInsert {
+        private final String city;
+        private final double price;
+        private final CompletableFuture<Integer> result;
+
+        private PendingInsert(String city, double price, CompletableFuture<Integer> result) {
+            this.city = city;
+            this.price = price;
+            this.result = result;
+        }
+    }
+
+    private static final class PendingChange {
+        private final int id;
+        private String city;
+        private double price;
+        private boolean delete;
+        private final List<CompletableFuture<Integer>> waiters = new ArrayList<>(1);
+        private final List<CompletableFuture<Integer>> afterDelete = new ArrayList<>(0);
+
+        private PendingChange(int id, String city, double price, boolean delete, CompletableFuture<Integer> waiter) {
+            this.id = id;
+            this.city = city;
+            this.price = price;
+            this.delete = delete;
+            waiters.add(waiter);
+        }
+    }
+}
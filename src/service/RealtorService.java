@@ -1,12 +1,23 @@
 package service;
 
+import dto.ChangeEvent;
+import dto.ChangePage;
+import dto.MultiGetResult;
 import dto.RealtorRecord;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RealtorService {
     List<RealtorRecord> listRealtors();
+    List<RealtorRecord> listRealtors(int afterId, int limit);
+    void forEachRealtor(Consumer<RealtorRecord> consumer);
     RealtorRecord getRealtor(int id);
+    MultiGetResult<RealtorRecord> getRealtorsByIds(int[] ids);
+    ChangePage<RealtorRecord> getRealtorChanges(String since, int limit);
     void createRealtor(RealtorRecord realtor);
     void updateRealtor(int id, RealtorRecord realtor);
     void deleteRealtor(int id);
+    TableVersion version();
+    // A change to the table this service did not make (changes.source=postgres); follows it like its own writes.
+    void applyExternalChange(ChangeEvent.Type type, int id);
 }
@@ -0,0 +1,50 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Change counter for one table, bumped by the service on every write it performs. The epoch makes
+// validators from a previous server run never match, since the table may have changed in between.
+// Writes made directly in the database, bypassing the service, are not observed.
+// With read replicas, a read shortly after a bump may not reflect it yet; isSettled() tells callers whether
+// a response or snapshot built now can safely be tied to the current version.
+public final class TableVersion {
+    private final String name;
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong counter = new AtomicLong();
+    private volatile long lastModified = epoch;
+    private volatile long lastBumpNanos = System.nanoTime();
+    private volatile long staleReadNanos;
+
+    public TableVersion(String name) {
+        this.name = name;
+    }
+
+    public void bump() {
+        lastBumpNanos = System.nanoTime();
+        counter.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    // How far behind the primary reads may be; 0 (the default) when every read sees the latest write.
+    public void setStaleReadMillis(long staleReadMillis) {
+        this.staleReadNanos = staleReadMillis * 1_000_000L;
+    }
+
+    // False until staleReadMillis has passed since the last bump.
+    public boolean isSettled() {
+        return counter.get() == 0 || System.nanoTime() - lastBumpNanos >= staleReadNanos;
+    }
+
+    public long getVersion() {
+        return counter.get();
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Weak, because the same version may be sent plain or compressed.
+    public String etag() {
+        return "W/\"" + name + "-" + Long.toString(epoch, 36) + "-" + counter.get() + "\"";
+    }
+}
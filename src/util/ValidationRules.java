@@ -3,6 +3,8 @@ package util;
 import exceptions.InvalidInputException;
 
 public interface ValidationRules {
+    int MAX_PAGE_SIZE = 1000;
+
     default void requireNonBlank(String field, String value) {
         if (value == null || value.isBlank()) {
             throw new InvalidInputException(field + " is required.");
@@ -14,4 +16,33 @@ public interface ValidationRules {
             throw new InvalidInputException(field + " must be greater than 0.");
         }
     }
+
+    default void requireIds(int[] ids) {
+        if (ids.length == 0 || ids.length > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Between 1 and " + MAX_PAGE_SIZE + " ids are required.");
+        }
+        for (int id : ids) {
+            if (id <= 0) {
+                throw new InvalidInputException("Ids must be positive.");
+            }
+        }
+    }
+
+    default void requirePage(int afterId, int limit) {
+        if (afterId < 0) {
+            throw new InvalidInputException("Cursor 'after' must not be negative.");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    default void requireChangeCursor(String since, int limit) {
+        if (since == null || since.isBlank()) {
+            throw new InvalidInputException("Cursor 'since' must not be blank.");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
 }
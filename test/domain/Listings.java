@@ -0,0 +1,57 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Random listings for the domain tests, and the plain stream queries the indexed and columnar ones must
+// agree with. Few distinct prices, so ties are common, and one city in several spellings.
+final class Listings {
+    static final String[] CITIES = {"Rome", "rome", "ROME", " Rome", "Rome ", "Oslo", "oslo", "Lima"};
+    static final Comparator<Property> BY_PRICE_THEN_ID =
+            Comparator.comparingDouble(Property::getPrice).thenComparingLong(Property::getId);
+
+    private Listings() {}
+
+    // ids are distinct but not in list order, so an id tie-break is not the list order by accident
+    static List<Property> random(int n, long seed) {
+        Random random = new Random(seed);
+        List<Long> ids = new ArrayList<>(n);
+        for (long id = 1; id <= n; id++) {
+            ids.add(id * 7);
+        }
+        Collections.shuffle(ids, random);
+        List<Property> listings = new ArrayList<>(n);
+        for (long id : ids) {
+            listings.add(new Property(id, CITIES[random.nextInt(CITIES.length)], (1 + random.nextInt(40)) * 1_000.0));
+        }
+        return listings;
+    }
+
+    static List<Property> where(List<Property> listings, Predicate<Property> filter) {
+        return listings.stream().filter(filter).collect(Collectors.toList());
+    }
+
+    static Predicate<Property> inPriceRange(double min, double max) {
+        return p -> p.getPrice() >= min && p.getPrice() <= max;
+    }
+
+    // the indexes' city match: case and surrounding spaces ignored
+    static Predicate<Property> inCityTrimmed(String city) {
+        String key = city.trim().toLowerCase(Locale.ROOT);
+        return p -> p.getCity().trim().toLowerCase(Locale.ROOT).equals(key);
+    }
+
+    static List<Property> sorted(List<Property> listings, Comparator<Property> order) {
+        return listings.stream().sorted(order).collect(Collectors.toList());
+    }
+
+    static List<Property> topK(List<Property> listings, int k, Comparator<Property> order) {
+        return listings.stream().sorted(order).limit(k).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PropertyIndexTest {
+
+    private static final String[] QUERIED_CITIES = {"Rome", " rome ", "OSLO", "Lima", "Kyiv"};
+    private static final double[][] PRICE_RANGES = {
+            {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}, {5_000, 20_000}, {7_000, 7_000}, {20_000, 5_000}};
+
+    @Test
+    void searchesMatchAScanInPriceThenIdOrder() {
+        List<Property> listings = Listings.random(1_000, 1);
+        PropertyIndex index = new PropertyIndex();
+        listings.forEach(index::put);
+
+        assertSameAnswers(listings, index);
+    }
+
+    @Test
+    void searchInKeyOrderKeepsTheKeysOrder() {
+        List<Property> listings = Listings.random(500, 2);
+        PropertyIndex index = new PropertyIndex();
+        for (int i = 0; i < listings.size(); i++) {
+            index.put(i, listings.get(i));
+        }
+
+        for (String city : QUERIED_CITIES) {
+            for (double[] range : PRICE_RANGES) {
+                List<Property> matches = Listings.where(listings,
+                        Listings.inCityTrimmed(city).and(Listings.inPriceRange(range[0], range[1])));
+                assertEquals(matches, index.searchInKeyOrder(city, range[0], range[1]),
+                        city + " " + range[0] + ".." + range[1]);
+            }
+        }
+        assertEquals(Listings.where(listings, Listings.inPriceRange(5_000, 20_000)),
+                index.searchInKeyOrder(null, 5_000, 20_000));
+    }
+
+    @Test
+    void followingIndexRefilesListingsChangedThroughTheirSetters() {
+        List<Property> listings = Listings.random(300, 3);
+        PropertyIndex index = new PropertyIndex(true);
+        listings.forEach(index::put);
+
+        for (int i = 0; i < listings.size(); i += 3) {
+            listings.get(i).setPrice(listings.get(i).getPrice() + 500);
+        }
+        for (int i = 0; i < listings.size(); i += 5) {
+            listings.get(i).setCity(i % 2 == 0 ? "Kyiv" : " rome");
+        }
+
+        assertSameAnswers(listings, index);
+    }
+
+    @Test
+    void removedListingIsNotRefiledByALaterChange() {
+        Property kept = new Property(1, "Rome", 1_000);
+        Property removed = new Property(2, "Rome", 2_000);
+        PropertyIndex index = new PropertyIndex(true);
+        index.put(kept);
+        index.put(removed);
+        index.remove(2);
+
+        removed.setPrice(500);
+        removed.setCity("Oslo");
+
+        assertEquals(List.of(kept), index.sortedByPrice());
+        assertTrue(index.byCity("Oslo").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void indexNotFollowingChangesKeepsTheFiledValues() {
+        Property p = new Property(1, "Rome", 1_000);
+        PropertyIndex index = new PropertyIndex();
+        index.put(p);
+
+        p.setCity("Oslo");
+
+        assertEquals(List.of(p), index.byCity("Rome"));
+        index.put(p);
+        assertEquals(List.of(p), index.byCity("Oslo"));
+        assertTrue(index.byCity("Rome").isEmpty());
+    }
+
+    @Test
+    void topKIsTheHeadOfThePriceThenIdOrder() {
+        List<Property> listings = Listings.random(1_000, 4);
+        PropertyIndex index = new PropertyIndex();
+        listings.forEach(index::put);
+        Comparator<Property> ascending = Listings.BY_PRICE_THEN_ID;
+
+        for (int k : new int[]{0, 1, 10, 1_000, 5_000}) {
+            for (String city : new String[]{null, " rome ", "OSLO", "Kyiv"}) {
+                List<Property> matches = city == null
+                        ? listings
+                        : Listings.where(listings, Listings.inCityTrimmed(city));
+                String query = city + " k=" + k;
+                assertEquals(Listings.topK(matches, k, ascending), index.topK(k, false, city), query);
+                assertEquals(Listings.topK(matches, k, ascending.reversed()), index.topK(k, true, city),
+                        query + " descending");
+                Property[] into = new Property[k];
+                int n = index.topK(true, city, into);
+                assertEquals(Listings.topK(matches, k, ascending.reversed()), Arrays.asList(into).subList(0, n),
+                        query + " into");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.topK(-1, false, null));
+    }
+
+    private static void assertSameAnswers(List<Property> listings, PropertyIndex index) {
+        Comparator<Property> ascending = Listings.BY_PRICE_THEN_ID;
+        assertEquals(Listings.sorted(listings, ascending), index.sortedByPrice());
+        for (double[] range : PRICE_RANGES) {
+            List<Property> matches = Listings.where(listings, Listings.inPriceRange(range[0], range[1]));
+            assertEquals(Listings.sorted(matches, ascending), index.priceRange(range[0], range[1]),
+                    range[0] + ".." + range[1]);
+        }
+        for (String city : QUERIED_CITIES) {
+            List<Property> inCity = Listings.where(listings, Listings.inCityTrimmed(city));
+            assertEquals(Listings.sorted(inCity, ascending), index.byCity(city), city);
+            for (double[] range : PRICE_RANGES) {
+                List<Property> matches = Listings.where(inCity, Listings.inPriceRange(range[0], range[1]));
+                assertEquals(Listings.sorted(matches, ascending),
+                        index.search(city, range[0], range[1], false), city + " " + range[0] + ".." + range[1]);
+                assertEquals(Listings.sorted(matches, ascending.reversed()),
+                        index.search(city, range[0], range[1], true), city + " descending");
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package domain;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PropertyQueryExecutorTest {
+
+    // 5,000 rows against a threshold of 100: the chunked scans, the chunk heaps and the merge sort all run
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final PropertyQueryExecutor PARALLEL = new PropertyQueryExecutor(POOL, 100);
+    private static final PropertyQueryExecutor SEQUENTIAL = new PropertyQueryExecutor();
+    private static final List<Property> LISTINGS = Listings.random(5_000, 1);
+    private static final PropertyStore STORE = PropertyStoreTest.storeOf(LISTINGS);
+
+    @AfterAll
+    static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void scansMatchTheSequentialStoreRowForRow() {
+        for (PropertyQueryExecutor executor : List.of(PARALLEL, SEQUENTIAL)) {
+            for (String city : PropertyStoreTest.QUERIED_CITIES) {
+                assertArrayEquals(STORE.filterByCity(city), executor.filterByCity(STORE, city), "city " + city);
+            }
+            for (double[] range : PropertyStoreTest.PRICE_RANGES) {
+                assertArrayEquals(STORE.searchByPrice(range[0], range[1]),
+                        executor.searchByPrice(STORE, range[0], range[1]), range[0] + ".." + range[1]);
+            }
+        }
+    }
+
+    @Test
+    void sortMatchesTheSequentialStoreRowForRow() {
+        List<Property> expected = Listings.sorted(LISTINGS, Listings.BY_PRICE_THEN_ID);
+        for (PropertyQueryExecutor executor : List.of(PARALLEL, SEQUENTIAL)) {
+            int[] rows = executor.sortByPriceAsc(STORE);
+            assertArrayEquals(STORE.sortByPriceAsc(), rows);
+            assertEquals(expected, STORE.toProperties(rows));
+        }
+    }
+
+    @Test
+    void topKMatchesTheHeadOfAStreamSort() {
+        Comparator<Property> ascending = Listings.BY_PRICE_THEN_ID;
+        for (PropertyQueryExecutor executor : List.of(PARALLEL, SEQUENTIAL)) {
+            for (int k : new int[]{0, 1, 10, 150, 5_000, 8_000}) {
+                for (String city : new String[]{null, "rome", " Rome", "Kyiv"}) {
+                    List<Property> matches = city == null
+                            ? LISTINGS
+                            : Listings.where(LISTINGS, p -> p.getCity().equalsIgnoreCase(city));
+                    String query = city + " k=" + k;
+                    assertEquals(Listings.topK(matches, k, ascending),
+                            STORE.toProperties(executor.topKByPrice(STORE, k, true, city)), query);
+                    assertEquals(Listings.topK(matches, k, ascending.reversed()),
+                            STORE.toProperties(executor.topKByPrice(STORE, k, false, city)), query + " descending");
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> executor.topKByPrice(STORE, -1, true, null));
+        }
+    }
+}
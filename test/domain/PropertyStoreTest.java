@@ -0,0 +1,71 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PropertyStoreTest {
+
+    static final String[] QUERIED_CITIES = {"Rome", "rome", " Rome", "Rome ", " rome ", "OSLO", "Kyiv", "", null};
+    static final double[][] PRICE_RANGES = {
+            {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}, {5_000, 20_000}, {7_000, 7_000}, {20_000, 5_000},
+            {-1, 0}};
+
+    @Test
+    void scansMatchTheListScans() {
+        List<Property> listings = Listings.random(3_000, 1);
+        PropertyStore store = storeOf(listings);
+
+        assertEquals(listings.size(), store.size());
+        assertEquals(Listings.CITIES.length, store.cityCount());
+        for (String city : QUERIED_CITIES) {
+            assertEquals(Listings.where(listings, p -> p.getCity().equalsIgnoreCase(city)),
+                    store.toProperties(store.filterByCity(city)), "city " + city);
+        }
+        for (double[] range : PRICE_RANGES) {
+            assertEquals(Listings.where(listings, Listings.inPriceRange(range[0], range[1])),
+                    store.toProperties(store.searchByPrice(range[0], range[1])), range[0] + ".." + range[1]);
+        }
+    }
+
+    @Test
+    void sortsByPriceThenIdAndResortsAfterAnAdd() {
+        List<Property> listings = Listings.random(3_000, 2);
+        PropertyStore store = storeOf(listings);
+
+        assertEquals(Listings.sorted(listings, Listings.BY_PRICE_THEN_ID), store.toProperties(store.sortByPriceAsc()));
+        // the cached order is handed out as a copy
+        store.sortByPriceAsc()[0] = 1;
+        assertEquals(Listings.sorted(listings, Listings.BY_PRICE_THEN_ID), store.toProperties(store.sortByPriceAsc()));
+
+        Property cheapest = new Property(1, "Lima", 1);
+        listings.add(cheapest);
+        store.add(cheapest);
+        assertEquals(Listings.sorted(listings, Listings.BY_PRICE_THEN_ID), store.toProperties(store.sortByPriceAsc()));
+    }
+
+    @Test
+    void materializesRows() {
+        List<Property> listings = Listings.random(10, 3);
+        PropertyStore store = storeOf(listings);
+
+        for (int row = 0; row < listings.size(); row++) {
+            Property p = listings.get(row);
+            assertEquals(p.getId(), store.id(row));
+            assertEquals(p.getCity(), store.city(row));
+            assertEquals(p.getPrice(), store.price(row));
+            assertEquals(p, store.get(row));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.toProperties(new int[]{-1}));
+    }
+
+    static PropertyStore storeOf(List<Property> listings) {
+        PropertyStore store = new PropertyStore();
+        listings.forEach(store::add);
+        return store;
+    }
+}
@@ -0,0 +1,143 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealEstateAgencyTest {
+
+    private static final String[] QUERIED_CITIES = {
+            "Rome", "rome", " Rome", "Rome ", " rome ", "OSLO", "Lima", "Kyiv", "", null};
+    private static final double[][] PRICE_RANGES = {
+            {0, Double.MAX_VALUE}, {5_000, 20_000}, {7_000, 7_000}, {20_000, 5_000}, {-1, 0}, {40_000, 40_000}};
+
+    @Test
+    void answersLikeTheListItReplaced() {
+        List<Property> listings = Listings.random(500, 1);
+        RealEstateAgency agency = new RealEstateAgency("test");
+        BaselineAgency baseline = new BaselineAgency();
+        for (Property p : listings) {
+            agency.add(p);
+            baseline.add(p);
+        }
+        // the same listing added again is listed twice, like in the list
+        for (Property p : listings.subList(0, 20)) {
+            agency.add(p);
+            baseline.add(p);
+        }
+
+        assertSameAnswers(baseline, agency);
+    }
+
+    @Test
+    void findsListingsChangedAfterTheyWereAdded() {
+        List<Property> listings = Listings.random(300, 2);
+        RealEstateAgency agency = new RealEstateAgency("test");
+        BaselineAgency baseline = new BaselineAgency();
+        for (Property p : listings) {
+            agency.add(p);
+            baseline.add(p);
+        }
+        agency.add(listings.get(0));
+        baseline.add(listings.get(0));
+
+        for (int i = 0; i < listings.size(); i += 3) {
+            listings.get(i).setPrice(listings.get(i).getPrice() + 500);
+        }
+        for (int i = 0; i < listings.size(); i += 5) {
+            listings.get(i).setCity(i % 2 == 0 ? "Kyiv" : " rome");
+        }
+
+        assertSameAnswers(baseline, agency);
+    }
+
+    @Test
+    void returnsListsTheCallerMayChange() {
+        RealEstateAgency agency = new RealEstateAgency("test");
+        agency.add(new Property(1, "Rome", 1_000));
+
+        agency.filterByCity(null).add(new Property(2, "Oslo", 1_000));
+        agency.filterByCity("Kyiv").add(new Property(2, "Oslo", 1_000));
+        agency.searchByPrice(2, 1).add(new Property(2, "Oslo", 1_000));
+        agency.filterByCity("Rome").clear();
+        assertEquals(1, agency.all().size());
+    }
+
+    @Test
+    void topKIsTheHeadOfThePriceOrder() {
+        List<Property> listings = Listings.random(400, 3);
+        RealEstateAgency agency = new RealEstateAgency("test");
+        listings.forEach(agency::add);
+        // keyed by insertion, so ties go by insertion order, the latest first when descending
+        List<Property> ascending = new BaselineAgency(listings).sortByPriceAsc();
+        List<Property> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+
+        for (int k : new int[]{0, 1, 7, 400, 1_000}) {
+            assertEquals(head(ascending, k), agency.topKByPrice(k, true, null), "k=" + k);
+            assertEquals(head(descending, k), agency.topKByPrice(k, false, null), "k=" + k + " descending");
+            // the city is matched like the index does, ignoring surrounding spaces
+            for (String city : new String[]{" rome ", "Oslo", "Kyiv"}) {
+                assertEquals(head(Listings.where(ascending, Listings.inCityTrimmed(city)), k),
+                        agency.topKByPrice(k, true, city), city + " k=" + k);
+            }
+            Property[] into = new Property[k];
+            int n = agency.topKByPrice(false, null, into);
+            assertEquals(head(descending, k), Arrays.asList(into).subList(0, n), "into k=" + k);
+        }
+        assertThrows(IllegalArgumentException.class, () -> agency.topKByPrice(-1, true, null));
+    }
+
+    private static List<Property> head(List<Property> list, int k) {
+        return list.subList(0, Math.min(k, list.size()));
+    }
+
+    private static void assertSameAnswers(BaselineAgency baseline, RealEstateAgency agency) {
+        assertEquals(baseline.all(), agency.all());
+        for (String city : QUERIED_CITIES) {
+            assertEquals(baseline.filterByCity(city), agency.filterByCity(city), "city " + city);
+        }
+        for (double[] range : PRICE_RANGES) {
+            assertEquals(baseline.searchByPrice(range[0], range[1]), agency.searchByPrice(range[0], range[1]),
+                    "price " + range[0] + ".." + range[1]);
+        }
+        assertEquals(baseline.sortByPriceAsc(), agency.sortByPriceAsc());
+        assertTrue(agency.filterByCity("Rome").size() < agency.all().size());
+    }
+
+    // RealEstateAgency as it was before the index: a list and stream scans.
+    private static final class BaselineAgency {
+        private final List<Property> listings = new ArrayList<>();
+
+        BaselineAgency() {}
+        BaselineAgency(List<Property> listings) { this.listings.addAll(listings); }
+
+        void add(Property p) { listings.add(p); }
+        List<Property> all() { return new ArrayList<>(listings); }
+
+        List<Property> filterByCity(String city) {
+            return listings.stream()
+                    .filter(p -> p.getCity().equalsIgnoreCase(city))
+                    .collect(Collectors.toList());
+        }
+        List<Property> searchByPrice(double min, double max) {
+            return listings.stream()
+                    .filter(p -> p.getPrice() >= min && p.getPrice() <= max)
+                    .collect(Collectors.toList());
+        }
+        List<Property> sortByPriceAsc() {
+            return listings.stream()
+                    .sorted(Comparator.comparingDouble(Property::getPrice))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class RowHeapTest {
+
+    private static final int N = 2_000;
+
+    private final double[] prices = new double[N];
+    private final long[] ids = new long[N];
+
+    RowHeapTest() {
+        Random random = new Random(1);
+        for (int i = 0; i < N; i++) {
+            prices[i] = random.nextInt(50);
+            ids[i] = N - i;
+        }
+    }
+
+    @Test
+    void keepsTheBestKRowsBestFirst() {
+        for (boolean ascending : new boolean[]{true, false}) {
+            for (int k : new int[]{0, 1, 2, 10, 500, N, N + 100}) {
+                RowHeap heap = new RowHeap(k, ascending, prices, ids);
+                for (int row = 0; row < N; row++) {
+                    heap.offer(row);
+                }
+                assertArrayEquals(reference(k, ascending), heap.toSortedArray(), "k=" + k + " ascending=" + ascending);
+            }
+        }
+    }
+
+    @Test
+    void mergedChunkHeapsKeepTheSameRows() {
+        for (boolean ascending : new boolean[]{true, false}) {
+            int k = 37;
+            RowHeap merged = new RowHeap(k, ascending, prices, ids);
+            for (int from = 0; from < N; from += 300) {
+                RowHeap chunk = new RowHeap(k, ascending, prices, ids);
+                for (int row = from; row < Math.min(from + 300, N); row++) {
+                    chunk.offer(row);
+                }
+                chunk.drainTo(merged);
+            }
+            assertArrayEquals(reference(k, ascending), merged.toSortedArray(), "ascending=" + ascending);
+        }
+    }
+
+    // ids are distinct, so (price, id) is a total order and the expected rows are exact
+    private int[] reference(int k, boolean ascending) {
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(row -> prices[row])
+                .thenComparingLong(row -> ids[row]);
+        return IntStream.range(0, N).boxed()
+                .sorted(ascending ? order : order.reversed())
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,87 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class RowOrderTest {
+
+    @Test
+    void sortsLikeAComparatorOverPriceThenId() {
+        Random random = new Random(1);
+        for (int n : new int[]{0, 1, 2, 3, 24, 25, 26, 100, 5_000}) {
+            for (int distinctPrices : new int[]{1, 3, 1_000}) {
+                double[] prices = new double[n];
+                long[] ids = new long[n];
+                for (int i = 0; i < n; i++) {
+                    prices[i] = random.nextInt(distinctPrices);
+                    ids[i] = random.nextInt(Math.max(n, 1) * 10);
+                }
+                assertSortsLikeReference(identity(n), prices, ids);
+            }
+        }
+    }
+
+    @Test
+    void sortsAlreadyOrderedAndReversedInput() {
+        int n = 2_000;
+        double[] prices = new double[n];
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = i / 10;
+            ids[i] = i;
+        }
+        assertSortsLikeReference(identity(n), prices, ids);
+        int[] reversed = IntStream.range(0, n).map(i -> n - 1 - i).toArray();
+        assertSortsLikeReference(reversed, prices, ids);
+    }
+
+    @Test
+    void sortsOnlyTheGivenRange() {
+        double[] prices = {5, 4, 3, 2, 1, 0};
+        long[] ids = {0, 1, 2, 3, 4, 5};
+        int[] rows = identity(6);
+
+        RowOrder.sort(rows, 1, 4, prices, ids);
+
+        assertArrayEquals(new int[]{0, 4, 3, 2, 1, 5}, rows);
+    }
+
+    private static void assertSortsLikeReference(int[] rows, double[] prices, long[] ids) {
+        Comparator<Integer> byPriceThenId = Comparator.<Integer>comparingDouble(row -> prices[row])
+                .thenComparingLong(row -> ids[row]);
+        int[] expected = Arrays.stream(rows).boxed().sorted(byPriceThenId).mapToInt(Integer::intValue).toArray();
+        int[] sorted = rows.clone();
+
+        RowOrder.sort(sorted, 0, sorted.length - 1, prices, ids);
+
+        // equal (price, id) pairs may land in either order; compare what the rows hold
+        assertArrayEquals(pricesOf(expected, prices), pricesOf(sorted, prices), "n=" + rows.length);
+        assertArrayEquals(idsOf(expected, ids), idsOf(sorted, ids), "n=" + rows.length);
+        // and it is a permutation of the input
+        assertArrayEquals(sortedCopy(rows), sortedCopy(sorted));
+    }
+
+    private static int[] identity(int n) {
+        return IntStream.range(0, n).toArray();
+    }
+
+    private static int[] sortedCopy(int[] rows) {
+        int[] copy = rows.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static double[] pricesOf(int[] rows, double[] prices) {
+        return Arrays.stream(rows).mapToDouble(row -> prices[row]).toArray();
+    }
+
+    private static long[] idsOf(int[] rows, long[] ids) {
+        return Arrays.stream(rows).mapToLong(row -> ids[row]).toArray();
+    }
+}
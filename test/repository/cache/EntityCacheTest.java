@@ -0,0 +1,102 @@
+package repository.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EntityCacheTest {
+
+    @Test
+    void servesHitsAndCachedMissesWithoutLoading() {
+        EntityCache<String> cache = new EntityCache<>("test", 10, 60_000, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("row-1", cache.get(1, id -> { loads.incrementAndGet(); return "row-" + id; }));
+        assertEquals("row-1", cache.get(1, id -> { loads.incrementAndGet(); return "other"; }));
+        assertNull(cache.get(2, id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get(2, id -> { loads.incrementAndGet(); return "other"; }));
+
+        assertEquals(2, loads.get());
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getNegativeHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        EntityCache<String> cache = new EntityCache<>("test", 10, 60_000, 60_000);
+        assertEquals("old", cache.get(1, id -> {
+            cache.invalidate(1);
+            return "old";
+        }));
+        assertEquals("new", cache.get(1, id -> "new"));
+    }
+
+    @Test
+    void loadIsStillCachedWhileOtherIdsAndMissesAreInvalidated() {
+        EntityCache<String> cache = new EntityCache<>("test", 10, 60_000, 60_000);
+        assertEquals("row-1", cache.get(1, id -> {
+            cache.invalidate(2);
+            cache.invalidateMisses();
+            return "row-1";
+        }));
+        assertNull(cache.get(3, id -> {
+            cache.invalidateMisses();
+            return null;
+        }));
+
+        assertEquals("row-1", cache.get(1, id -> "reloaded"));
+        assertEquals("loaded", cache.get(3, id -> "loaded"));
+    }
+
+    @Test
+    void invalidationsBeyondTheSizeStillVoidOlderLoads() {
+        EntityCache<String> cache = new EntityCache<>("test", 2, 60_000, 60_000);
+        assertEquals("old", cache.get(1, id -> {
+            for (int other = 1; other <= 5; other++) {
+                cache.invalidate(other);
+            }
+            return "old";
+        }));
+        assertEquals("new", cache.get(1, id -> "new"));
+    }
+
+    @Test
+    void staysWithinItsSizeAndKeepsEntriesInUse() {
+        EntityCache<String> cache = new EntityCache<>("test", 3, 60_000, 60_000);
+        for (int id = 1; id <= 3; id++) {
+            cache.get(id, i -> "row-" + i);
+        }
+        // 1 is in use, so the clock passes it over and drops 2, the oldest unused entry
+        cache.get(1, id -> "reloaded");
+        cache.get(4, id -> "row-4");
+
+        assertEquals(3, cache.stats().getSize());
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals("row-1", cache.get(1, id -> "reloaded"));
+        assertEquals("reloaded", cache.get(2, id -> "reloaded"));
+    }
+
+    @Test
+    void multiGetLoadsOnlyWhatIsMissing() {
+        EntityCache<String> cache = new EntityCache<>("test", 10, 60_000, 60_000);
+        cache.get(1, id -> "row-1");
+        Map<Integer, String> result = cache.getAll(new int[]{1, 2, 3, 2}, ids -> {
+            assertEquals(2, ids.length);
+            return List.of("row-" + ids[0]);
+        }, value -> Integer.parseInt(value.substring(4)));
+
+        assertEquals(List.of(1, 2, 3), List.copyOf(result.keySet()));
+        assertEquals("row-1", result.get(1));
+        assertEquals("row-2", result.get(2));
+        assertNull(result.get(3));
+        assertEquals(0, cache.stats().getNegativeHits());
+        assertNull(cache.get(3, id -> "loaded again"));
+    }
+}
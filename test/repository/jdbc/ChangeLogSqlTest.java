@@ -0,0 +1,157 @@
+package repository.jdbc;
+
+import dto.ChangePage;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// The cursor handling around the change_log query. The query itself (floor, xmin horizon) needs PostgreSQL;
+// here its result rows are played back through a stub statement.
+class ChangeLogSqlTest {
+
+    @Test
+    void parsesPositions() {
+        assertArrayEquals(new long[]{0, 0}, ChangeLogSql.parsePosition("0"));
+        assertArrayEquals(new long[]{88412, 1834}, ChangeLogSql.parsePosition("88412.1834"));
+        for (String invalid : new String[]{"", "12", ".5", "12.", "0.5", "12.0", "-1.3", "1.-3", "1.x", "1.2.3", "00"}) {
+            assertNull(ChangeLogSql.parsePosition(invalid), invalid);
+        }
+    }
+
+    @Test
+    void malformedCursorIsUnknownWithoutQuerying() throws Exception {
+        PreparedStatement stmt = statement(new HashMap<>(), null);
+        assertNull(ChangeLogSql.read(stmt, "property", "not-a-cursor", 10, rs -> fail("read a row")));
+    }
+
+    @Test
+    void bindsThePositionEntityAndOneExtraEntry() throws Exception {
+        Map<Integer, Object> params = new HashMap<>();
+        ChangeLogSql.read(statement(params, List.of(endOfLog())), "agency", "700.42", 25, rs -> null);
+        assertEquals(Map.of(1, "700", 2, 42L, 3, "agency", 4, "agency", 5, 26), params);
+    }
+
+    @Test
+    void positionTheQueryRejectsIsUnknown() throws Exception {
+        // below the floor, or from a transaction that has not started: the query returns no row at all
+        assertNull(ChangeLogSql.read(statement(new HashMap<>(), List.of()), "property", "5.9", 10, rs -> "row"));
+    }
+
+    @Test
+    void positionWithNothingAfterItKeepsTheCursor() throws Exception {
+        ChangePage<String> page = ChangeLogSql.read(statement(new HashMap<>(), List.of(endOfLog())), "property", "5.9", 10,
+                rs -> fail("read a row"));
+        assertEquals("5.9", page.getNext());
+        assertFalse(page.isHasMore());
+        assertTrue(page.getUpserts().isEmpty());
+        assertTrue(page.getDeletes().isEmpty());
+    }
+
+    @Test
+    void pagesStopAtTheLimitAndDeletedRowsBecomeDeletes() throws Exception {
+        List<Map<String, Object>> rows = List.of(
+                entry("10", 3, 7, "Rome"),
+                entry("11", 4, 8, null),
+                entry("11", 5, 9, "Oslo"));
+        ChangePage<String> page = ChangeLogSql.read(statement(new HashMap<>(), rows), "property", "0", 2,
+                rs -> rs.getString("city"));
+        assertEquals("11.4", page.getNext());
+        assertTrue(page.isHasMore());
+        assertEquals(List.of("Rome"), page.getUpserts());
+        assertEquals(List.of(8), page.getDeletes());
+    }
+
+    @Test
+    void lastPageReportsNoMore() throws Exception {
+        List<Map<String, Object>> rows = List.of(entry("10", 3, 7, "Rome"), entry("12", 6, 7, "Lima"));
+        ChangePage<String> page = ChangeLogSql.read(statement(new HashMap<>(), rows), "property", "0", 2,
+                rs -> rs.getString("city"));
+        assertEquals("12.6", page.getNext());
+        assertFalse(page.isHasMore());
+        // the row's later entry replaces its earlier one
+        assertEquals(List.of("Lima"), page.getUpserts());
+    }
+
+    // one change_log entry joined to its row; city null means the row is gone
+    private static Map<String, Object> entry(String txid, long version, int entityId, String city) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("log_txid", txid);
+        row.put("log_version", version);
+        row.put("entity_id", entityId);
+        row.put("id", city == null ? null : entityId);
+        row.put("city", city);
+        return row;
+    }
+
+    // the single row of a valid position with no entries after it: every column null
+    private static Map<String, Object> endOfLog() {
+        return new HashMap<>();
+    }
+
+    // rows == null: the statement must not be executed
+    private static PreparedStatement statement(Map<Integer, Object> params, List<Map<String, Object>> rows) {
+        return (PreparedStatement) Proxy.newProxyInstance(ChangeLogSqlTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setString":
+                        case "setLong":
+                        case "setInt":
+                            params.put((Integer) args[0], args[1]);
+                            return null;
+                        case "executeQuery":
+                            if (rows == null) {
+                                fail("executed the query");
+                            }
+                            return resultSet(rows);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        Iterator<Map<String, Object>> it = new ArrayList<>(rows).iterator();
+        Object[] current = new Object[1];
+        boolean[] wasNull = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(ChangeLogSqlTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> row = (Map<String, Object>) current[0];
+                    switch (method.getName()) {
+                        case "next":
+                            current[0] = it.hasNext() ? it.next() : null;
+                            return current[0] != null;
+                        case "getString":
+                        case "getLong":
+                        case "getInt":
+                            Object value = row.get((String) args[0]);
+                            wasNull[0] = value == null;
+                            if (value != null) {
+                                return value;
+                            }
+                            return method.getName().equals("getString") ? null : method.getName().equals("getLong") ? (Object) 0L : (Object) 0;
+                        case "wasNull":
+                            return wasNull[0];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName() + Arrays.toString(args));
+                    }
+                });
+    }
+}
@@ -0,0 +1,297 @@
+package repository.journal;
+
+import exceptions.DataAccessException;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Journal journal;
+    private Store store;
+
+    @AfterEach
+    void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void replaysWrittenRecordsAfterRestart() {
+        open(Long.MAX_VALUE);
+        store.put(1, "Rome");
+        store.put(2, "Oslo");
+        store.put(1, "Lima");
+        store.delete(2);
+
+        reopen(Long.MAX_VALUE);
+
+        assertEquals(Map.of(1, "Lima"), store.values);
+    }
+
+    @Test
+    void truncatesRecordCutShortAtTheEndOfTheLastSegment() throws IOException {
+        open(Long.MAX_VALUE);
+        store.put(1, "Rome");
+        store.put(2, "Oslo");
+        journal.close();
+        Path segment = onlySegment();
+        long good = Files.size(segment);
+        // a length and checksum promising more bytes than the crash left behind
+        append(segment, ByteBuffer.allocate(11).putInt(40).putInt(0).put(new byte[3]).array());
+
+        reopen(Long.MAX_VALUE);
+
+        assertEquals(Map.of(1, "Rome", 2, "Oslo"), store.values);
+        assertEquals(good, Files.size(segment));
+        store.put(3, "Kyiv");
+        reopen(Long.MAX_VALUE);
+        assertEquals(Map.of(1, "Rome", 2, "Oslo", 3, "Kyiv"), store.values);
+    }
+
+    @Test
+    void discardsLastRecordFailingItsChecksum() throws IOException {
+        open(Long.MAX_VALUE);
+        store.put(1, "Rome");
+        long first = Files.size(onlySegment());
+        store.put(2, "Oslo");
+        journal.close();
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(segment, bytes);
+
+        reopen(Long.MAX_VALUE);
+
+        assertEquals(Map.of(1, "Rome"), store.values);
+        assertEquals(first, Files.size(segment));
+    }
+
+    @Test
+    void recoversFromSnapshotPlusLaterSegments() throws IOException {
+        open(Long.MAX_VALUE);
+        for (int id = 1; id <= 50; id++) {
+            store.put(id, "city-" + id);
+        }
+        journal.snapshot();
+        store.put(1, "Lima");
+        store.delete(2);
+        store.put(51, "Kyiv");
+        journal.close();
+
+        assertEquals(List.of("segment-0000000000000001.log", "snapshot-0000000000000001.bin"), files());
+
+        Map<Integer, String> expected = new TreeMap<>(store.values);
+        reopen(Long.MAX_VALUE);
+        assertEquals(expected, store.values);
+        assertEquals("Lima", store.values.get(1));
+        assertFalse(store.values.containsKey(2));
+    }
+
+    @Test
+    void snapshotsWhenTheSegmentGrowsAndStillRecoversEverything() throws Exception {
+        open(256);
+        for (int id = 1; id <= 200; id++) {
+            store.put(id, "city-" + id);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (files().stream().noneMatch(f -> f.startsWith("snapshot-")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        store.put(201, "last");
+        journal.close();
+        assertTrue(files().stream().anyMatch(f -> f.startsWith("snapshot-")), "no snapshot written");
+        assertFalse(files().contains("segment-0000000000000000.log"), "compacted segment kept");
+
+        Map<Integer, String> expected = new TreeMap<>(store.values);
+        reopen(Long.MAX_VALUE);
+        assertEquals(expected, store.values);
+    }
+
+    @Test
+    void failedSyncUndoesTheWriteAndStopsTheJournal() throws Exception {
+        open(Long.MAX_VALUE);
+        store.put(1, "Rome");
+        store.put(2, "Oslo");
+        closeSegment();
+
+        assertThrows(DataAccessException.class, () -> store.put(1, "Lima"));
+        assertEquals(Map.of(1, "Rome", 2, "Oslo"), store.values);
+        assertThrows(DataAccessException.class, () -> store.delete(2));
+        assertEquals(Map.of(1, "Rome", 2, "Oslo"), store.values);
+
+        reopen(Long.MAX_VALUE);
+        assertEquals(Map.of(1, "Rome", 2, "Oslo"), store.values);
+    }
+
+    @Test
+    void writeFailingWhileASnapshotRunsIsNotRecoveredFromThatSnapshot() throws Exception {
+        open(Long.MAX_VALUE);
+        store.put(1, "Rome");
+        AtomicReference<Throwable> lostWrite = new AtomicReference<>();
+        // the write reaches memory, so the snapshot holds it, and then fails on the closed segment
+        Thread writer = new Thread(() -> {
+            try {
+                store.put(2, "Lost");
+            } catch (RuntimeException e) {
+                lostWrite.set(e);
+            }
+        });
+        store.duringSnapshot = () -> {
+            try {
+                closeSegment();
+                writer.start();
+                while (!store.values.containsKey(2) && writer.isAlive()) {
+                    Thread.onSpinWait();
+                }
+            } catch (ReflectiveOperationException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        journal.snapshot();
+        writer.join();
+
+        assertTrue(lostWrite.get() instanceof DataAccessException, "the write did not fail");
+        assertEquals(Map.of(1, "Rome"), store.values);
+        assertFalse(files().stream().anyMatch(f -> f.startsWith("snapshot-") && f.endsWith(".bin")),
+                "snapshot holding a failed write was kept");
+        reopen(Long.MAX_VALUE);
+        assertEquals(Map.of(1, "Rome"), store.values);
+    }
+
+    private void closeSegment() throws ReflectiveOperationException, IOException {
+        Field segment = Journal.class.getDeclaredField("segment");
+        segment.setAccessible(true);
+        ((FileChannel) segment.get(journal)).close();
+    }
+
+    private void open(long snapshotBytes) {
+        store = new Store();
+        journal = new Journal(dir, "test", store, snapshotBytes, MetricsRegistry.getDefault());
+        store.journal = journal;
+    }
+
+    private void reopen(long snapshotBytes) {
+        journal.close();
+        open(snapshotBytes);
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = files.filter(f -> f.getFileName().toString().startsWith("segment-")).collect(Collectors.toList());
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    // id -> city, journalled the way the repositories do it: change memory, record the op and its undo.
+    private static final class Store implements Journal.Target {
+        // read by the snapshot thread while writes continue, like the repositories' maps
+        private final Map<Integer, String> values = new ConcurrentSkipListMap<>();
+        private Journal journal;
+        private Runnable duringSnapshot = () -> { };
+
+        void put(int id, String city) {
+            journal.write(record -> {
+                String previous = values.put(id, city);
+                record.undo(() -> restore(id, previous));
+                Journal.uncheckedWrite(() -> {
+                    DataOutput out = record.op();
+                    out.writeInt(id);
+                    out.writeBoolean(true);
+                    out.writeUTF(city);
+                });
+                return null;
+            });
+        }
+
+        void delete(int id) {
+            journal.write(record -> {
+                String previous = values.remove(id);
+                record.undo(() -> restore(id, previous));
+                Journal.uncheckedWrite(() -> {
+                    DataOutput out = record.op();
+                    out.writeInt(id);
+                    out.writeBoolean(false);
+                });
+                return null;
+            });
+        }
+
+        private void restore(int id, String previous) {
+            if (previous == null) {
+                values.remove(id);
+            } else {
+                values.put(id, previous);
+            }
+        }
+
+        @Override
+        public void replay(DataInput in) throws IOException {
+            int id = in.readInt();
+            if (in.readBoolean()) {
+                values.put(id, in.readUTF());
+            } else {
+                values.remove(id);
+            }
+        }
+
+        @Override
+        public void writeSnapshot(DataOutput out) throws IOException {
+            duringSnapshot.run();
+            Map<Integer, String> copy = new TreeMap<>(values);
+            out.writeInt(copy.size());
+            for (Map.Entry<Integer, String> entry : copy.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+        }
+
+        @Override
+        public void readSnapshot(DataInput in) throws IOException {
+            for (int n = in.readInt(); n > 0; n--) {
+                values.put(in.readInt(), in.readUTF());
+            }
+        }
+    }
+}
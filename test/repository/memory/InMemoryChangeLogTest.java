@@ -0,0 +1,67 @@
+package repository.memory;
+
+import dto.ChangePage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryChangeLogTest {
+
+    @Test
+    void pagesFollowTheCursorAndKeepOneEntryPerRow() {
+        InMemoryChangeLog log = new InMemoryChangeLog();
+        log.record(1);
+        log.record(2);
+        log.record(1);
+
+        ChangePage<Integer> first = log.read(ChangePage.START, 1, id -> id);
+        assertEquals(List.of(2), first.getUpserts());
+        assertTrue(first.isHasMore());
+
+        ChangePage<Integer> second = log.read(first.getNext(), 10, id -> id);
+        assertEquals(List.of(1), second.getUpserts());
+        assertFalse(second.isHasMore());
+
+        ChangePage<Integer> empty = log.read(second.getNext(), 10, id -> id);
+        assertEquals(second.getNext(), empty.getNext());
+        assertTrue(empty.getUpserts().isEmpty());
+    }
+
+    @Test
+    void unknownPositionsAreRejected() {
+        InMemoryChangeLog log = new InMemoryChangeLog();
+        log.record(1);
+        String last = log.read(ChangePage.START, 10, id -> id).getNext();
+
+        assertNull(log.read("x", 10, id -> id));
+        assertNull(log.read("-1", 10, id -> id));
+        // ahead of the log, or from before this run
+        assertNull(log.read(Long.toString(Long.parseLong(last) + 1), 10, id -> id));
+        assertNull(log.read("1", 10, id -> id));
+    }
+
+    @Test
+    void cursorBeforeTheFloorIsRejectedAndOneAtItIsNot() {
+        int maxDeletes = Integer.getInteger("changes.maxDeletes", 100_000);
+        InMemoryChangeLog log = new InMemoryChangeLog();
+        log.record(-1);
+        String beforeFirstDelete = log.read(ChangePage.START, 10, id -> id).getNext();
+        log.recordDelete(1);
+        String atFirstDelete = log.read(beforeFirstDelete, 10, id -> null).getNext();
+        for (int id = 2; id <= maxDeletes + 1; id++) {
+            log.recordDelete(id);
+        }
+
+        // the first deletion was trimmed; a reader that has not seen it must start over
+        assertNull(log.read(beforeFirstDelete, 10, id -> null));
+        ChangePage<Integer> page = log.read(atFirstDelete, 10, id -> null);
+        assertNotNull(page);
+        assertEquals(List.of(2, 3, 4, 5, 6, 7, 8, 9, 10, 11), page.getDeletes());
+    }
+}
@@ -0,0 +1,112 @@
+package repository.shard;
+
+import dto.ChangePage;
+import dto.PropertyRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import repository.memory.InMemoryPropertyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The composite change cursor: one position per shard, each shard's log read from its own.
+class ShardedPropertyRepositoryTest {
+
+    private static final int RANGE = 1_000;
+
+    private final List<InMemoryPropertyRepository> shards = List.of(shard(0), shard(1), shard(2));
+    private final ShardedPropertyRepository repository =
+            new ShardedPropertyRepository(shards, ShardedPropertyRepository.Placement.ID_RANGE, RANGE);
+
+    @AfterEach
+    void close() {
+        repository.close();
+    }
+
+    @Test
+    void cursorHoldsOnePositionPerShard() {
+        for (int i = 0; i < 6; i++) {
+            repository.insertProperty("city-" + i, 100 + i);
+        }
+        ChangePage<PropertyRecord> page = repository.getPropertyChanges(ChangePage.START, 100);
+        assertEquals(3, page.getNext().split("_", -1).length);
+        assertEquals(6, page.getUpserts().size());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void pagesBelowTheShardCountStayWithinTheLimitAndReachEveryRowOnce() {
+        for (int i = 0; i < 10; i++) {
+            repository.insertProperty("city-" + i, 100 + i);
+        }
+        for (int limit = 1; limit <= 2; limit++) {
+            Set<Integer> seen = new TreeSet<>();
+            List<Integer> all = new ArrayList<>();
+            String cursor = ChangePage.START;
+            ChangePage<PropertyRecord> page;
+            int pages = 0;
+            do {
+                page = repository.getPropertyChanges(cursor, limit);
+                assertTrue(page.getUpserts().size() + page.getDeletes().size() <= limit, "page over the limit");
+                for (PropertyRecord row : page.getUpserts()) {
+                    seen.add(row.getId());
+                    all.add(row.getId());
+                }
+                cursor = page.getNext();
+            } while (page.isHasMore() && ++pages < 100);
+
+            assertFalse(page.isHasMore(), "limit " + limit + " never caught up");
+            assertEquals(10, seen.size());
+            assertEquals(10, all.size());
+        }
+    }
+
+    @Test
+    void resumesEachShardFromItsOwnPosition() {
+        int first = repository.insertProperty("Rome", 100);
+        int second = repository.insertProperty("Oslo", 200);
+        int third = repository.insertProperty("Lima", 300);
+        String cursor = repository.getPropertyChanges(ChangePage.START, 100).getNext();
+
+        repository.updateProperty(second, "Oslo", 250);
+        repository.deleteProperty(third);
+        ChangePage<PropertyRecord> page = repository.getPropertyChanges(cursor, 100);
+
+        assertEquals(1, page.getUpserts().size());
+        assertEquals(second, page.getUpserts().get(0).getId());
+        assertEquals(250, page.getUpserts().get(0).getPrice());
+        assertEquals(List.of(third), page.getDeletes());
+        assertTrue(page.getUpserts().stream().noneMatch(row -> row.getId() == first));
+
+        ChangePage<PropertyRecord> caughtUp = repository.getPropertyChanges(page.getNext(), 100);
+        assertTrue(caughtUp.getUpserts().isEmpty());
+        assertTrue(caughtUp.getDeletes().isEmpty());
+    }
+
+    @Test
+    void cursorsOfAnotherShapeOrShardAreUnknown() {
+        repository.insertProperty("Rome", 100);
+        String cursor = repository.getPropertyChanges(ChangePage.START, 100).getNext();
+        String[] positions = cursor.split("_", -1);
+
+        assertNull(repository.getPropertyChanges(positions[0] + "_" + positions[1], 100));
+        assertNull(repository.getPropertyChanges(cursor + "_" + positions[0], 100));
+        assertNull(repository.getPropertyChanges(positions[0] + "_x_" + positions[2], 100));
+    }
+
+    // in-memory shard handing out ids from its own range, as the shard databases' sequences do
+    private static InMemoryPropertyRepository shard(int index) {
+        return new InMemoryPropertyRepository() {
+            {
+                sequence.set(index * RANGE);
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package service;
+
+import dto.ChangeEvent;
+import dto.PropertyRecord;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import repository.memory.InMemoryPropertyRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PropertyWriteBehindTest {
+
+    // long enough that nothing flushes before close()
+    private static final long LINGER_MILLIS = 60_000;
+
+    @Test
+    void mergedUpdatesAreWrittenAndReportedOnceWithTheFinalValues() {
+        InMemoryPropertyRepository repository = new InMemoryPropertyRepository();
+        int id = repository.insertProperty("Rome", 100);
+        PropertyWriteBehind writeBehind = writeBehind(repository, PropertyWriteBehind.Durability.COMMIT);
+        List<String> reported = new ArrayList<>();
+        writeBehind.setListener(new Recorder(reported));
+
+        CompletableFuture<Integer> first = writeBehind.update(id, "Oslo", 200);
+        CompletableFuture<Integer> second = writeBehind.update(id, "Lima", 300);
+        CompletableFuture<Integer> missing = writeBehind.update(id + 1, "Kyiv", 400);
+        writeBehind.close();
+
+        assertEquals(List.of("updated " + id + " Lima 300.0 1", "updated " + (id + 1) + " Kyiv 400.0 0"), reported);
+        assertEquals(1, first.join());
+        assertEquals(1, second.join());
+        assertEquals(0, missing.join());
+        assertEquals("Lima", repository.getPropertyById(id).getCity());
+    }
+
+    @Test
+    void updateMergedIntoALaterDeleteIsReportedAsTheDeleteOnly() {
+        InMemoryPropertyRepository repository = new InMemoryPropertyRepository();
+        int id = repository.insertProperty("Rome", 100);
+        PropertyWriteBehind writeBehind = writeBehind(repository, PropertyWriteBehind.Durability.COMMIT);
+        List<String> reported = new ArrayList<>();
+        writeBehind.setListener(new Recorder(reported));
+
+        CompletableFuture<Integer> update = writeBehind.update(id, "Oslo", 200);
+        CompletableFuture<Integer> delete = writeBehind.delete(id);
+        CompletableFuture<Integer> afterDelete = writeBehind.update(id, "Lima", 300);
+        writeBehind.close();
+
+        assertEquals(List.of("deleted " + id + " 1"), reported);
+        assertEquals(1, update.join());
+        assertEquals(1, delete.join());
+        assertEquals(0, afterDelete.join());
+        assertNull(repository.getPropertyById(id));
+    }
+
+    @Test
+    void serviceFeedCarriesOneEventPerMergedUpdate() {
+        InMemoryPropertyRepository repository = new InMemoryPropertyRepository();
+        int id = repository.insertProperty("Rome", 100);
+        PropertyWriteBehind writeBehind = writeBehind(repository, PropertyWriteBehind.Durability.ENQUEUE);
+        ChangeFeed feed = new ChangeFeed();
+        List<ChangeEvent> events = new ArrayList<>();
+        feed.subscribe(events::add);
+        PropertyService service = new DefaultPropertyService(repository, writeBehind, feed);
+
+        service.updateProperty(id, new PropertyRecord(0, "Oslo", 200));
+        service.updateProperty(id, new PropertyRecord(0, "Lima", 300));
+        writeBehind.close();
+
+        assertEquals(1, events.size());
+        ChangeEvent event = events.get(0);
+        assertEquals(ChangeEvent.Type.UPDATE, event.getType());
+        PropertyRecord row = (PropertyRecord) event.getData();
+        assertEquals("Lima", row.getCity());
+        assertEquals(300, row.getPrice());
+    }
+
+    private static PropertyWriteBehind writeBehind(InMemoryPropertyRepository repository,
+                                                   PropertyWriteBehind.Durability durability) {
+        return new PropertyWriteBehind(repository, 100, 100, LINGER_MILLIS, durability, new MetricsRegistry());
+    }
+
+    private static final class Recorder implements PropertyWriteBehind.Listener {
+        private final List<String> reported;
+
+        private Recorder(List<String> reported) {
+            this.reported = reported;
+        }
+
+        @Override
+        public void inserted(int id, String city, double price) {
+            reported.add("inserted " + id + " " + city + " " + price);
+        }
+
+        @Override
+        public void updated(int id, String city, double price, int rows) {
+            reported.add("updated " + id + " " + city + " " + price + " " + rows);
+        }
+
+        @Override
+        public void deleted(int id, int rows) {
+            reported.add("deleted " + id + " " + rows);
+        }
+    }
+}